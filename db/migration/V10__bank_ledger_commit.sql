@@ -0,0 +1,8 @@
+-- Отметки коммита журнала истории (bank.ledger.enabled=true): строка вставляется в той же транзакции,
+-- что и изменение баланса, для записей журнала first_seq..last_seq. Если исход транзакции не попал
+-- в журнал, восстановление решает по наличию отметки. Отметка удаляется, когда строки истории
+-- транзакции вставлены в bank_transaction.
+CREATE TABLE IF NOT EXISTS public.bank_ledger_commit (
+    last_seq  bigint NOT NULL PRIMARY KEY,
+    first_seq bigint NOT NULL
+);
@@ -0,0 +1,5 @@
+-- Столбец версии для оптимистической блокировки (BankAccount.version, @Version).
+-- Применяется до выката приложения: ddl-auto=update не может добавить
+-- NOT NULL столбец в непустую таблицу.
+ALTER TABLE public.bank_account
+    ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
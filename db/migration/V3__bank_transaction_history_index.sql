@@ -0,0 +1,5 @@
+-- Составной индекс под keyset-пагинацию истории:
+-- WHERE user_id = ? AND (timestamp, id) > (?, ?) ORDER BY timestamp, id LIMIT ?
+-- CONCURRENTLY не блокирует запись в bank_transaction, но не может выполняться внутри транзакции.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bank_transaction_user_ts_id
+    ON public.bank_transaction (user_id, "timestamp", id);
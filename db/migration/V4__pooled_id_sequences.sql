@@ -0,0 +1,23 @@
+-- Переход с IDENTITY/serial на последовательности с шагом 50 (pooled-оптимизатор Hibernate,
+-- @SequenceGenerator(allocationSize = 50) в Transaction и BankAccount).
+-- Hibernate резервирует диапазон (nextval - 50, nextval] и раздаёт id без обращений к БД,
+-- поэтому INSERT можно собирать в JDBC-пакеты.
+-- DEFAULT nextval(...) у столбцов снимается: значение, выданное напрямую из последовательности,
+-- совпало бы с верхней границей диапазона, уже выделенного приложению.
+-- Применяется при остановленном приложении.
+BEGIN;
+
+-- bank_transaction.id: GENERATED BY DEFAULT AS IDENTITY -> отдельная последовательность
+ALTER TABLE public.bank_transaction ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS public.bank_transaction_id_seq AS bigint INCREMENT BY 50;
+ALTER SEQUENCE public.bank_transaction_id_seq OWNED BY public.bank_transaction.id;
+SELECT setval('public.bank_transaction_id_seq',
+              (SELECT COALESCE(MAX(id), 0) + 50 FROM public.bank_transaction), false);
+
+-- bank_account.user_id: serial (integer) -> bigint с шагом 50
+ALTER TABLE public.bank_account ALTER COLUMN user_id DROP DEFAULT;
+ALTER SEQUENCE public.bank_account_user_id_seq AS bigint INCREMENT BY 50;
+SELECT setval('public.bank_account_user_id_seq',
+              (SELECT COALESCE(MAX(user_id), 0) + 50 FROM public.bank_account), false);
+
+COMMIT;
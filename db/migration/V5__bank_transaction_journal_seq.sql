@@ -0,0 +1,9 @@
+-- Номер записи локального журнала истории (bank.ledger.enabled=true).
+-- Строки, вставленные фоновой пакетной вставкой, несут номер своей записи журнала;
+-- при старте восстановление по нему находит записи, которые ещё не попали в таблицу.
+-- Строки, записанные напрямую, оставляют столбец пустым: уникальный индекс NULL не сравнивает.
+ALTER TABLE public.bank_transaction ADD COLUMN IF NOT EXISTS journal_seq bigint;
+
+-- CONCURRENTLY не блокирует запись в bank_transaction, но не может выполняться внутри транзакции.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_bank_transaction_journal_seq
+    ON public.bank_transaction (journal_seq);
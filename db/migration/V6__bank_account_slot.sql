@@ -0,0 +1,10 @@
+-- Доли баланса горячих счетов (bank.hot-accounts): зачисления расходятся по N строкам вместо одной
+-- строки bank_account. Баланс счёта = bank_account.balance + SUM(bank_account_slot.balance).
+-- Строки слотов создаёт приложение при старте для счетов из bank.hot-accounts.user-ids.
+CREATE TABLE IF NOT EXISTS public.bank_account_slot (
+    user_id bigint         NOT NULL REFERENCES public.bank_account (user_id),
+    slot    integer        NOT NULL,
+    balance numeric(38, 2) NOT NULL DEFAULT 0,
+    version bigint         NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, slot)
+);
@@ -0,0 +1,21 @@
+-- Снимки балансов по дням: одна строка на счёт и календарный день, в который у счёта были операции.
+-- Строит приложение (bank.snapshots), дни добавляются по порядку после их окончания.
+CREATE TABLE IF NOT EXISTS public.bank_balance_snapshot (
+    user_id         bigint         NOT NULL,
+    snapshot_date   date           NOT NULL,
+    opening_balance numeric(38, 2) NOT NULL,
+    closing_balance numeric(38, 2) NOT NULL,
+    credit_total    numeric(38, 2) NOT NULL,
+    debit_total     numeric(38, 2) NOT NULL,
+    operation_count bigint         NOT NULL,
+    PRIMARY KEY (user_id, snapshot_date)
+);
+
+-- Последний построенный день (max(snapshot_date)) при старте
+CREATE INDEX IF NOT EXISTS idx_bank_balance_snapshot_date
+    ON public.bank_balance_snapshot (snapshot_date);
+
+-- Задание читает строки одного дня по всем счетам. CONCURRENTLY не блокирует запись в bank_transaction,
+-- но не может выполняться внутри транзакции.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bank_transaction_ts_id
+    ON public.bank_transaction (timestamp, id);
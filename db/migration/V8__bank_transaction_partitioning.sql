@@ -0,0 +1,53 @@
+-- Помесячное секционирование bank_transaction по "timestamp" (RANGE).
+-- Запросы с условием на "timestamp" читают только секции нужных месяцев (partition pruning),
+-- а старые месяцы удаляются целиком (DROP секции) без DELETE и последующего VACUUM.
+-- Новые секции заранее создаёт приложение (bank.partitions.premake-months), архивирует старые -
+-- bank.partitions.retention-months. Секции по умолчанию нет: она мешала бы DETACH ... CONCURRENTLY.
+-- Требуется PostgreSQL 14+. Применяется при остановленном приложении: таблица переписывается целиком.
+BEGIN;
+
+ALTER TABLE public.bank_transaction RENAME TO bank_transaction_unpartitioned;
+-- Последовательность принадлежит столбцу старой таблицы и удалилась бы вместе с ней
+ALTER SEQUENCE public.bank_transaction_id_seq OWNED BY NONE;
+
+CREATE TABLE public.bank_transaction (
+    id              bigint                         NOT NULL,
+    amount          numeric(38, 2)                 NOT NULL,
+    balance_after   numeric(38, 2)                 NOT NULL,
+    "timestamp"     timestamp(6) without time zone NOT NULL,
+    type            character varying(255)         NOT NULL,
+    user_id         bigint                         NOT NULL,
+    related_user_id bigint,
+    journal_seq     bigint
+) PARTITION BY RANGE ("timestamp");
+
+-- Секции от месяца самой старой строки до двух месяцев вперёд
+DO $$
+DECLARE
+    month date := date_trunc('month', COALESCE((SELECT MIN("timestamp") FROM public.bank_transaction_unpartitioned), now()));
+    last  date := date_trunc('month', now()) + interval '2 month';
+BEGIN
+    WHILE month <= last LOOP
+        EXECUTE format('CREATE TABLE public.%I PARTITION OF public.bank_transaction FOR VALUES FROM (%L) TO (%L)',
+                       'bank_transaction_p' || to_char(month, 'YYYY_MM'), month, month + interval '1 month');
+        month := month + interval '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO public.bank_transaction (id, amount, balance_after, "timestamp", type, user_id, related_user_id, journal_seq)
+SELECT id, amount, balance_after, "timestamp", type, user_id, related_user_id, journal_seq
+FROM public.bank_transaction_unpartitioned;
+
+DROP TABLE public.bank_transaction_unpartitioned;
+ALTER SEQUENCE public.bank_transaction_id_seq OWNED BY public.bank_transaction.id;
+
+-- Индексы на родителе создаются в каждой секции, включая будущие.
+-- Первичный и уникальный ключи секционированной таблицы обязаны включать ключ секционирования
+ALTER TABLE public.bank_transaction ADD CONSTRAINT bank_transaction_pkey PRIMARY KEY (id, "timestamp");
+CREATE INDEX idx_bank_transaction_user_ts_id ON public.bank_transaction (user_id, "timestamp", id);
+CREATE INDEX idx_bank_transaction_ts_id ON public.bank_transaction ("timestamp", id);
+CREATE UNIQUE INDEX uk_bank_transaction_journal_seq ON public.bank_transaction (journal_seq, "timestamp");
+
+COMMIT;
+
+ANALYZE public.bank_transaction;
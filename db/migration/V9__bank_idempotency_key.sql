@@ -0,0 +1,15 @@
+-- Ключи идемпотентности пополнений, снятий и переводов (заголовок Idempotency-Key).
+-- Строка вставляется до исполнения запроса (захват ключа) и дополняется его ответом после;
+-- строка без completed_at - запрос исполняется. Ключи старше bank.idempotency.retention удаляет приложение.
+CREATE TABLE IF NOT EXISTS public.bank_idempotency_key (
+    idempotency_key     varchar(255)  NOT NULL PRIMARY KEY,
+    request_fingerprint varchar(512)  NOT NULL,
+    created_at          timestamp(6)  NOT NULL,
+    completed_at        timestamp(6),
+    http_status         integer,
+    status              integer,
+    message             varchar(1000)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bank_idempotency_key_created_at
+    ON public.bank_idempotency_key (created_at);
@@ -0,0 +1,146 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.BankApplication;
+import com.bankapi.config.BalanceCacheProperties;
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+import com.bankapi.service.BankService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the BankService hot paths against embedded H2, with the full Spring context.
+ * <p>
+ * Every benchmark thread works on random accounts out of {@code accountCount}; the history of a
+ * separate account holds {@code historyDepth} rows for {@link #getOperationList}. Thread count is
+ * the JMH {@code -t} option. Run with {@code mvn -Pjmh test-compile exec:exec}, see pom.xml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankServiceBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final int INSERT_CHUNK = 1_000;
+
+    @Param({"1000"})
+    private int accountCount;
+
+    @Param({"1000"})
+    private int historyDepth;
+
+    private ConfigurableApplicationContext context;
+    private BankService bankService;
+    private long[] accountIds;
+    private Long historyUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankApplication.class)
+                .profiles("test")
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.jpa.show-sql=false",
+                        "spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+        bankService = context.getBean(BankService.class);
+
+        BankAccountRepository accountRepository = context.getBean(BankAccountRepository.class);
+        TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+
+        List<BankAccount> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(new BankAccount(new BigDecimal("1000000000.00")));
+        }
+        accountIds = accountRepository.saveAll(accounts).stream().mapToLong(BankAccount::getUserId).toArray();
+
+        historyUserId = accountRepository.save(new BankAccount(BigDecimal.ZERO)).getUserId();
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        for (int from = 0; from < historyDepth; from += INSERT_CHUNK) {
+            List<Transaction> chunk = new ArrayList<>(INSERT_CHUNK);
+            for (int i = from; i < Math.min(historyDepth, from + INSERT_CHUNK); i++) {
+                chunk.add(new Transaction(historyUserId, AMOUNT, "DEPOSIT", start.plusSeconds(i), AMOUNT, null));
+            }
+            transactionRepository.saveAll(chunk);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Balance cache on/off; only {@link #getBalance} depends on it.
+     */
+    @State(Scope.Benchmark)
+    public static class CacheMode {
+
+        @Param({"true", "false"})
+        private boolean balanceCache;
+
+        @Setup(Level.Trial)
+        public void apply(BankServiceBenchmark benchmark) {
+            benchmark.context.getBean(BalanceCacheProperties.class).setEnabled(balanceCache);
+        }
+    }
+
+    private long randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    @Benchmark
+    public BigDecimal getBalance(CacheMode cacheMode) {
+        return bankService.getBalance(randomAccount());
+    }
+
+    @Benchmark
+    public int putMoney() {
+        return bankService.putMoney(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public int takeMoney() {
+        return bankService.takeMoney(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transferMoney() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(accountIds.length);
+        int receiver = (sender + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+        bankService.transferMoney(accountIds[sender], accountIds[receiver], AMOUNT);
+    }
+
+    @Benchmark
+    public List<Transaction> getOperationList() {
+        return bankService.getOperationList(historyUserId, null, null);
+    }
+}
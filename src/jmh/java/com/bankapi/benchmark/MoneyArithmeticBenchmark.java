@@ -0,0 +1,124 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.model.Money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The check-and-apply loop of a transfer group ({@code BankService.transferBatch}) on running balances held
+ * as {@link BigDecimal} vs {@link Money}: compare the sender's balance with the amount, subtract, add to
+ * the receiver. Amounts arrive as {@code BigDecimal} the way they come from a request; the {@code Money}
+ * variants convert each amount once and the balances never leave minor units ({@link #minorUnits} keeps them
+ * in a {@code long[]}, as {@code transferBatch} and the account engine do). Bytes allocated per group are
+ * reported by the GC profiler: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="-prof gc MoneyArithmeticBenchmark"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+    private static final int ACCOUNTS = 100;
+
+    @Param({"1000"})
+    private int transfers;
+
+    private int[] senders;
+    private int[] receivers;
+    private BigDecimal[] amounts;
+    private BigDecimal[] decimalBalances;
+    private Money[] moneyBalances;
+    private long[] minorBalances;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        senders = new int[transfers];
+        receivers = new int[transfers];
+        amounts = new BigDecimal[transfers];
+        for (int i = 0; i < transfers; i++) {
+            senders[i] = random.nextInt(ACCOUNTS);
+            receivers[i] = (senders[i] + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            amounts[i] = BigDecimal.valueOf(1 + random.nextInt(10_000), 2);
+        }
+    }
+
+    // Балансы каждой итерации начинаются заново, чтобы доля отказов не менялась со временем
+    @Setup(Level.Iteration)
+    public void resetBalances() {
+        decimalBalances = new BigDecimal[ACCOUNTS];
+        moneyBalances = new Money[ACCOUNTS];
+        minorBalances = new long[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            decimalBalances[i] = new BigDecimal("1000000.00");
+            moneyBalances[i] = Money.of(decimalBalances[i]);
+            minorBalances[i] = moneyBalances[i].minorUnits();
+        }
+    }
+
+    @Benchmark
+    public int bigDecimal() {
+        int applied = 0;
+        for (int i = 0; i < transfers; i++) {
+            BigDecimal amount = amounts[i];
+            BigDecimal sender = decimalBalances[senders[i]];
+            if (sender.compareTo(amount) < 0) {
+                continue;
+            }
+            decimalBalances[senders[i]] = sender.subtract(amount);
+            decimalBalances[receivers[i]] = decimalBalances[receivers[i]].add(amount);
+            applied++;
+        }
+        return applied;
+    }
+
+    @Benchmark
+    public int money() {
+        int applied = 0;
+        for (int i = 0; i < transfers; i++) {
+            Money amount = Money.of(amounts[i]);
+            Money sender = moneyBalances[senders[i]];
+            if (sender.isLessThan(amount)) {
+                continue;
+            }
+            moneyBalances[senders[i]] = sender.minus(amount);
+            moneyBalances[receivers[i]] = moneyBalances[receivers[i]].plus(amount);
+            applied++;
+        }
+        return applied;
+    }
+
+    // Балансы - примитивные long: Money суммы не покидает итерацию и не размещается в куче
+    @Benchmark
+    public int minorUnits() {
+        int applied = 0;
+        for (int i = 0; i < transfers; i++) {
+            long amount = Money.of(amounts[i]).minorUnits();
+            long sender = minorBalances[senders[i]];
+            if (sender < amount) {
+                continue;
+            }
+            minorBalances[senders[i]] = sender - amount;
+            minorBalances[receivers[i]] = Math.addExact(minorBalances[receivers[i]], amount);
+            applied++;
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,116 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.dto.BalanceResponse;
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.json.BankJsonModule;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the controller responses: a {@code HashMap} or record through the reflective Jackson
+ * serializers vs the typed records through {@link BankJsonModule}. Responses are written to a discarding
+ * stream the way the message converter writes to the servlet output. Bytes allocated per response are
+ * reported by the GC profiler: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="-prof gc ResponseSerializationBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    @Param({"100"})
+    private int pageSize;
+
+    private ObjectWriter reflective;
+    private ObjectWriter typed;
+    private BigDecimal balance;
+    private List<TransactionView> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Настройки как у ObjectMapper Spring Boot: даты строками ISO 8601.
+        // Поток, как и выход сервлета у конвертера сообщений, после записи не закрывается
+        JsonMapper reflectiveMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build();
+        reflective = reflectiveMapper.writer();
+        typed = reflectiveMapper.rebuild().addModule(new BankJsonModule()).build().writer();
+
+        balance = new BigDecimal("1048576.25");
+        page = new ArrayList<>(pageSize);
+        LocalDateTime start = LocalDateTime.of(2024, 4, 1, 12, 30, 0, 123_456_000);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new TransactionView((long) i, 42L, new BigDecimal("15.00"), i % 2 == 0 ? "DEPOSIT" : "TRANSFER_OUT",
+                    start.plusSeconds(i), new BigDecimal("1000.00").add(BigDecimal.valueOf(i)), i % 2 == 0 ? null : 7L));
+        }
+    }
+
+    @Benchmark
+    public void balanceMap() throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", 42L);
+        response.put("balance", balance);
+        reflective.writeValue(DISCARD, response);
+    }
+
+    @Benchmark
+    public void balanceRecord() throws IOException {
+        typed.writeValue(DISCARD, new BalanceResponse(42L, balance));
+    }
+
+    @Benchmark
+    public void statusMap() throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 1);
+        response.put("message", "successful");
+        reflective.writeValue(DISCARD, response);
+    }
+
+    @Benchmark
+    public void statusRecord() throws IOException {
+        typed.writeValue(DISCARD, StatusResponse.SUCCESSFUL);
+    }
+
+    @Benchmark
+    public void transactionsReflective() throws IOException {
+        reflective.writeValue(DISCARD, page);
+    }
+
+    @Benchmark
+    public void transactionsTyped() throws IOException {
+        typed.writeValue(DISCARD, page);
+    }
+}
@@ -3,7 +3,13 @@ package com.bankapi;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication
+// Под mvn -Preactive на classpath есть R2DBC: сервлетное приложение работает только через JPA
+@SpringBootApplication(excludeName = {
+        "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration",
+        "org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration"
+})
 public class BankApplication {
     public static void main(String[] args) {
         SpringApplication.run(BankApplication.class, args);
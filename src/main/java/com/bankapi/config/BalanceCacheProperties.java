@@ -0,0 +1,51 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.cache.balance")
+public class BalanceCacheProperties {
+
+    // false - getBalance всегда читает из БД
+    private boolean enabled = true;
+
+    // Максимальное число счетов в кэше (вытеснение по размеру, W-TinyLFU)
+    private long maximumSize = 100_000;
+
+    // Верхняя граница устаревания записи, если баланс изменили в обход этого экземпляра приложения
+    private Duration expireAfterWrite = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceCacheProperties{" +
+                "enabled=" + enabled +
+                ", maximumSize=" + maximumSize +
+                ", expireAfterWrite=" + expireAfterWrite +
+                '}';
+    }
+}
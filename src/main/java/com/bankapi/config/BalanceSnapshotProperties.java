@@ -0,0 +1,52 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.snapshots")
+public class BalanceSnapshotProperties {
+
+    // false - фоновое задание не запускается; запросы работают по уже построенным снимкам и строкам после них
+    private boolean enabled = true;
+
+    // Пауза между запусками задания; каждый запуск достраивает снимки за все закончившиеся дни
+    private Duration interval = Duration.ofMinutes(10);
+
+    // День снимается не раньше, чем через столько после полуночи: успевают вставиться строки,
+    // которые пишутся с задержкой (bank.ledger) или с меткой времени чуть раньше коммита
+    private Duration settleDelay = Duration.ofHours(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getSettleDelay() {
+        return settleDelay;
+    }
+
+    public void setSettleDelay(Duration settleDelay) {
+        this.settleDelay = settleDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceSnapshotProperties{" +
+                "enabled=" + enabled +
+                ", interval=" + interval +
+                ", settleDelay=" + settleDelay +
+                '}';
+    }
+}
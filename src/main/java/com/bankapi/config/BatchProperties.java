@@ -0,0 +1,37 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.batch")
+public class BatchProperties {
+
+    // Максимальное число переводов в одном запросе /transfer/batch
+    private int maxSize = 10_000;
+
+    // Сколько переводов применяется в одной транзакции БД
+    private int commitSize = 100;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getCommitSize() {
+        return commitSize;
+    }
+
+    public void setCommitSize(int commitSize) {
+        this.commitSize = commitSize;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchProperties{" +
+                "maxSize=" + maxSize +
+                ", commitSize=" + commitSize +
+                '}';
+    }
+}
@@ -0,0 +1,8 @@
+package com.bankapi.config;
+
+public enum ConcurrencyMode {
+    // Строки счетов блокируются SELECT ... FOR UPDATE на время транзакции
+    PESSIMISTIC,
+    // Блокировок нет, конфликт ловится по @Version и операция повторяется
+    OPTIMISTIC
+}
@@ -0,0 +1,90 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.concurrency")
+public class ConcurrencyProperties {
+
+    private ConcurrencyMode mode = ConcurrencyMode.PESSIMISTIC;
+
+    // putMoney/takeMoney одним условным UPDATE вместо чтения сущности и записи обратно
+    private boolean atomicUpdates = true;
+
+    // Количество полос внутрипроцессных блокировок (округляется вверх до степени двойки)
+    private int lockStripes = 1024;
+
+    private final Retry retry = new Retry();
+
+    public ConcurrencyMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ConcurrencyMode mode) {
+        this.mode = mode;
+    }
+
+    public boolean isAtomicUpdates() {
+        return atomicUpdates;
+    }
+
+    public void setAtomicUpdates(boolean atomicUpdates) {
+        this.atomicUpdates = atomicUpdates;
+    }
+
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    public void setLockStripes(int lockStripes) {
+        this.lockStripes = lockStripes;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public static class Retry {
+
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(5);
+        private Duration maxBackoff = Duration.ofMillis(200);
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyProperties{" +
+                "mode=" + mode +
+                ", atomicUpdates=" + atomicUpdates +
+                ", lockStripes=" + lockStripes +
+                ", retry.maxAttempts=" + retry.maxAttempts +
+                ", retry.initialBackoff=" + retry.initialBackoff +
+                ", retry.maxBackoff=" + retry.maxBackoff +
+                '}';
+    }
+}
@@ -0,0 +1,212 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Pool, JDBC driver and Hibernate settings of the data source described by {@link DataSourceProperties}.
+ * Defaults are the OLTP preset; profiles {@code pgbouncer} and {@code bulk} override them
+ * ({@code application-pgbouncer.properties}, {@code application-bulk.properties}).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "bank.datasource")
+public class DataSourceTuningProperties {
+
+    private final Pool pool = new Pool();
+    private final Statements statements = new Statements();
+    private final Hibernate hibernate = new Hibernate();
+
+    public static class Pool {
+
+        // connections = ядра_CPU_сервера_БД * 2 + число_дисков (для 4 ядер и SSD ~ 10)
+        private int maximumPoolSize = 10;
+
+        // Равен maximum-pool-size: фиксированный пул не открывает соединения под всплеском
+        private int minimumIdle = 10;
+
+        // Сколько запрос ждёт свободное соединение, прежде чем получить ошибку
+        private Duration connectionTimeout = Duration.ofSeconds(5);
+
+        // Соединение закрывается раньше, чем его оборвёт сеть или сервер
+        private Duration maxLifetime = Duration.ofMinutes(30);
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public int getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public void setMinimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public Duration getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        public void setMaxLifetime(Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool{" +
+                    "maximumPoolSize=" + maximumPoolSize +
+                    ", minimumIdle=" + minimumIdle +
+                    ", connectionTimeout=" + connectionTimeout +
+                    ", maxLifetime=" + maxLifetime +
+                    '}';
+        }
+    }
+
+    // Свойства драйвера PostgreSQL; к другим драйверам не применяются
+    public static class Statements {
+
+        // После стольких выполнений PreparedStatement драйвер переходит на серверный prepared statement; 0 - никогда
+        private int prepareThreshold = 5;
+
+        // Сколько разобранных запросов драйвер хранит на каждое соединение
+        private int preparedStatementCacheQueries = 256;
+
+        // Предел памяти этого кэша на соединение
+        private DataSize preparedStatementCacheSize = DataSize.ofMegabytes(5);
+
+        // Пакет INSERT отправляется одним многострочным INSERT вместо отдельного запроса на строку
+        private boolean reWriteBatchedInserts = true;
+
+        // Строк за одно обращение к серверу при чтении в транзакции (0 - весь результат сразу);
+        // также hibernate.jdbc.fetch_size
+        private int fetchSize = 100;
+
+        public int getPrepareThreshold() {
+            return prepareThreshold;
+        }
+
+        public void setPrepareThreshold(int prepareThreshold) {
+            this.prepareThreshold = prepareThreshold;
+        }
+
+        public int getPreparedStatementCacheQueries() {
+            return preparedStatementCacheQueries;
+        }
+
+        public void setPreparedStatementCacheQueries(int preparedStatementCacheQueries) {
+            this.preparedStatementCacheQueries = preparedStatementCacheQueries;
+        }
+
+        public DataSize getPreparedStatementCacheSize() {
+            return preparedStatementCacheSize;
+        }
+
+        public void setPreparedStatementCacheSize(DataSize preparedStatementCacheSize) {
+            this.preparedStatementCacheSize = preparedStatementCacheSize;
+        }
+
+        public boolean isReWriteBatchedInserts() {
+            return reWriteBatchedInserts;
+        }
+
+        public void setReWriteBatchedInserts(boolean reWriteBatchedInserts) {
+            this.reWriteBatchedInserts = reWriteBatchedInserts;
+        }
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public String toString() {
+            return "Statements{" +
+                    "prepareThreshold=" + prepareThreshold +
+                    ", preparedStatementCacheQueries=" + preparedStatementCacheQueries +
+                    ", preparedStatementCacheSize=" + preparedStatementCacheSize +
+                    ", reWriteBatchedInserts=" + reWriteBatchedInserts +
+                    ", fetchSize=" + fetchSize +
+                    '}';
+        }
+    }
+
+    public static class Hibernate {
+
+        // Строк в одном JDBC-пакете вставок истории и обновлений счетов
+        private int batchSize = 50;
+
+        // Вставки и обновления группируются по сущностям, иначе пакет рвётся на каждой смене таблицы
+        private boolean orderInserts = true;
+        private boolean orderUpdates = true;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public boolean isOrderInserts() {
+            return orderInserts;
+        }
+
+        public void setOrderInserts(boolean orderInserts) {
+            this.orderInserts = orderInserts;
+        }
+
+        public boolean isOrderUpdates() {
+            return orderUpdates;
+        }
+
+        public void setOrderUpdates(boolean orderUpdates) {
+            this.orderUpdates = orderUpdates;
+        }
+
+        @Override
+        public String toString() {
+            return "Hibernate{" +
+                    "batchSize=" + batchSize +
+                    ", orderInserts=" + orderInserts +
+                    ", orderUpdates=" + orderUpdates +
+                    '}';
+        }
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Statements getStatements() {
+        return statements;
+    }
+
+    public Hibernate getHibernate() {
+        return hibernate;
+    }
+
+    @Override
+    public String toString() {
+        return "DataSourceTuningProperties{" +
+                "pool=" + pool +
+                ", statements=" + statements +
+                ", hibernate=" + hibernate +
+                '}';
+    }
+}
@@ -0,0 +1,112 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.engine")
+public class EngineProperties {
+
+    // true - балансы в памяти, изменения применяет один поток и пишет в журнал; БД - асинхронная проекция журнала
+    private boolean enabled = false;
+
+    // Каталог сегментов журнала команд; должен быть на локальном диске и принадлежать одному экземпляру приложения
+    private String directory = "engine";
+
+    // Размер одного отображаемого в память сегмента
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // false - ответ не ждёт fsync журнала: изменения переживают падение процесса, но не ОС
+    private boolean fsync = true;
+
+    // Ёмкость кольцевого буфера команд (округляется вверх до степени двойки); полный буфер тормозит вызывающих
+    private int ringSize = 65_536;
+
+    // Сколько событий журнала проекция применяет к БД в одной транзакции
+    private int projectionBatchSize = 1000;
+
+    // Сколько проекция ждёт новых событий, прежде чем применить неполный пакет
+    private Duration projectionFlushInterval = Duration.ofMillis(50);
+
+    // Сколько вызывающий ждёт ответа движка; по истечении получает ошибку, хотя команда ещё может быть применена
+    private Duration commandTimeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
+    public int getProjectionBatchSize() {
+        return projectionBatchSize;
+    }
+
+    public void setProjectionBatchSize(int projectionBatchSize) {
+        this.projectionBatchSize = projectionBatchSize;
+    }
+
+    public Duration getProjectionFlushInterval() {
+        return projectionFlushInterval;
+    }
+
+    public void setProjectionFlushInterval(Duration projectionFlushInterval) {
+        this.projectionFlushInterval = projectionFlushInterval;
+    }
+
+    public Duration getCommandTimeout() {
+        return commandTimeout;
+    }
+
+    public void setCommandTimeout(Duration commandTimeout) {
+        this.commandTimeout = commandTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return "EngineProperties{" +
+                "enabled=" + enabled +
+                ", directory='" + directory + '\'' +
+                ", segmentSize=" + segmentSize +
+                ", fsync=" + fsync +
+                ", ringSize=" + ringSize +
+                ", projectionBatchSize=" + projectionBatchSize +
+                ", projectionFlushInterval=" + projectionFlushInterval +
+                ", commandTimeout=" + commandTimeout +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.group-commit")
+public class GroupCommitProperties {
+
+    // true - putMoney/takeMoney (при atomic-updates) копятся в очереди и применяются общей транзакцией
+    private boolean enabled = false;
+
+    // Сколько операций попадает в одну транзакцию
+    private int maxBatchSize = 64;
+
+    // Потолок ожидания в очереди: неполная группа коммитится, когда с первой операции прошло столько времени
+    private Duration maxDelay = Duration.ofMillis(2);
+
+    // Вызывающие потоки блокируются, если в очереди столько операций
+    private int queueCapacity = 10_000;
+
+    // Сколько операция может простоять в очереди; не забранная за это время снимается с ошибкой и не применяется,
+    // а уже забранная в группу дожидается исхода своей транзакции
+    private Duration resultTimeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getResultTimeout() {
+        return resultTimeout;
+    }
+
+    public void setResultTimeout(Duration resultTimeout) {
+        this.resultTimeout = resultTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupCommitProperties{" +
+                "enabled=" + enabled +
+                ", maxBatchSize=" + maxBatchSize +
+                ", maxDelay=" + maxDelay +
+                ", queueCapacity=" + queueCapacity +
+                ", resultTimeout=" + resultTimeout +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.history")
+public class HistoryProperties {
+
+    // Размер страницы истории, если клиент не передал limit
+    private int defaultPageSize = 100;
+
+    // Верхняя граница limit: большие значения молча урезаются до неё
+    private int maxPageSize = 500;
+
+    public int getDefaultPageSize() {
+        return defaultPageSize;
+    }
+
+    public void setDefaultPageSize(int defaultPageSize) {
+        this.defaultPageSize = defaultPageSize;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryProperties{" +
+                "defaultPageSize=" + defaultPageSize +
+                ", maxPageSize=" + maxPageSize +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+@Configuration
+@ConfigurationProperties(prefix = "bank.hot-accounts")
+public class HotAccountProperties {
+
+    // Счета с разделённым балансом; зачисления на них не блокируют строку bank_account
+    private Set<Long> userIds = new LinkedHashSet<>();
+
+    // Число слотов на горячий счёт; столько зачислений могут идти параллельно без ожидания блокировки
+    private int slots = 16;
+
+    public Set<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(Set<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+
+    @Override
+    public String toString() {
+        return "HotAccountProperties{" +
+                "userIds=" + userIds +
+                ", slots=" + slots +
+                '}';
+    }
+}
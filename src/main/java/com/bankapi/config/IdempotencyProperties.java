@@ -0,0 +1,87 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.idempotency")
+public class IdempotencyProperties {
+
+    // false - заголовок Idempotency-Key игнорируется, каждый запрос исполняется
+    private boolean enabled = true;
+
+    // Длина ключа ограничена размером колонки bank_idempotency_key.idempotency_key
+    private int maxKeyLength = 255;
+
+    // Локальный кэш исполняемых и завершённых запросов: размер и время жизни записи.
+    // После вытеснения повтор отвечает по таблице bank_idempotency_key
+    private long cacheMaximumSize = 100_000;
+
+    private Duration cacheExpireAfterWrite = Duration.ofMinutes(10);
+
+    // Сколько хранится ключ в таблице: повтор позже этого срока исполняется заново
+    private Duration retention = Duration.ofHours(24);
+
+    // Пауза между удалениями ключей старше retention
+    private Duration cleanupInterval = Duration.ofHours(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    public void setMaxKeyLength(int maxKeyLength) {
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    public long getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public void setCacheMaximumSize(long cacheMaximumSize) {
+        this.cacheMaximumSize = cacheMaximumSize;
+    }
+
+    public Duration getCacheExpireAfterWrite() {
+        return cacheExpireAfterWrite;
+    }
+
+    public void setCacheExpireAfterWrite(Duration cacheExpireAfterWrite) {
+        this.cacheExpireAfterWrite = cacheExpireAfterWrite;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public Duration getCleanupInterval() {
+        return cleanupInterval;
+    }
+
+    public void setCleanupInterval(Duration cleanupInterval) {
+        this.cleanupInterval = cleanupInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyProperties{" +
+                "enabled=" + enabled +
+                ", maxKeyLength=" + maxKeyLength +
+                ", cacheMaximumSize=" + cacheMaximumSize +
+                ", cacheExpireAfterWrite=" + cacheExpireAfterWrite +
+                ", retention=" + retention +
+                ", cleanupInterval=" + cleanupInterval +
+                '}';
+    }
+}
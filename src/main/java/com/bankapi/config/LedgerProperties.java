@@ -0,0 +1,88 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.ledger")
+public class LedgerProperties {
+
+    // true - история пишется в локальный журнал до коммита, а в bank_transaction - фоновой пакетной вставкой
+    private boolean enabled = false;
+
+    // Каталог сегментов журнала; должен быть на локальном диске и принадлежать одному экземпляру приложения
+    private String directory = "ledger";
+
+    // Размер одного отображаемого в память сегмента
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // false - записи журнала не сбрасываются на диск (fsync), переживают падение процесса, но не ОС
+    private boolean fsync = true;
+
+    // Сколько строк истории вставляется в одной транзакции фоновой вставки
+    private int batchSize = 1000;
+
+    // Сколько фоновая вставка ждёт новых записей, прежде чем вставить неполный пакет
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerProperties{" +
+                "enabled=" + enabled +
+                ", directory='" + directory + '\'' +
+                ", segmentSize=" + segmentSize +
+                ", fsync=" + fsync +
+                ", batchSize=" + batchSize +
+                ", flushInterval=" + flushInterval +
+                '}';
+    }
+}
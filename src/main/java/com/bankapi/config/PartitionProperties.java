@@ -0,0 +1,75 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.partitions")
+public class PartitionProperties {
+
+    // Обслуживание помесячных секций bank_transaction (только PostgreSQL после V8, иначе задание не запускается)
+    private boolean enabled = true;
+
+    // Пауза между запусками задания
+    private Duration interval = Duration.ofHours(1);
+
+    // Сколько месяцев вперёд от текущего держать созданными: вставка в месяц без секции завершилась бы ошибкой
+    private int premakeMonths = 3;
+
+    // Секции старше стольких полных месяцев выгружаются в архив и удаляются; 0 - хранить всё
+    private int retentionMonths = 0;
+
+    // Каталог архивов bank_transaction_pYYYY_MM.csv.gz
+    private String archiveDirectory = "archive";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public int getPremakeMonths() {
+        return premakeMonths;
+    }
+
+    public void setPremakeMonths(int premakeMonths) {
+        this.premakeMonths = premakeMonths;
+    }
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public void setRetentionMonths(int retentionMonths) {
+        this.retentionMonths = retentionMonths;
+    }
+
+    public String getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    public void setArchiveDirectory(String archiveDirectory) {
+        this.archiveDirectory = archiveDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionProperties{" +
+                "enabled=" + enabled +
+                ", interval=" + interval +
+                ", premakeMonths=" + premakeMonths +
+                ", retentionMonths=" + retentionMonths +
+                ", archiveDirectory='" + archiveDirectory + '\'' +
+                '}';
+    }
+}
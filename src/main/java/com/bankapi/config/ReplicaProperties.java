@@ -0,0 +1,139 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+@Configuration
+@ConfigurationProperties(prefix = "bank.replicas")
+public class ReplicaProperties {
+
+    // true - чтения в транзакциях readOnly (баланс, история) идут на реплики из instances
+    private boolean enabled = false;
+
+    // Реплики (streaming replication); драйвер берётся из spring.datasource.driver-class-name
+    private List<Instance> instances = new ArrayList<>();
+
+    // Пул соединений каждой реплики
+    private int maximumPoolSize = 10;
+
+    // Реплика, отставшая от основной БД больше чем на max-lag, не получает чтений
+    private Duration maxLag = Duration.ofSeconds(1);
+
+    // Как часто сравниваются позиции журнала основной БД и реплик
+    private Duration checkInterval = Duration.ofMillis(100);
+
+    // Позиция журнала основной БД в байтах
+    private String primaryPositionQuery = "SELECT pg_current_wal_lsn() - '0/0'::pg_lsn";
+
+    // Позиция, до которой реплика применила журнал; NULL - не реплика (например, повышена до основной)
+    private String replicaPositionQuery = "SELECT pg_last_wal_replay_lsn() - '0/0'::pg_lsn";
+
+    public static class Instance {
+
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        @Override
+        public String toString() {
+            return "Instance{" +
+                    "url='" + url + '\'' +
+                    ", username='" + username + '\'' +
+                    ", password='[PROTECTED]'" +
+                    '}';
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Instance> getInstances() {
+        return instances;
+    }
+
+    public void setInstances(List<Instance> instances) {
+        this.instances = instances;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getCheckInterval() {
+        return checkInterval;
+    }
+
+    public void setCheckInterval(Duration checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public String getPrimaryPositionQuery() {
+        return primaryPositionQuery;
+    }
+
+    public void setPrimaryPositionQuery(String primaryPositionQuery) {
+        this.primaryPositionQuery = primaryPositionQuery;
+    }
+
+    public String getReplicaPositionQuery() {
+        return replicaPositionQuery;
+    }
+
+    public void setReplicaPositionQuery(String replicaPositionQuery) {
+        this.replicaPositionQuery = replicaPositionQuery;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaProperties{" +
+                "enabled=" + enabled +
+                ", instances=" + instances +
+                ", maximumPoolSize=" + maximumPoolSize +
+                ", maxLag=" + maxLag +
+                ", checkInterval=" + checkInterval +
+                '}';
+    }
+}
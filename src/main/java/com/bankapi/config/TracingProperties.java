@@ -0,0 +1,49 @@
+package com.bankapi.config;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+@Configuration
+@ConfigurationProperties(prefix = "bank.tracing")
+public class TracingProperties {
+
+    // Структурные события трассировки (логгер com.bankapi.trace); меняется на лету через /actuator/tracing
+    private volatile boolean enabled = false;
+
+    // Доля операций, попадающих в трассировку, от 0.0 до 1.0
+    private volatile double sampleRate = 0.01;
+
+    // Таймеры фаз bank.operation.phase; false - на операцию остаётся только счётчик исходов bank.operations
+    private volatile boolean phaseTimers = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+    }
+
+    public boolean isPhaseTimers() {
+        return phaseTimers;
+    }
+
+    public void setPhaseTimers(boolean phaseTimers) {
+        this.phaseTimers = phaseTimers;
+    }
+
+    @Override
+    public String toString() {
+        return "TracingProperties{" +
+                "enabled=" + enabled +
+                ", sampleRate=" + sampleRate +
+                ", phaseTimers=" + phaseTimers +
+                '}';
+    }
+}
@@ -1,128 +1,253 @@
 package com.bankapi.controller;
 
-import com.bankapi.model.Transaction;
 import com.bankapi.service.BankService;
+import com.bankapi.service.IdempotencyService;
+import com.bankapi.dto.BalanceAtResponse;
+import com.bankapi.dto.BalanceResponse;
+import com.bankapi.dto.BalanceSummary;
+import com.bankapi.dto.BatchTransferResponse;
+import com.bankapi.dto.OperationPage;
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.dto.TransactionView;
 import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.exception.BatchTooLargeException;
+import com.bankapi.exception.IdempotencyConflictException;
+import com.bankapi.exception.IdempotencyKeyReuseException;
+import com.bankapi.exception.InvalidIdempotencyKeyException;
+import com.bankapi.exception.InvalidCursorException;
+import com.bankapi.exception.InvalidPeriodException;
+import com.bankapi.exception.UnsupportedFormatException;
 import com.bankapi.exception.UserNotFoundException;
 import com.bankapi.exception.InsufficientFundsException;
 import com.bankapi.exception.InvalidAmountException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 // import java.util.Collections;
-import java.util.HashMap; // Импорт
 import java.util.List;
-import java.util.Map; // Импорт
+import java.util.function.Supplier;
 // import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/bank")
 public class BankController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    // Ответы без переменной части создаются один раз
+    private static final StatusResponse USER_NOT_FOUND = StatusResponse.failure("Not found user");
+    private static final StatusResponse CONCURRENT_UPDATE = StatusResponse.failure("Concurrent update, please retry");
+
     @Autowired
     private BankService bankService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     @GetMapping("/balance/{userId}")
-    public ResponseEntity<Map<String, Object>> getBalance(@PathVariable Long userId) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<?> getBalance(@PathVariable Long userId) {
         BigDecimal balance = bankService.getBalance(userId);
 
         if (balance == null) {
-            response.put("status", 0);
-            response.put("message", "Not found user");
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(USER_NOT_FOUND);
         } else {
-            response.put("userId", userId);
-            response.put("balance", balance);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(new BalanceResponse(userId, balance));
         }
     }
 
+    // Баланс после всех операций строго раньше timestamp
+    @GetMapping("/balance/{userId}/at")
+    public ResponseEntity<BalanceAtResponse> getBalanceAt(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime timestamp) {
+        return ResponseEntity.ok(new BalanceAtResponse(userId, timestamp, bankService.getBalanceAt(userId, timestamp)));
+    }
+
     @PostMapping("/deposit")
-    public ResponseEntity<Map<String, Object>> putMoney(@RequestParam Long userId, @RequestParam BigDecimal amount) {
-        Map<String, Object> response = new HashMap<>();
-        int result = bankService.putMoney(userId, amount);
-
-        if (result == 1) {
-            response.put("status", 1);
-            response.put("message", "successful");
-            return ResponseEntity.ok(response);
-        } else {
-            response.put("status", 0);
-            response.put("message", "fail");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+    public ResponseEntity<StatusResponse> putMoney(@RequestParam Long userId, @RequestParam BigDecimal amount,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, IdempotencyService.fingerprint("deposit", userId, amount), () -> {
+            int result = bankService.putMoney(userId, amount);
+
+            if (result == 1) {
+                return ResponseEntity.ok(StatusResponse.SUCCESSFUL);
+            } else {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.FAIL);
+            }
+        });
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<Map<String, Object>> takeMoney(@RequestParam Long userId, @RequestParam BigDecimal amount) {
-        Map<String, Object> response = new HashMap<>();
-        int result = bankService.takeMoney(userId, amount);
-
-        if (result == 1) {
-            response.put("status", 1);
-            response.put("message", "successful");
-            return ResponseEntity.ok(response);
-        } else {
-            response.put("status", 0);
-            response.put("message", "fail");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+    public ResponseEntity<StatusResponse> takeMoney(@RequestParam Long userId, @RequestParam BigDecimal amount,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, IdempotencyService.fingerprint("withdraw", userId, amount), () -> {
+            int result = bankService.takeMoney(userId, amount);
+
+            if (result == 1) {
+                return ResponseEntity.ok(StatusResponse.SUCCESSFUL);
+            } else {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.FAIL);
+            }
+        });
     }
 
     @GetMapping("/transactions/{userId}")
-    public List<Transaction> getTransactions(
+    public ResponseEntity<List<TransactionView>> getTransactions(
             @PathVariable Long userId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        OperationPage page = bankService.getOperationPage(userId, startDate, endDate, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    @GetMapping("/transactions/{userId}/summary")
+    public ResponseEntity<BalanceSummary> getPeriodSummary(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(bankService.getPeriodSummary(userId, from, to));
+    }
+
+    @GetMapping("/transactions/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        TransactionExportWriter.Format exportFormat = TransactionExportWriter.Format.fromParameter(format);
+        if (exportFormat == null) {
+            throw new UnsupportedFormatException("Unsupported export format: " + format);
+        }
 
-        return bankService.getOperationList(userId, startDate, endDate);
+        // Тело пишется в отдельном потоке по мере чтения строк из БД, ответ целиком в памяти не собирается
+        StreamingResponseBody body = output -> {
+            try (TransactionExportWriter writer = new TransactionExportWriter(exportFormat, output, objectMapper)) {
+                bankService.exportOperations(userId, startDate, endDate, writer);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + TransactionExportWriter.fileName(userId, exportFormat) + "\"")
+                .body(body);
     }
 
 
     @PostMapping("/transfer")
-    public ResponseEntity<Map<String, Object>> transfer(@RequestBody TransferRequest request) {
+    public ResponseEntity<StatusResponse> transfer(@RequestBody TransferRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+
+        String fingerprint = IdempotencyService.fingerprint("transfer",
+                request.getSenderId(), request.getReceiverId(), request.getAmount());
+        return idempotent(idempotencyKey, fingerprint, () -> {
+            bankService.transferMoney(request.getSenderId(), request.getReceiverId(), request.getAmount());
+
+            return ResponseEntity.ok(StatusResponse.SUCCESSFUL);
+        });
+    }
 
-        bankService.transferMoney(request.getSenderId(), request.getReceiverId(), request.getAmount());
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@RequestBody List<TransferRequest> requests) {
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", 1);
-        response.put("message", "successful");
+        List<TransferResult> results = bankService.transferBatch(requests);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(BatchTransferResponse.of(results));
     }
 
+    // Отказ по бизнес-правилу - такой же результат запроса, как успех: под ключом идемпотентности
+    // сохраняется и повторяется. Прочие исключения освобождают ключ и уходят в обработчики ниже
+    private ResponseEntity<StatusResponse> idempotent(String idempotencyKey, String fingerprint,
+                                                      Supplier<ResponseEntity<StatusResponse>> operation) {
+        return idempotencyService.execute(idempotencyKey, fingerprint, () -> {
+            try {
+                return operation.get();
+            } catch (UserNotFoundException ex) {
+                return handleUserNotFoundException(ex);
+            } catch (InsufficientFundsException ex) {
+                return handleInsufficientFundsException(ex);
+            } catch (InvalidAmountException ex) {
+                return handleInvalidAmountException(ex);
+            }
+        });
+    }
 
     @ExceptionHandler(UserNotFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleUserNotFoundException(UserNotFoundException ex) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", 0);
-        response.put("message", ex.getMessage());
-
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    public ResponseEntity<StatusResponse> handleUserNotFoundException(UserNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(StatusResponse.failure(ex.getMessage()));
     }
 
     @ExceptionHandler(InsufficientFundsException.class)
-    public ResponseEntity<Map<String, Object>> handleInsufficientFundsException(InsufficientFundsException ex) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", 0);
-        response.put("message", ex.getMessage());
-
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    public ResponseEntity<StatusResponse> handleInsufficientFundsException(InsufficientFundsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
     }
 
     @ExceptionHandler(InvalidAmountException.class)
-    public ResponseEntity<Map<String, Object>> handleInvalidAmountException(InvalidAmountException ex) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", 0);
-        response.put("message", ex.getMessage());
+    public ResponseEntity<StatusResponse> handleInvalidAmountException(InvalidAmountException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StatusResponse> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidPeriodException.class)
+    public ResponseEntity<StatusResponse> handleInvalidPeriodException(InvalidPeriodException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(UnsupportedFormatException.class)
+    public ResponseEntity<StatusResponse> handleUnsupportedFormatException(UnsupportedFormatException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<StatusResponse> handleBatchTooLargeException(BatchTooLargeException ex) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<StatusResponse> handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<StatusResponse> handleIdempotencyKeyReuseException(IdempotencyKeyReuseException ex) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<StatusResponse> handleIdempotencyConflictException(IdempotencyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(StatusResponse.failure(ex.getMessage()));
+    }
 
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<StatusResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(CONCURRENT_UPDATE);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.bankapi.controller;
+
+import com.bankapi.dto.TransactionView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes exported history rows straight to the response stream, one row at a time.
+ * Output is flushed every {@link #FLUSH_EVERY} rows so the client starts receiving data immediately.
+ */
+class TransactionExportWriter implements Consumer<TransactionView>, AutoCloseable {
+
+    enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        final String contentType;
+        final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        static Format fromParameter(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final int FLUSH_EVERY = 1000;
+    private static final String CSV_HEADER = "id,userId,amount,type,timestamp,balanceAfter,relatedUserId\n";
+
+    private final Format format;
+    private final Writer writer;
+    private final JsonGenerator generator;
+    private int pending;
+
+    TransactionExportWriter(Format format, OutputStream output, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.NDJSON) {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+        } else {
+            this.generator = null;
+            writer.write(CSV_HEADER);
+        }
+    }
+
+    @Override
+    public void accept(TransactionView transaction) {
+        try {
+            if (format == Format.NDJSON) {
+                generator.writeObject(transaction);
+                generator.writeRaw('\n');
+            } else {
+                writeCsvRow(transaction);
+            }
+            if (++pending == FLUSH_EVERY) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(TransactionView transaction) throws IOException {
+        writer.write(String.valueOf(transaction.id()));
+        writer.write(',');
+        writer.write(String.valueOf(transaction.userId()));
+        writer.write(',');
+        writer.write(transaction.amount().toPlainString());
+        writer.write(',');
+        writer.write(csvField(transaction.type()));
+        writer.write(',');
+        writer.write(transaction.timestamp().toString());
+        writer.write(',');
+        writer.write(transaction.balanceAfter().toPlainString());
+        writer.write(',');
+        if (transaction.relatedUserId() != null) {
+            writer.write(String.valueOf(transaction.relatedUserId()));
+        }
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+        pending = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    static String fileName(Long userId, Format format) {
+        return "transactions-" + userId + "." + format.extension;
+    }
+}
@@ -0,0 +1,71 @@
+package com.bankapi.datasource;
+
+import com.bankapi.config.DataSourceProperties;
+import com.bankapi.config.DataSourceTuningProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The primary connection pool, built from {@link DataSourceProperties} and tuned by
+ * {@link DataSourceTuningProperties}: pool sizing, PostgreSQL driver statement settings and Hibernate
+ * batching. {@code spring.datasource.hikari.*} is still bound on top, so any Hikari setting can be
+ * overridden there; {@link DataSourceReport} logs what is in effect.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, DataSourceTuningProperties tuning) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .driverClassName(properties.getDriverClassName())
+                .build();
+        dataSource.setPoolName("primary");
+        DataSourceTuningProperties.Pool pool = tuning.getPool();
+        dataSource.setMaximumPoolSize(pool.getMaximumPoolSize());
+        dataSource.setMinimumIdle(pool.getMinimumIdle());
+        dataSource.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+        dataSource.setMaxLifetime(pool.getMaxLifetime().toMillis());
+        applyStatementSettings(dataSource, tuning.getStatements());
+        return dataSource;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateTuning(DataSourceTuningProperties tuning) {
+        // Выполняется после spring.jpa.properties.*: типизированные значения главнее
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, tuning.getHibernate().getBatchSize());
+            properties.put(AvailableSettings.ORDER_INSERTS, tuning.getHibernate().isOrderInserts());
+            properties.put(AvailableSettings.ORDER_UPDATES, tuning.getHibernate().isOrderUpdates());
+            properties.put(AvailableSettings.STATEMENT_FETCH_SIZE, tuning.getStatements().getFetchSize());
+        };
+    }
+
+    /**
+     * Passes the statement settings to the PostgreSQL driver of the pool; other drivers
+     * (H2 in tests) reject unknown connection properties and get none.
+     */
+    public static void applyStatementSettings(HikariDataSource dataSource, DataSourceTuningProperties.Statements statements) {
+        if (!isPostgres(dataSource)) {
+            return;
+        }
+        dataSource.addDataSourceProperty("prepareThreshold", statements.getPrepareThreshold());
+        dataSource.addDataSourceProperty("preparedStatementCacheQueries", statements.getPreparedStatementCacheQueries());
+        dataSource.addDataSourceProperty("preparedStatementCacheSizeMiB", statements.getPreparedStatementCacheSize().toMegabytes());
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", statements.isReWriteBatchedInserts());
+        dataSource.addDataSourceProperty("defaultRowFetchSize", statements.getFetchSize());
+    }
+
+    static boolean isPostgres(HikariDataSource dataSource) {
+        return dataSource.getJdbcUrl() != null && dataSource.getJdbcUrl().startsWith("jdbc:postgresql:");
+    }
+}
@@ -0,0 +1,76 @@
+package com.bankapi.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Logs the data source settings in effect once the application is ready: the pool as configured after
+ * {@code spring.datasource.hikari.*} binding, the properties passed to the JDBC driver and the batching
+ * settings Hibernate was built with. Values come from the pool and the {@link EntityManagerFactory}
+ * themselves, not from configuration, so overrides from any source show up.
+ */
+@Component
+public class DataSourceReport {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceReport.class);
+    // Настройка и значение Hibernate, когда она не задана (show_sql=false в свойствах не попадает вовсе)
+    private static final Map<String, Object> HIBERNATE_SETTINGS = new LinkedHashMap<>();
+
+    static {
+        HIBERNATE_SETTINGS.put(AvailableSettings.STATEMENT_BATCH_SIZE, "off");
+        HIBERNATE_SETTINGS.put(AvailableSettings.ORDER_INSERTS, false);
+        HIBERNATE_SETTINGS.put(AvailableSettings.ORDER_UPDATES, false);
+        HIBERNATE_SETTINGS.put(AvailableSettings.STATEMENT_FETCH_SIZE, "driver default");
+        HIBERNATE_SETTINGS.put(AvailableSettings.SHOW_SQL, false);
+    }
+
+    private final HikariDataSource primaryDataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Environment environment;
+
+    public DataSourceReport(HikariDataSource primaryDataSource, EntityManagerFactory entityManagerFactory,
+                            Environment environment) {
+        this.primaryDataSource = primaryDataSource;
+        this.entityManagerFactory = entityManagerFactory;
+        this.environment = environment;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        log.info(describe());
+    }
+
+    public String describe() {
+        HikariDataSource pool = primaryDataSource;
+        StringBuilder report = new StringBuilder("Data source (profiles ")
+                .append(Arrays.toString(environment.getActiveProfiles())).append("): ").append(pool.getJdbcUrl())
+                .append("\n  pool ").append(pool.getPoolName())
+                .append(": maximumPoolSize=").append(pool.getMaximumPoolSize())
+                .append(", minimumIdle=").append(pool.getMinimumIdle())
+                .append(", connectionTimeout=").append(Duration.ofMillis(pool.getConnectionTimeout()))
+                .append(", maxLifetime=").append(Duration.ofMillis(pool.getMaxLifetime()))
+                .append("\n  driver: ");
+        // Пустой набор у PostgreSQL означает значения драйвера по умолчанию
+        report.append(DataSourceConfiguration.isPostgres(pool)
+                ? pool.getDataSourceProperties()
+                : "statement settings not applied (not PostgreSQL)");
+
+        Map<String, Object> properties = entityManagerFactory.getProperties();
+        report.append("\n  hibernate:");
+        HIBERNATE_SETTINGS.forEach((setting, unset) ->
+                report.append(' ').append(setting).append('=').append(properties.getOrDefault(setting, unset)));
+        return report.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package com.bankapi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Ответ GET /balance/{userId}/at: баланс после всех операций строго раньше timestamp
+public record BalanceAtResponse(Long userId, LocalDateTime timestamp, BigDecimal balance) {
+}
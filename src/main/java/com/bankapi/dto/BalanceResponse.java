@@ -0,0 +1,7 @@
+package com.bankapi.dto;
+
+import java.math.BigDecimal;
+
+// Ответ GET /balance/{userId}; сериализуется BankJsonModule без рефлексии
+public record BalanceResponse(Long userId, BigDecimal balance) {
+}
@@ -0,0 +1,16 @@
+package com.bankapi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Итоги счёта за дни from..to включительно: closingBalance = openingBalance + creditTotal - debitTotal
+public record BalanceSummary(Long userId, LocalDate from, LocalDate to, BigDecimal openingBalance,
+                             BigDecimal closingBalance, BigDecimal creditTotal, BigDecimal debitTotal,
+                             long operationCount) {
+
+    public static BalanceSummary of(Long userId, LocalDate from, LocalDate to, BigDecimal openingBalance, PeriodTotals totals) {
+        BigDecimal closingBalance = openingBalance.add(totals.creditTotal()).subtract(totals.debitTotal());
+        return new BalanceSummary(userId, from, to, openingBalance, closingBalance,
+                totals.creditTotal(), totals.debitTotal(), totals.operationCount());
+    }
+}
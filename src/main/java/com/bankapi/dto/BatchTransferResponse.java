@@ -0,0 +1,12 @@
+package com.bankapi.dto;
+
+import java.util.List;
+
+// Ответ POST /transfer/batch: итоги пакета и результат каждого перевода в порядке запроса
+public record BatchTransferResponse(int status, long succeeded, long failed, List<TransferResult> results) {
+
+    public static BatchTransferResponse of(List<TransferResult> results) {
+        long succeeded = results.stream().filter(result -> result.status() == 1).count();
+        return new BatchTransferResponse(1, succeeded, results.size() - succeeded, results);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bankapi.dto;
+
+import com.bankapi.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in an account's history: the (timestamp, id) of the last row a client has seen.
+ * Travels as an opaque URL-safe token, e.g. in the {@code X-Next-Cursor} response header.
+ */
+public record OperationCursor(LocalDateTime timestamp, Long id) {
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OperationCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new InvalidCursorException("Malformed cursor: " + token);
+            }
+            return new OperationCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Malformed cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.bankapi.dto;
+
+import java.util.List;
+
+// nextCursor == null - это последняя страница
+public record OperationPage(List<TransactionView> items, String nextCursor) {
+}
@@ -0,0 +1,21 @@
+package com.bankapi.dto;
+
+import java.math.BigDecimal;
+
+// Обороты счёта за период: из снимков по дням или из строк bank_transaction
+public record PeriodTotals(BigDecimal creditTotal, BigDecimal debitTotal, long operationCount) {
+
+    public static final PeriodTotals EMPTY = new PeriodTotals(BigDecimal.ZERO, BigDecimal.ZERO, 0);
+
+    // Конструктор для JPQL "select new": SUM по пустому набору строк возвращает NULL
+    public PeriodTotals(BigDecimal creditTotal, BigDecimal debitTotal, Long operationCount) {
+        this(creditTotal != null ? creditTotal : BigDecimal.ZERO,
+                debitTotal != null ? debitTotal : BigDecimal.ZERO,
+                operationCount != null ? operationCount.longValue() : 0L);
+    }
+
+    public PeriodTotals plus(PeriodTotals other) {
+        return new PeriodTotals(creditTotal.add(other.creditTotal), debitTotal.add(other.debitTotal),
+                operationCount + other.operationCount);
+    }
+}
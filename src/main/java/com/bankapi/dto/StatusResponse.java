@@ -0,0 +1,13 @@
+package com.bankapi.dto;
+
+// Ответ операций и ошибок: status 1 - успех, 0 - отказ (причина в message).
+// Неизменяемые ответы успеха и отказа создаются один раз и отдаются всем запросам
+public record StatusResponse(int status, String message) {
+
+    public static final StatusResponse SUCCESSFUL = new StatusResponse(1, "successful");
+    public static final StatusResponse FAIL = new StatusResponse(0, "fail");
+
+    public static StatusResponse failure(String message) {
+        return new StatusResponse(0, message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bankapi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Строка истории для чтения: собирается JPQL "select new" без управляемой сущности Transaction.
+// Имена компонентов совпадают со свойствами Transaction, поэтому JSON ответа не меняется
+public record TransactionView(Long id, Long userId, BigDecimal amount, String type, LocalDateTime timestamp,
+                              BigDecimal balanceAfter, Long relatedUserId) {
+}
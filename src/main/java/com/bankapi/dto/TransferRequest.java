@@ -16,7 +16,7 @@ public class TransferRequest {
     }
 
     public Long getReceiverId() {
-        return Long.valueOf(receiverId); // Возвращаем Long
+        return receiverId;
     }
 
     public void setReceiverId(Long receiverId) {
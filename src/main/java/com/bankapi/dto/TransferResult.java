@@ -0,0 +1,19 @@
+package com.bankapi.dto;
+
+import java.math.BigDecimal;
+
+// Итог одного перевода из пакета: status 1 - проведён, 0 - отклонён (причина в message)
+public record TransferResult(int index, Long senderId, Long receiverId, BigDecimal amount, int status, String message) {
+
+    public static TransferResult success(int index, TransferRequest request) {
+        return new TransferResult(index, request.getSenderId(), request.getReceiverId(), request.getAmount(), 1, "successful");
+    }
+
+    // request == null - элемент пакета null: отклоняется валидацией, поля результата пустые
+    public static TransferResult failure(int index, TransferRequest request, String message) {
+        if (request == null) {
+            return new TransferResult(index, null, null, null, 0, message);
+        }
+        return new TransferResult(index, request.getSenderId(), request.getReceiverId(), request.getAmount(), 0, message);
+    }
+}
@@ -0,0 +1,527 @@
+package com.bankapi.engine;
+
+import com.bankapi.config.EngineProperties;
+import com.bankapi.config.HotAccountProperties;
+import com.bankapi.config.LedgerProperties;
+import com.bankapi.dto.BalanceResponse;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.exception.InvalidAmountException;
+import com.bankapi.exception.OperationNotAppliedException;
+import com.bankapi.exception.UserNotFoundException;
+import com.bankapi.journal.MappedJournal;
+import com.bankapi.model.Money;
+import com.bankapi.observability.Outcome;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory account engine (LMAX style): balances of all accounts live in a primitive map owned by one
+ * writer thread, and every operation is a command passed to that thread through a lock-free
+ * {@link CommandRing}. The writer applies commands one after another with no locks and no database
+ * access, so a transfer is a few map lookups; contention turns into queueing in the ring.
+ * <p>
+ * The events a batch of commands produced are appended to a {@link MappedJournal} before any of those
+ * commands is answered (with {@code bank.engine.fsync}, after the shared fsync, done by an acknowledging
+ * thread so the writer never waits for the disk). The database is a projection of the journal, written by
+ * {@link EngineProjection} in the background: balances and history in PostgreSQL lag behind by about
+ * {@code bank.engine.projection-flush-interval}.
+ * <p>
+ * On startup balances are loaded from {@code bank_account} and the journal segments of the previous run
+ * are replayed on top and projected before the web server accepts requests. Accounts created later are
+ * loaded on first use. While the engine runs it must be the only writer of {@code bank_account}
+ * balances; it cannot be combined with the write-behind ledger or hot accounts.
+ */
+@Component
+public class AccountEngine implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountEngine.class);
+    private static final int JOURNAL_RECORD_HEADER = 8;
+
+    private record AckBatch(List<EngineCommand> commands, List<EngineEvent> events, MappedJournal.Position position) {
+    }
+
+    @Autowired
+    private EngineProperties properties;
+
+    @Autowired
+    private LedgerProperties ledgerProperties;
+
+    @Autowired
+    private HotAccountProperties hotAccountProperties;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final BlockingQueue<AckBatch> acknowledgements = new LinkedBlockingQueue<>();
+
+    private MappedJournal journal;
+    private CommandRing ring;
+    private EngineProjection projection;
+    private LongLongMap balances;
+    private long nextSeq;
+    private int maxBatch;
+    private Thread writer;
+    private Thread acknowledger;
+    private DistributionSummary batchSizes;
+    private volatile boolean running;
+    private volatile boolean accepting;
+
+    public boolean isActive() {
+        return running;
+    }
+
+    // null - счёта нет
+    public BigDecimal getBalance(Long userId) {
+        EngineCommand command = execute(EngineCommand.of(EngineCommand.BALANCE, userId, 0, 0));
+        return command.status == EngineCommand.OK ? Money.ofMinor(command.balance).toBigDecimal() : null;
+    }
+
+    public Outcome deposit(Long userId, BigDecimal amount) {
+        return mutate(EngineCommand.DEPOSIT, userId, amount);
+    }
+
+    public Outcome withdraw(Long userId, BigDecimal amount) {
+        return mutate(EngineCommand.WITHDRAW, userId, amount);
+    }
+
+    // Сумма с долями копейки не представима в счёте и отклоняется, как неположительная
+    private Outcome mutate(byte type, Long userId, BigDecimal amount) {
+        Long minorUnits = minorUnits(amount);
+        if (minorUnits == null) {
+            return Outcome.INVALID_AMOUNT;
+        }
+        return switch (execute(EngineCommand.of(type, userId, 0, minorUnits)).status) {
+            case EngineCommand.OK -> Outcome.SUCCESS;
+            case EngineCommand.USER_NOT_FOUND -> Outcome.USER_NOT_FOUND;
+            case EngineCommand.INSUFFICIENT_FUNDS -> Outcome.INSUFFICIENT_FUNDS;
+            default -> Outcome.INVALID_AMOUNT;
+        };
+    }
+
+    /**
+     * Transfers between two distinct accounts; the amount has been checked to be positive.
+     * Throws the exceptions of {@code BankService.transferMoney} in the same order of checks.
+     */
+    public void transfer(Long senderId, Long receiverId, BigDecimal amount) {
+        throwIfFailed(execute(transferCommand(senderId, receiverId, amount)), senderId, receiverId);
+    }
+
+    /**
+     * Submits all transfers before waiting for any of them, so they share journal appends and fsyncs.
+     *
+     * @return for every transfer {@code null} if applied, otherwise the reason it was refused
+     */
+    public List<String> transferAll(List<Long> senderIds, List<Long> receiverIds, List<BigDecimal> amounts) {
+        List<EngineCommand> commands = new ArrayList<>(senderIds.size());
+        List<String> failures = new ArrayList<>(senderIds.size());
+        for (int i = 0; i < senderIds.size(); i++) {
+            Long minorUnits = minorUnits(amounts.get(i));
+            EngineCommand command = null;
+            if (minorUnits != null) {
+                command = EngineCommand.of(EngineCommand.TRANSFER, senderIds.get(i), receiverIds.get(i), minorUnits);
+                publish(command);
+            }
+            commands.add(command);
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            EngineCommand command = commands.get(i);
+            try {
+                if (command == null) {
+                    throw new InvalidAmountException("Transfer amount must have at most 2 decimal places.");
+                }
+                command.await(commandTimeoutNanos());
+                throwIfFailed(hydrateIfMissing(command), senderIds.get(i), receiverIds.get(i));
+                failures.add(null);
+            } catch (UserNotFoundException | InsufficientFundsException | InvalidAmountException e) {
+                failures.add(e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    private EngineCommand transferCommand(Long senderId, Long receiverId, BigDecimal amount) {
+        Long minorUnits = minorUnits(amount);
+        if (minorUnits == null) {
+            throw new InvalidAmountException("Transfer amount must have at most 2 decimal places.");
+        }
+        return EngineCommand.of(EngineCommand.TRANSFER, senderId, receiverId, minorUnits);
+    }
+
+    private static void throwIfFailed(EngineCommand command, Long senderId, Long receiverId) {
+        switch (command.status) {
+            case EngineCommand.OK -> {
+            }
+            case EngineCommand.USER_NOT_FOUND -> throw new UserNotFoundException("Sender user not found with ID: " + senderId);
+            case EngineCommand.RECEIVER_NOT_FOUND -> throw new UserNotFoundException("Receiver user not found with ID: " + receiverId);
+            case EngineCommand.INSUFFICIENT_FUNDS -> throw new InsufficientFundsException("Insufficient funds for user ID: " + senderId);
+            default -> throw new InvalidAmountException("Transfer amount exceeds the balance limit.");
+        }
+    }
+
+    private static Long minorUnits(BigDecimal amount) {
+        try {
+            return Money.of(amount).minorUnits();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private EngineCommand execute(EngineCommand command) {
+        publish(command);
+        command.await(commandTimeoutNanos());
+        return hydrateIfMissing(command);
+    }
+
+    // Счёта нет в памяти: баланс загружается вызывающим потоком, команда повторяется с ним
+    private EngineCommand hydrateIfMissing(EngineCommand command) {
+        if (command.status != EngineCommand.MISSING) {
+            return command;
+        }
+        Long userBalance = loadBalance(command.userId);
+        Long receiverBalance = command.type == EngineCommand.TRANSFER ? loadBalance(command.receiverId) : null;
+        EngineCommand hydrated = command.hydrated(userBalance, receiverBalance);
+        publish(hydrated);
+        hydrated.await(commandTimeoutNanos());
+        return hydrated;
+    }
+
+    private Long loadBalance(long userId) {
+        return accountRepository.findBalance(userId).map(balance -> Money.of(balance).minorUnits()).orElse(null);
+    }
+
+    private void publish(EngineCommand command) {
+        if (!accepting) {
+            throw new OperationNotAppliedException("Account engine is not running");
+        }
+        ring.publish(command);
+        // Остановка могла начаться между проверкой и публикацией: поток записи эту команду уже не заберёт
+        if (!accepting) {
+            join(writer);
+            failPending(new OperationNotAppliedException("Account engine is not running"));
+        }
+    }
+
+    private long commandTimeoutNanos() {
+        return properties.getCommandTimeout().toNanos();
+    }
+
+    private void writeLoop() {
+        List<EngineCommand> batch = new ArrayList<>(maxBatch);
+        OperationNotAppliedException failure = new OperationNotAppliedException("Account engine is not running");
+        try {
+            writeBatches(batch);
+        } catch (Throwable e) {
+            // Изменения пакета уже в памяти, но не в журнале: как и при сбое журнала, движок перестаёт принимать команды
+            log.error("Account engine writer failed, engine stops accepting commands", e);
+            failure = new OperationNotAppliedException("Account engine writer failed", e);
+            throw e;
+        } finally {
+            accepting = false;
+            for (EngineCommand command : batch) {
+                command.fail(failure);
+            }
+            failPending(failure);
+        }
+    }
+
+    // batch - пакет в работе; после успешной записи в журнал очищается, при сбое остаётся вызывающему
+    private void writeBatches(List<EngineCommand> batch) {
+        List<EngineEvent> events = new ArrayList<>(maxBatch);
+        int idle = 0;
+        while (accepting || !ring.isEmpty()) {
+            if (ring.drain(batch, maxBatch) == 0) {
+                // Короткое ожидание вращением, затем парковка: на малом числе ядер вращение отнимает время у вызывающих
+                if (++idle < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    ring.awaitPublished(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+                continue;
+            }
+            idle = 0;
+            LocalDateTime now = LocalDateTime.now();
+            for (EngineCommand command : batch) {
+                apply(command, now, events);
+            }
+            batchSizes.record(batch.size());
+            List<EngineCommand> applied = new ArrayList<>(batch);
+            batch.clear();
+            if (!journalAndAcknowledge(applied, events)) {
+                return;
+            }
+            events = new ArrayList<>(maxBatch);
+        }
+    }
+
+    private void apply(EngineCommand command, LocalDateTime now, List<EngineEvent> events) {
+        long userId = command.userId;
+        if (!present(userId, command, command.userBalance)) {
+            command.status = command.hydrated ? EngineCommand.USER_NOT_FOUND : EngineCommand.MISSING;
+            return;
+        }
+        long balance = balances.get(userId);
+        switch (command.type) {
+            case EngineCommand.BALANCE -> command.balance = balance;
+            case EngineCommand.DEPOSIT -> {
+                if (Long.MAX_VALUE - balance < command.amount) {
+                    command.status = EngineCommand.OVERFLOW;
+                    return;
+                }
+                balances.put(userId, balance + command.amount);
+                events.add(EngineEvent.deposit(nextSeq, userId, command.amount, balance + command.amount, now));
+                nextSeq++;
+            }
+            case EngineCommand.WITHDRAW -> {
+                if (balance < command.amount) {
+                    command.status = EngineCommand.INSUFFICIENT_FUNDS;
+                    return;
+                }
+                balances.put(userId, balance - command.amount);
+                events.add(EngineEvent.withdraw(nextSeq, userId, command.amount, balance - command.amount, now));
+                nextSeq++;
+            }
+            case EngineCommand.TRANSFER -> {
+                long receiverId = command.receiverId;
+                if (!present(receiverId, command, command.receiverBalance)) {
+                    command.status = command.hydrated ? EngineCommand.RECEIVER_NOT_FOUND : EngineCommand.MISSING;
+                    return;
+                }
+                long receiverBalance = balances.get(receiverId);
+                if (balance < command.amount) {
+                    command.status = EngineCommand.INSUFFICIENT_FUNDS;
+                    return;
+                }
+                if (Long.MAX_VALUE - receiverBalance < command.amount) {
+                    command.status = EngineCommand.OVERFLOW;
+                    return;
+                }
+                balances.put(userId, balance - command.amount);
+                balances.put(receiverId, receiverBalance + command.amount);
+                events.add(EngineEvent.transfer(nextSeq, userId, receiverId, command.amount,
+                        balance - command.amount, receiverBalance + command.amount, now));
+                nextSeq += 2;
+            }
+            default -> throw new IllegalStateException("Unknown engine command " + command.type);
+        }
+        command.status = EngineCommand.OK;
+    }
+
+    // Счёт есть в памяти или добавлен из баланса, загруженного вызывающим (в памяти он новее, чем в БД)
+    private boolean present(long userId, EngineCommand command, Long loadedBalance) {
+        if (balances.containsKey(userId)) {
+            return true;
+        }
+        if (!command.hydrated || loadedBalance == null) {
+            return false;
+        }
+        balances.put(userId, loadedBalance);
+        return true;
+    }
+
+    private boolean journalAndAcknowledge(List<EngineCommand> batch, List<EngineEvent> events) {
+        MappedJournal.Position position = null;
+        if (!events.isEmpty()) {
+            List<byte[]> records = new ArrayList<>(events.size());
+            for (EngineEvent event : events) {
+                records.add(event.encode());
+            }
+            try {
+                position = journal.append(records);
+            } catch (RuntimeException e) {
+                // Память уже содержит изменения, которых нет в журнале: состояние восстановит только перезапуск
+                log.error("Account engine journal append failed, engine stops accepting commands", e);
+                accepting = false;
+                OperationNotAppliedException failure = new OperationNotAppliedException("Account engine journal failed", e);
+                for (EngineCommand command : batch) {
+                    command.fail(failure);
+                }
+                failPending(failure);
+                return false;
+            }
+        }
+        if (properties.isFsync()) {
+            acknowledgements.add(new AckBatch(batch, events, position));
+        } else {
+            complete(batch, events, position);
+        }
+        return true;
+    }
+
+    // Ответы и проекция - только после того, как события пакета на диске; чтения ждут предыдущие записи
+    private void acknowledgeLoop() {
+        MappedJournal.Position last = null;
+        while (running || !acknowledgements.isEmpty()) {
+            AckBatch ack;
+            try {
+                ack = acknowledgements.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (ack == null) {
+                continue;
+            }
+            MappedJournal.Position position = ack.position() != null ? ack.position() : last;
+            try {
+                if (position != null) {
+                    journal.awaitDurable(position);
+                    last = position;
+                }
+                complete(ack.commands(), ack.events(), position);
+            } catch (RuntimeException e) {
+                for (EngineCommand command : ack.commands()) {
+                    command.fail(e);
+                }
+            }
+        }
+    }
+
+    private void complete(List<EngineCommand> batch, List<EngineEvent> events, MappedJournal.Position position) {
+        for (EngineCommand command : batch) {
+            command.complete();
+        }
+        if (!events.isEmpty()) {
+            projection.enqueue(events, position.segment());
+        }
+    }
+
+    // Вызывается потоком записи при завершении или уже после него; synchronized - у кольца один потребитель за раз
+    private synchronized void failPending(RuntimeException failure) {
+        List<EngineCommand> pending = new ArrayList<>();
+        while (ring.drain(pending, Integer.MAX_VALUE) > 0) {
+            for (EngineCommand command : pending) {
+                command.fail(failure);
+            }
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (ledgerProperties.isEnabled() || !hotAccountProperties.getUserIds().isEmpty()) {
+            throw new IllegalStateException("bank.engine cannot be combined with bank.ledger or bank.hot-accounts");
+        }
+        int segmentSize = (int) properties.getSegmentSize().toBytes();
+        journal = MappedJournal.open(Path.of(properties.getDirectory()), "engine", segmentSize, properties.isFsync());
+        ring = new CommandRing(properties.getRingSize());
+        maxBatch = Math.min(ring.capacity(), segmentSize / (EngineEvent.SIZE + JOURNAL_RECORD_HEADER));
+        projection = new EngineProjection(accountRepository, transactionRepository, transactionTemplate,
+                properties.getProjectionBatchSize(), properties.getProjectionFlushInterval().toNanos());
+
+        List<BalanceResponse> stored = accountRepository.findAllBalances();
+        balances = new LongLongMap(stored.size());
+        for (BalanceResponse account : stored) {
+            balances.put(account.userId(), Money.of(account.balance()).minorUnits());
+        }
+        long lastSeq = recover();
+        Long lastProjected = transactionRepository.findMaxJournalSeq();
+        nextSeq = Math.max(lastSeq, lastProjected != null ? lastProjected : 0L) + 1;
+        journal.deleteSegmentsBefore(journal.currentSegment());
+
+        if (batchSizes == null) {
+            batchSizes = DistributionSummary.builder("bank.engine.batch.size")
+                    .description("Commands applied by the account engine writer per journal append")
+                    .register(meterRegistry);
+            Gauge.builder("bank.engine.projection.backlog", this, engine -> engine.projection.backlog())
+                    .description("Journaled engine events not yet applied to the database")
+                    .register(meterRegistry);
+        }
+        running = true;
+        accepting = true;
+        projection.start(journal);
+        acknowledger = new Thread(this::acknowledgeLoop, "account-engine-ack");
+        acknowledger.setDaemon(true);
+        acknowledger.start();
+        writer = new Thread(this::writeLoop, "account-engine");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Account engine started with {} accounts: {}", balances.size(), properties);
+    }
+
+    /**
+     * Applies the events of the previous run on top of the balances loaded from the database and projects them.
+     *
+     * @return the highest sequence number found in the journal, 0 if it was empty
+     */
+    private long recover() {
+        List<EngineEvent> events = new ArrayList<>();
+        journal.replay(data -> events.add(EngineEvent.decode(data)));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        for (EngineEvent event : events) {
+            balances.put(event.userId(), event.balanceAfter());
+            if (event.type() == EngineEvent.TRANSFER) {
+                balances.put(event.relatedUserId(), event.relatedBalanceAfter());
+            }
+        }
+        projection.recover(events);
+        log.info("Account engine recovery: {} journaled events replayed", events.size());
+        return events.get(events.size() - 1).lastSeq();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // Сначала перестаём принимать команды, затем дописываем принятые: ответ, журнал, проекция
+        accepting = false;
+        join(writer);
+        // Команды, опубликованные в момент остановки, уже не будут применены
+        failPending(new OperationNotAppliedException("Account engine is not running"));
+        running = false;
+        join(acknowledger);
+        projection.stop();
+        journal.close();
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // После HotAccounts (слоты сметены в строки счетов) и до веб-сервера
+    @Override
+    public int getPhase() {
+        return 1;
+    }
+}
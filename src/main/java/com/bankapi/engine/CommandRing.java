@@ -0,0 +1,92 @@
+package com.bankapi.engine;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of commands, after the LMAX Disruptor: producers claim a
+ * sequence number with one atomic increment and publish the slot by writing the number into it; the
+ * consumer takes every consecutively published slot in one pass, without locks. A full ring makes
+ * producers wait for the consumer.
+ */
+final class CommandRing {
+
+    private final EngineCommand[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+
+    // Все номера меньше consumed забраны потребителем; next - следующий номер, только для потребителя
+    private volatile long consumed;
+    private long next;
+
+    private volatile Thread consumer;
+    private volatile boolean sleeping;
+
+    CommandRing(int requestedSize) {
+        int size = Integer.highestOneBit(Math.max(2, requestedSize) - 1) << 1;
+        this.slots = new EngineCommand[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    void publish(EngineCommand command) {
+        long seq = claimed.getAndIncrement();
+        while (seq - consumed >= slots.length) {
+            LockSupport.parkNanos(1_000);
+        }
+        int index = (int) seq & mask;
+        slots[index] = command;
+        published.set(index, seq);
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Moves up to {@code max} published commands to {@code batch} in sequence order.
+     */
+    int drain(List<EngineCommand> batch, int max) {
+        int taken = 0;
+        while (taken < max) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                break;
+            }
+            batch.add(slots[index]);
+            slots[index] = null;
+            next++;
+            taken++;
+        }
+        if (taken > 0) {
+            consumed = next;
+        }
+        return taken;
+    }
+
+    /**
+     * Parks the consumer until a command is published or {@code nanos} pass.
+     */
+    void awaitPublished(long nanos) {
+        consumer = Thread.currentThread();
+        sleeping = true;
+        // Повторная проверка после sleeping: публикация, не увидевшая флаг, видна здесь
+        if (published.get((int) next & mask) != next) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        sleeping = false;
+    }
+
+    boolean isEmpty() {
+        return published.get((int) next & mask) != next;
+    }
+}
@@ -0,0 +1,97 @@
+package com.bankapi.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One request to the engine's writer thread and, once completed, its result. The caller publishes the
+ * command to the {@link CommandRing} and waits in {@link #await}; the writer fills in the result and the
+ * command is completed after the events it produced are in the journal. A command the writer will never
+ * take (the engine stopped or its writer failed) is completed with an error, and the wait is bounded anyway.
+ * <p>
+ * An account the writer does not hold yet is answered with {@link #MISSING}: the caller loads its balance
+ * from the database and resubmits the command {@linkplain #hydrated hydrated} with it.
+ */
+final class EngineCommand {
+
+    static final byte BALANCE = 0;
+    static final byte DEPOSIT = 1;
+    static final byte WITHDRAW = 2;
+    static final byte TRANSFER = 3;
+
+    static final int OK = 0;
+    static final int MISSING = 1;
+    static final int USER_NOT_FOUND = 2;
+    static final int RECEIVER_NOT_FOUND = 3;
+    static final int INSUFFICIENT_FUNDS = 4;
+    static final int OVERFLOW = 5;
+
+    // Сколько раз ожидающий проверяет готовность, прежде чем припарковаться
+    private static final int SPINS = 200;
+
+    final byte type;
+    final long userId;
+    final long receiverId;
+    final long amount;
+
+    // Балансы из БД для счетов, которых нет в памяти; null - счёта нет и в БД
+    final boolean hydrated;
+    final Long userBalance;
+    final Long receiverBalance;
+
+    // Результат: заполняет поток записи до completion
+    int status;
+    long balance;
+    RuntimeException error;
+
+    private final Thread waiter = Thread.currentThread();
+    private volatile boolean done;
+
+    private EngineCommand(byte type, long userId, long receiverId, long amount,
+                          boolean hydrated, Long userBalance, Long receiverBalance) {
+        this.type = type;
+        this.userId = userId;
+        this.receiverId = receiverId;
+        this.amount = amount;
+        this.hydrated = hydrated;
+        this.userBalance = userBalance;
+        this.receiverBalance = receiverBalance;
+    }
+
+    static EngineCommand of(byte type, long userId, long receiverId, long amount) {
+        return new EngineCommand(type, userId, receiverId, amount, false, null, null);
+    }
+
+    EngineCommand hydrated(Long userBalance, Long receiverBalance) {
+        return new EngineCommand(type, userId, receiverId, amount, true, userBalance, receiverBalance);
+    }
+
+    void complete() {
+        done = true;
+        LockSupport.unpark(waiter);
+    }
+
+    void fail(RuntimeException error) {
+        this.error = error;
+        complete();
+    }
+
+    /**
+     * Waits for the result, at most {@code timeoutNanos}. A command that timed out may still be applied later.
+     */
+    void await(long timeoutNanos) {
+        for (int i = 0; i < SPINS && !done; i++) {
+            Thread.onSpinWait();
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (!done) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("Account engine did not answer within " + timeoutNanos / 1_000_000 + " ms");
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.bankapi.engine;
+
+import com.bankapi.model.Money;
+import com.bankapi.model.Transaction;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * A balance change applied by the engine, as written to its journal: fixed-size binary, amounts in minor
+ * units. Balances are absolute, so replaying an event twice or after the projection has applied it
+ * leaves the same state.
+ * <p>
+ * A deposit or withdrawal uses sequence number {@code seq}; a transfer uses {@code seq} for its
+ * TRANSFER_OUT row and {@code seq + 1} for its TRANSFER_IN row. The numbers become {@code journal_seq} of
+ * the bank_transaction rows, which is how the projection finds rows it has already inserted.
+ */
+record EngineEvent(byte type, long seq, long userId, long amount, long balanceAfter,
+                   long relatedUserId, long relatedBalanceAfter, LocalDateTime timestamp) {
+
+    static final byte DEPOSIT = 1;
+    static final byte WITHDRAW = 2;
+    static final byte TRANSFER = 3;
+
+    static final int SIZE = 1 + 8 * 7 + 4;
+
+    static EngineEvent deposit(long seq, long userId, long amount, long balanceAfter, LocalDateTime timestamp) {
+        return new EngineEvent(DEPOSIT, seq, userId, amount, balanceAfter, 0, 0, timestamp);
+    }
+
+    static EngineEvent withdraw(long seq, long userId, long amount, long balanceAfter, LocalDateTime timestamp) {
+        return new EngineEvent(WITHDRAW, seq, userId, amount, balanceAfter, 0, 0, timestamp);
+    }
+
+    static EngineEvent transfer(long seq, long senderId, long receiverId, long amount, long senderAfter,
+                                long receiverAfter, LocalDateTime timestamp) {
+        return new EngineEvent(TRANSFER, seq, senderId, amount, senderAfter, receiverId, receiverAfter, timestamp);
+    }
+
+    // Последний номер, занятый событием
+    long lastSeq() {
+        return type == TRANSFER ? seq + 1 : seq;
+    }
+
+    byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.put(type)
+                .putLong(seq)
+                .putLong(userId)
+                .putLong(amount)
+                .putLong(balanceAfter)
+                .putLong(relatedUserId)
+                .putLong(relatedBalanceAfter)
+                .putLong(timestamp.toEpochSecond(ZoneOffset.UTC))
+                .putInt(timestamp.getNano());
+        return buffer.array();
+    }
+
+    static EngineEvent decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte type = buffer.get();
+        if (type != DEPOSIT && type != WITHDRAW && type != TRANSFER) {
+            throw new IllegalArgumentException("Unknown engine event type " + type);
+        }
+        long seq = buffer.getLong();
+        long userId = buffer.getLong();
+        long amount = buffer.getLong();
+        long balanceAfter = buffer.getLong();
+        long relatedUserId = buffer.getLong();
+        long relatedBalanceAfter = buffer.getLong();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        return new EngineEvent(type, seq, userId, amount, balanceAfter, relatedUserId, relatedBalanceAfter, timestamp);
+    }
+
+    // Строки bank_transaction события с номерами журнала
+    List<Transaction> toTransactions() {
+        BigDecimal value = Money.ofMinor(amount).toBigDecimal();
+        if (type == TRANSFER) {
+            Transaction out = new Transaction(userId, value, "TRANSFER_OUT", timestamp, Money.ofMinor(balanceAfter).toBigDecimal(), relatedUserId);
+            out.setJournalSeq(seq);
+            Transaction in = new Transaction(relatedUserId, value, "TRANSFER_IN", timestamp, Money.ofMinor(relatedBalanceAfter).toBigDecimal(), userId);
+            in.setJournalSeq(seq + 1);
+            return List.of(out, in);
+        }
+        Transaction row = new Transaction(userId, value, type == DEPOSIT ? "DEPOSIT" : "WITHDRAW", timestamp,
+                Money.ofMinor(balanceAfter).toBigDecimal(), null);
+        row.setJournalSeq(seq);
+        return List.of(row);
+    }
+}
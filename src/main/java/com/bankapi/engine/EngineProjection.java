@@ -0,0 +1,207 @@
+package com.bankapi.engine;
+
+import com.bankapi.journal.MappedJournal;
+import com.bankapi.model.Money;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies journaled engine events to the database in the background: the last balance of every account
+ * touched by a batch and the batch's bank_transaction rows, in one transaction per batch. Events arrive in
+ * journal order, so once an event of segment {@code n} is applied every older segment can be deleted.
+ * <p>
+ * A failed batch is retried with backoff; retries and recovery insert only rows whose {@code journal_seq}
+ * is not in the table yet, and balances are absolute, so applying an event twice is harmless.
+ */
+final class EngineProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineProjection.class);
+    private static final int LOOKUP_CHUNK = 1000;
+
+    record Queued(EngineEvent event, long segment) {
+    }
+
+    private final BankAccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushNanos;
+    private final BlockingQueue<Queued> queue = new LinkedBlockingQueue<>();
+
+    private MappedJournal journal;
+    private long projectedSegment = -1;
+    private Thread thread;
+    private volatile boolean running;
+
+    EngineProjection(BankAccountRepository accountRepository, TransactionRepository transactionRepository,
+                     TransactionTemplate transactionTemplate, int batchSize, long flushNanos) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushNanos = flushNanos;
+    }
+
+    int backlog() {
+        return queue.size();
+    }
+
+    void enqueue(List<EngineEvent> events, long segment) {
+        for (EngineEvent event : events) {
+            queue.add(new Queued(event, segment));
+        }
+    }
+
+    void start(MappedJournal journal) {
+        this.journal = journal;
+        running = true;
+        thread = new Thread(this::projectLoop, "account-engine-projection");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Очередь дописывается до конца: после остановки журнал нужен только для событий, не попавших в БД
+    void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.warn("{} engine events left for recovery on next start", queue.size());
+            queue.clear();
+        }
+    }
+
+    /**
+     * Applies events replayed from the journal before the engine starts; only missing rows are inserted.
+     */
+    void recover(List<EngineEvent> events) {
+        for (int from = 0; from < events.size(); from += batchSize) {
+            apply(events.subList(from, Math.min(events.size(), from + batchSize)), true);
+        }
+    }
+
+    private void projectLoop() {
+        while (running || !queue.isEmpty()) {
+            List<Queued> batch = new ArrayList<>(batchSize);
+            try {
+                Queued first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Неполный пакет добирается до истечения интервала, чтобы транзакции проекции были крупными
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Queued next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!applyWithRetry(batch)) {
+                return;
+            }
+        }
+    }
+
+    private boolean applyWithRetry(List<Queued> batch) {
+        List<EngineEvent> events = new ArrayList<>(batch.size());
+        for (Queued queued : batch) {
+            events.add(queued.event());
+        }
+        long backoffMillis = 100;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Повтор мог последовать за коммитом, о котором мы не узнали - вставляем только недостающее
+                apply(events, attempt > 1);
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Engine projection batch failed (attempt {}), retrying in {} ms", attempt, backoffMillis, e);
+                if (!running) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, 5_000);
+            }
+        }
+        long segment = batch.get(batch.size() - 1).segment();
+        if (segment > projectedSegment) {
+            projectedSegment = segment;
+            journal.deleteSegmentsBefore(segment);
+        }
+        return true;
+    }
+
+    private void apply(List<EngineEvent> events, boolean onlyMissing) {
+        Map<Long, Long> balances = new LinkedHashMap<>();
+        List<Transaction> rows = new ArrayList<>(events.size() * 2);
+        for (EngineEvent event : events) {
+            balances.put(event.userId(), event.balanceAfter());
+            if (event.type() == EngineEvent.TRANSFER) {
+                balances.put(event.relatedUserId(), event.relatedBalanceAfter());
+            }
+            rows.addAll(event.toTransactions());
+        }
+        List<Transaction> toInsert = onlyMissing ? missing(rows) : rows;
+        transactionTemplate.executeWithoutResult(status -> {
+            balances.forEach((userId, balance) -> accountRepository.setBalance(userId, Money.ofMinor(balance).toBigDecimal()));
+            transactionRepository.saveAll(toInsert);
+        });
+    }
+
+    private List<Transaction> missing(List<Transaction> rows) {
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += LOOKUP_CHUNK) {
+            List<Long> seqs = new ArrayList<>();
+            LocalDateTime earliest = LocalDateTime.MAX;
+            LocalDateTime latest = LocalDateTime.MIN;
+            for (Transaction row : rows.subList(from, Math.min(rows.size(), from + LOOKUP_CHUNK))) {
+                seqs.add(row.getJournalSeq());
+                earliest = row.getTimestamp().isBefore(earliest) ? row.getTimestamp() : earliest;
+                latest = row.getTimestamp().isAfter(latest) ? row.getTimestamp() : latest;
+            }
+            // Запас в секунду: БД хранит метку времени с меньшей точностью, чем LocalDateTime
+            existing.addAll(transactionRepository.findExistingJournalSeqs(seqs, earliest.minusSeconds(1), latest.plusSeconds(1)));
+        }
+        List<Transaction> missing = new ArrayList<>();
+        for (Transaction row : rows) {
+            if (!existing.contains(row.getJournalSeq())) {
+                missing.add(row);
+            }
+        }
+        return missing;
+    }
+}
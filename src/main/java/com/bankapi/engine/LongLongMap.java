@@ -0,0 +1,87 @@
+package com.bankapi.engine;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} account ids to {@code long} balances in minor units, without
+ * boxing: two parallel arrays probed linearly. Not thread-safe; owned by the engine's writer thread.
+ * Entries are never removed.
+ */
+final class LongLongMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long key) {
+        return keys[slot(key)] != EMPTY;
+    }
+
+    // Значение ключа; ключ должен присутствовать (containsKey)
+    long get(long key) {
+        return values[slot(key)];
+    }
+
+    void put(long key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Unsupported key " + key);
+        }
+        int slot = slot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                values[slot] = value;
+                rehash(keys.length << 1);
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    private int slot(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Перемешивание битов: id счетов идут подряд, без него соседние ключи образуют длинные цепочки
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.bankapi.exception;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
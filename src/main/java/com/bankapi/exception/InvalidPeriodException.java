@@ -0,0 +1,7 @@
+package com.bankapi.exception;
+
+public class InvalidPeriodException extends RuntimeException {
+    public InvalidPeriodException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.bankapi.exception;
+
+/**
+ * The operation was refused before it changed any state (the engine or group commit is not taking work),
+ * so running it again cannot apply it twice. Failures that may follow a commit are never of this type.
+ */
+public class OperationNotAppliedException extends IllegalStateException {
+    public OperationNotAppliedException(String message) {
+        super(message);
+    }
+
+    public OperationNotAppliedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
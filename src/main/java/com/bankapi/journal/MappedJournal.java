@@ -0,0 +1,307 @@
+package com.bankapi.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of opaque records stored in fixed-size memory-mapped segment files.
+ * <p>
+ * A record is {@code [length][crc32][payload]}; a zero length or a checksum mismatch marks the end of a
+ * segment, so a record torn by a crash is dropped on {@link #replay}. Appends only copy bytes into the
+ * mapping under a short lock. Durability is requested with {@link #awaitDurable}: a single flusher
+ * thread calls {@link MappedByteBuffer#force()} for everything appended so far and wakes every waiter
+ * whose position it covered, so concurrent writers share one fsync (group commit).
+ * <p>
+ * Every {@link #open} starts a new segment; segments left by the previous run stay readable through
+ * {@link #replay} until the owner deletes them with {@link #deleteSegmentsBefore}.
+ */
+public class MappedJournal implements Closeable {
+
+    /**
+     * Segment holding the appended records and the journal position right after them,
+     * to be passed to {@link #awaitDurable}.
+     */
+    public record Position(long segment, long end) {
+    }
+
+    private static final int RECORD_HEADER = 8;
+
+    private final Path directory;
+    private final String prefix;
+    private final Pattern segmentName;
+    private final int segmentSize;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    private long segment;
+    private MappedByteBuffer buffer;
+    // Позиции сквозные по всем сегментам: число байт, записанных и сброшенных на диск с момента open
+    private long written;
+    private long durable;
+    private boolean closed;
+    private final Thread flusher;
+
+    private MappedJournal(Path directory, String prefix, int segmentSize, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentName = Pattern.compile(Pattern.quote(prefix) + "-(\\d+)\\.journal");
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        long last = -1;
+        for (long index : segmentIndexes()) {
+            last = Math.max(last, index);
+        }
+        this.segment = last + 1;
+        this.buffer = map(segment);
+        if (fsync) {
+            flusher = new Thread(this::flushLoop, prefix + "-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens the journal in {@code directory}, creating it if needed, and starts a new segment.
+     * With {@code fsync = false} records survive a process crash but not an OS crash.
+     */
+    public static MappedJournal open(Path directory, String prefix, int segmentSize, boolean fsync) {
+        try {
+            return new MappedJournal(directory, prefix, segmentSize, fsync);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends the records contiguously within one segment, rolling over to a new segment if they do not fit.
+     */
+    public Position append(List<byte[]> records) {
+        int size = 0;
+        for (byte[] record : records) {
+            size += RECORD_HEADER + record.length;
+        }
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Records of " + size + " bytes exceed journal segment size " + segmentSize);
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (buffer.remaining() < size) {
+                roll();
+            }
+            CRC32 crc = new CRC32();
+            for (byte[] record : records) {
+                crc.reset();
+                crc.update(record);
+                buffer.putInt(record.length);
+                buffer.putInt((int) crc.getValue());
+                buffer.put(record);
+            }
+            written += size;
+            return new Position(segment, written);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until everything up to {@code position} has been forced to disk. Returns immediately without fsync.
+     */
+    public void awaitDurable(Position position) {
+        if (!fsync) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durable < position.end()) {
+                if (closed) {
+                    throw new IllegalStateException("Journal closed before the record became durable");
+                }
+                flushRequested.signal();
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long currentSegment() {
+        lock.lock();
+        try {
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records of every segment older than the current one, oldest first.
+     */
+    public void replay(Consumer<byte[]> consumer) {
+        long current = currentSegment();
+        List<Long> indexes = new ArrayList<>();
+        for (long index : segmentIndexes()) {
+            if (index < current) {
+                indexes.add(index);
+            }
+        }
+        indexes.sort(null);
+        for (long index : indexes) {
+            readSegment(segmentPath(index), consumer);
+        }
+    }
+
+    public void deleteSegmentsBefore(long index) {
+        for (long existing : segmentIndexes()) {
+            if (existing < index) {
+                try {
+                    Files.deleteIfExists(segmentPath(existing));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete journal segment " + existing, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.force();
+            durable = written;
+            flushRequested.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Старый сегмент сбрасывается целиком под блокировкой, дальше поток сброса работает только с новым
+    private void roll() {
+        buffer.force();
+        durable = written;
+        flushed.signalAll();
+        segment++;
+        try {
+            buffer = map(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + segment, e);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            MappedByteBuffer target;
+            long upTo;
+            lock.lock();
+            try {
+                while (!closed && durable == written) {
+                    flushRequested.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                target = buffer;
+                upTo = written;
+            } finally {
+                lock.unlock();
+            }
+            // fsync идёт без блокировки: пока он выполняется, новые записи копятся для следующего сброса
+            target.force();
+            lock.lock();
+            try {
+                if (upTo > durable) {
+                    durable = upTo;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private MappedByteBuffer map(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static void readSegment(Path path, Consumer<byte[]> consumer) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= RECORD_HEADER) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    return;
+                }
+                byte[] record = new byte[length];
+                data.get(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                consumer.accept(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal segment " + path, e);
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s-%016d.journal", prefix, index));
+    }
+
+    private List<Long> segmentIndexes() {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = segmentName.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    indexes.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+        return indexes;
+    }
+}
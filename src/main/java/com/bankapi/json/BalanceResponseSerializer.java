@@ -0,0 +1,30 @@
+package com.bankapi.json;
+
+import com.bankapi.dto.BalanceResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+final class BalanceResponseSerializer extends StdSerializer<BalanceResponse> {
+
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString BALANCE = new SerializedString("balance");
+
+    BalanceResponseSerializer() {
+        super(BalanceResponse.class);
+    }
+
+    @Override
+    public void serialize(BalanceResponse value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(value);
+        generator.writeFieldName(USER_ID);
+        JsonFields.writeNumber(generator, value.userId());
+        generator.writeFieldName(BALANCE);
+        JsonFields.writeNumber(generator, value.balance());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,28 @@
+package com.bankapi.json;
+
+import com.bankapi.dto.BalanceResponse;
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.dto.TransactionView;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hand-written serializers for the hot response types: balance, operation status and history rows.
+ * <p>
+ * Spring Boot registers this module in the application {@code ObjectMapper}. Jackson resolves a serializer
+ * once per type and caches it, so each response is written field by field straight into the generator's
+ * output buffer: no intermediate map, no reflective property access, field names pre-encoded as UTF-8,
+ * timestamps formatted without building a {@code String}. The JSON is identical to the default
+ * serialization of the same records, including {@code null} fields.
+ */
+@Component
+public class BankJsonModule extends SimpleModule {
+
+    public BankJsonModule() {
+        super("BankJsonModule");
+        addSerializer(BalanceResponse.class, new BalanceResponseSerializer());
+        addSerializer(StatusResponse.class, new StatusResponseSerializer());
+        addSerializer(TransactionView.class, new TransactionViewSerializer());
+    }
+}
@@ -0,0 +1,87 @@
+package com.bankapi.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Запись значений полей с теми же правилами, что у стандартных сериализаторов Jackson и JavaTimeModule
+final class JsonFields {
+
+    // "yyyy-MM-ddTHH:mm:ss" и до 9 цифр дробной части с точкой
+    private static final int MAX_DATE_TIME_LENGTH = 29;
+
+    private JsonFields() {
+    }
+
+    static void writeNumber(JsonGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+    // Учитывает WRITE_BIGDECIMAL_AS_PLAIN генератора, как стандартный NumberSerializer
+    static void writeNumber(JsonGenerator generator, BigDecimal value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    /**
+     * Writes {@code value} as {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} does - the format of the
+     * JavaTimeModule serializer with dates not written as timestamps: seconds always present, fraction
+     * without trailing zeros. Years outside 0000-9999 need a sign and go through the formatter.
+     */
+    static void writeDateTime(JsonGenerator generator, LocalDateTime value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            generator.writeString(value.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return;
+        }
+        char[] buffer = new char[MAX_DATE_TIME_LENGTH];
+        put4(buffer, 0, year);
+        buffer[4] = '-';
+        put2(buffer, 5, value.getMonthValue());
+        buffer[7] = '-';
+        put2(buffer, 8, value.getDayOfMonth());
+        buffer[10] = 'T';
+        put2(buffer, 11, value.getHour());
+        buffer[13] = ':';
+        put2(buffer, 14, value.getMinute());
+        buffer[16] = ':';
+        put2(buffer, 17, value.getSecond());
+        int length = 19;
+        int nano = value.getNano();
+        if (nano != 0) {
+            buffer[length++] = '.';
+            int divisor = 100_000_000;
+            while (nano != 0) {
+                int digit = nano / divisor;
+                buffer[length++] = (char) ('0' + digit);
+                nano -= digit * divisor;
+                divisor /= 10;
+            }
+        }
+        generator.writeString(buffer, 0, length);
+    }
+
+    private static void put2(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void put4(char[] buffer, int offset, int value) {
+        put2(buffer, offset, value / 100);
+        put2(buffer, offset + 2, value % 100);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bankapi.json;
+
+import com.bankapi.dto.StatusResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+final class StatusResponseSerializer extends StdSerializer<StatusResponse> {
+
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    StatusResponseSerializer() {
+        super(StatusResponse.class);
+    }
+
+    @Override
+    public void serialize(StatusResponse value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(value);
+        generator.writeFieldName(STATUS);
+        generator.writeNumber(value.status());
+        generator.writeFieldName(MESSAGE);
+        generator.writeString(value.message());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,45 @@
+package com.bankapi.json;
+
+import com.bankapi.dto.TransactionView;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+final class TransactionViewSerializer extends StdSerializer<TransactionView> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString BALANCE_AFTER = new SerializedString("balanceAfter");
+    private static final SerializedString RELATED_USER_ID = new SerializedString("relatedUserId");
+
+    TransactionViewSerializer() {
+        super(TransactionView.class);
+    }
+
+    @Override
+    public void serialize(TransactionView value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(value);
+        generator.writeFieldName(ID);
+        JsonFields.writeNumber(generator, value.id());
+        generator.writeFieldName(USER_ID);
+        JsonFields.writeNumber(generator, value.userId());
+        generator.writeFieldName(AMOUNT);
+        JsonFields.writeNumber(generator, value.amount());
+        generator.writeFieldName(TYPE);
+        generator.writeString(value.type());
+        generator.writeFieldName(TIMESTAMP);
+        JsonFields.writeDateTime(generator, value.timestamp());
+        generator.writeFieldName(BALANCE_AFTER);
+        JsonFields.writeNumber(generator, value.balanceAfter());
+        generator.writeFieldName(RELATED_USER_ID);
+        JsonFields.writeNumber(generator, value.relatedUserId());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,117 @@
+package com.bankapi.ledger;
+
+import com.bankapi.model.Transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Binary records of the ledger journal: a history row waiting to be inserted, or the outcome
+ * of the database transaction that produced a contiguous range of rows.
+ */
+sealed interface LedgerRecord {
+
+    byte ENTRY = 1;
+    byte COMMITTED = 2;
+    byte ABORTED = 3;
+
+    byte[] encode();
+
+    /**
+     * One bank_transaction row. {@code accountVersion} is the version the same database transaction wrote to
+     * the account row, or to slot {@code slot} of a hot account ({@code slot < 0} means the account row).
+     * Whether that transaction committed is decided by its journaled outcome or its commit marker, not by
+     * this version: later transactions on the same account reach it as well.
+     */
+    record Entry(long seq, long userId, BigDecimal amount, String type, LocalDateTime timestamp,
+                 BigDecimal balanceAfter, Long relatedUserId, int slot, long accountVersion) implements LedgerRecord {
+
+        static Entry of(long seq, Transaction row, int slot, long accountVersion) {
+            return new Entry(seq, row.getUserId(), row.getAmount(), row.getType(), row.getTimestamp(),
+                    row.getBalanceAfter(), row.getRelatedUserId(), slot, accountVersion);
+        }
+
+        Transaction toTransaction() {
+            Transaction row = new Transaction(userId, amount, type, timestamp, balanceAfter, relatedUserId);
+            row.setJournalSeq(seq);
+            return row;
+        }
+
+        @Override
+        public byte[] encode() {
+            return write(out -> {
+                out.writeByte(ENTRY);
+                out.writeLong(seq);
+                out.writeLong(userId);
+                out.writeUTF(amount.toPlainString());
+                out.writeUTF(type);
+                out.writeUTF(timestamp.toString());
+                out.writeUTF(balanceAfter.toPlainString());
+                out.writeBoolean(relatedUserId != null);
+                out.writeLong(relatedUserId != null ? relatedUserId : 0L);
+                out.writeInt(slot);
+                out.writeLong(accountVersion);
+            });
+        }
+    }
+
+    /**
+     * Outcome of the transaction that journaled entries {@code firstSeq..lastSeq}.
+     */
+    record Outcome(boolean committed, long firstSeq, long lastSeq) implements LedgerRecord {
+
+        @Override
+        public byte[] encode() {
+            return write(out -> {
+                out.writeByte(committed ? COMMITTED : ABORTED);
+                out.writeLong(firstSeq);
+                out.writeLong(lastSeq);
+            });
+        }
+    }
+
+    static LedgerRecord decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte kind = in.readByte();
+            if (kind == ENTRY) {
+                long seq = in.readLong();
+                long userId = in.readLong();
+                BigDecimal amount = new BigDecimal(in.readUTF());
+                String type = in.readUTF();
+                LocalDateTime timestamp = LocalDateTime.parse(in.readUTF());
+                BigDecimal balanceAfter = new BigDecimal(in.readUTF());
+                boolean hasRelated = in.readBoolean();
+                long related = in.readLong();
+                int slot = in.readInt();
+                long accountVersion = in.readLong();
+                return new Entry(seq, userId, amount, type, timestamp, balanceAfter, hasRelated ? related : null, slot, accountVersion);
+            }
+            if (kind == COMMITTED || kind == ABORTED) {
+                return new Outcome(kind == COMMITTED, in.readLong(), in.readLong());
+            }
+            throw new IllegalArgumentException("Unknown ledger record kind " + kind);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] write(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
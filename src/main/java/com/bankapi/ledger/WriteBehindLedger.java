@@ -0,0 +1,457 @@
+package com.bankapi.ledger;
+
+import com.bankapi.config.LedgerProperties;
+import com.bankapi.journal.MappedJournal;
+import com.bankapi.model.LedgerCommit;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.LedgerCommitRepository;
+import com.bankapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind history: bank_transaction rows go to a local {@link MappedJournal} inside the balance
+ * transaction and reach the database later, in large batches, from a background appender.
+ * <p>
+ * Rows handed to {@link #append} are written to the journal in {@code beforeCommit} and fsynced together
+ * with the rows of concurrent transactions, so a committed balance change always has its history on disk.
+ * The same database transaction then inserts a {@link LedgerCommit} marker for its range of entries.
+ * After completion the transaction's outcome is journaled as well (without waiting for fsync); committed
+ * rows are queued for the appender, which inserts them with {@code saveAll} tagged by their journal
+ * sequence number and deletes the marker. The balance transaction thus holds its row locks for one shared
+ * fsync and one small INSERT instead of one INSERT round-trip per history row.
+ * <p>
+ * When the transaction manager cannot tell whether the commit went through, the appender looks the marker
+ * up and settles the entries accordingly. On startup, before the web server accepts requests, segments of
+ * the previous run are replayed: rows of committed transactions missing from bank_transaction are inserted.
+ * A row without a journaled outcome (crash between fsync and commit, or an unknown outcome left unresolved)
+ * counts as committed exactly when its transaction's marker exists.
+ * <p>
+ * History reads lag behind balances by up to {@code bank.ledger.flush-interval} plus the insert time.
+ */
+@Component
+public class WriteBehindLedger implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindLedger.class);
+    private static final int LOOKUP_CHUNK = 1000;
+
+    // closesTransaction - последняя запись своей транзакции: после её вставки отметка коммита не нужна
+    private record Queued(LedgerRecord.Entry entry, long segment, boolean closesTransaction) {
+    }
+
+    private record Unresolved(List<LedgerRecord.Entry> entries, long segment) {
+    }
+
+    @Autowired
+    private LedgerProperties properties;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerCommitRepository commitRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Object appendLock = new Object();
+    private final BlockingQueue<Queued> committed = new LinkedBlockingQueue<>();
+    // Транзакции с неизвестным исходом: их разбирает фоновый поток по отметкам коммита
+    private final Queue<Unresolved> unresolved = new ConcurrentLinkedQueue<>();
+    // Сегмент -> число записей в нём, ещё не вставленных и не отменённых; сегменты левее минимума можно удалять
+    private final ConcurrentSkipListMap<Long, AtomicInteger> outstanding = new ConcurrentSkipListMap<>();
+
+    private MappedJournal journal;
+    private long nextSeq;
+    private Thread appender;
+    private Counter inserted;
+    private volatile boolean running;
+
+    public boolean isActive() {
+        return running;
+    }
+
+    /**
+     * Journals a history row of the current transaction instead of inserting it.
+     *
+     * @param accountVersion version of the row's account as committed by the current transaction
+     */
+    public void append(Transaction row, long accountVersion) {
+        append(row, -1, accountVersion);
+    }
+
+    /**
+     * Same as {@link #append(Transaction, long)} for a row whose balance change went to a hot-account slot.
+     */
+    public void append(Transaction row, int slot, long slotVersion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Ledger rows can only be appended inside a transaction");
+        }
+        PendingRows pending = (PendingRows) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingRows();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.rows.add(row);
+        pending.slots.add(slot);
+        pending.versions.add(slotVersion);
+    }
+
+    /**
+     * Rows of one database transaction; journaled just before it commits.
+     */
+    private class PendingRows implements TransactionSynchronization {
+
+        final List<Transaction> rows = new ArrayList<>();
+        final List<Integer> slots = new ArrayList<>();
+        final List<Long> versions = new ArrayList<>();
+        List<LedgerRecord.Entry> entries;
+        MappedJournal.Position position;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            List<byte[]> records = new ArrayList<>(rows.size());
+            synchronized (appendLock) {
+                entries = new ArrayList<>(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    LedgerRecord.Entry entry = LedgerRecord.Entry.of(nextSeq++, rows.get(i), slots.get(i), versions.get(i));
+                    entries.add(entry);
+                    records.add(entry.encode());
+                }
+                position = journal.append(records);
+                outstanding.computeIfAbsent(position.segment(), s -> new AtomicInteger()).addAndGet(entries.size());
+            }
+            // Исключение здесь откатывает транзакцию: баланс не меняется без записи истории на диске
+            journal.awaitDurable(position);
+            // Отметка фиксируется или откатывается вместе с балансом: по ней узнаётся исход, не попавший в журнал
+            commitRepository.saveAndFlush(new LedgerCommit(firstSeq(), lastSeq()));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(WriteBehindLedger.this);
+            if (position == null) {
+                return;
+            }
+            if (status == STATUS_UNKNOWN) {
+                // Сегмент не освобождается, пока фоновый поток не узнает исход по отметке коммита
+                log.warn("Outcome of ledger entries {}..{} is unknown, resolving it by the commit marker",
+                        firstSeq(), lastSeq());
+                unresolved.add(new Unresolved(entries, position.segment()));
+                return;
+            }
+            settle(status == STATUS_COMMITTED, entries, position.segment());
+        }
+
+        private long firstSeq() {
+            return entries.get(0).seq();
+        }
+
+        private long lastSeq() {
+            return entries.get(entries.size() - 1).seq();
+        }
+    }
+
+    // Записывает исход транзакции в журнал; строки закоммиченной отдаются фоновой вставке
+    private void settle(boolean commit, List<LedgerRecord.Entry> entries, long segment) {
+        long firstSeq = entries.get(0).seq();
+        long lastSeq = entries.get(entries.size() - 1).seq();
+        try {
+            journal.append(List.of(new LedgerRecord.Outcome(commit, firstSeq, lastSeq).encode()));
+        } catch (RuntimeException e) {
+            log.warn("Cannot journal outcome of ledger entries {}..{}", firstSeq, lastSeq, e);
+        }
+        if (commit) {
+            for (int i = 0; i < entries.size(); i++) {
+                committed.add(new Queued(entries.get(i), segment, i == entries.size() - 1));
+            }
+        } else {
+            release(segment, entries.size());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        journal = MappedJournal.open(Path.of(properties.getDirectory()), "ledger",
+                (int) properties.getSegmentSize().toBytes(), properties.isFsync());
+        long lastSeq = recover();
+        Long lastInserted = transactionRepository.findMaxJournalSeq();
+        nextSeq = Math.max(lastSeq, lastInserted != null ? lastInserted : 0L) + 1;
+        journal.deleteSegmentsBefore(journal.currentSegment());
+
+        if (inserted == null) {
+            inserted = Counter.builder("bank.ledger.inserted")
+                    .description("History rows inserted by the ledger appender")
+                    .register(meterRegistry);
+            Gauge.builder("bank.ledger.backlog", committed, BlockingQueue::size)
+                    .description("Committed history rows waiting for the ledger appender")
+                    .register(meterRegistry);
+        }
+        running = true;
+        appender = new Thread(this::appendLoop, "ledger-appender");
+        appender.setDaemon(true);
+        appender.start();
+        log.info("Write-behind ledger started: {}", properties);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            appender.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        if (!committed.isEmpty() || !unresolved.isEmpty()) {
+            log.warn("{} ledger rows and {} transaction(s) with unknown outcome left for recovery on next start",
+                    committed.size(), unresolved.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Раньше веб-сервера: восстановление завершается до первого запроса, а остановка - после последнего
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void appendLoop() {
+        long flushNanos = properties.getFlushInterval().toNanos();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        while (running || !committed.isEmpty()) {
+            resolveUnknown();
+            List<Queued> batch = new ArrayList<>(batchSize);
+            try {
+                Queued first = committed.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Неполный пакет добирается до истечения flush-interval, чтобы вставки шли крупными порциями
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    committed.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Queued next = committed.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!insertWithRetry(batch)) {
+                return;
+            }
+        }
+    }
+
+    // Отметка есть только у закоммиченной транзакции; пока БД недоступна, проверка повторяется на следующем круге
+    private void resolveUnknown() {
+        for (Unresolved next = unresolved.peek(); next != null; next = unresolved.peek()) {
+            List<LedgerRecord.Entry> entries = next.entries();
+            long lastSeq = entries.get(entries.size() - 1).seq();
+            boolean commit;
+            try {
+                commit = commitRepository.existsById(lastSeq);
+            } catch (RuntimeException e) {
+                log.warn("Cannot look up the commit marker of ledger entries up to {}, will retry", lastSeq, e);
+                return;
+            }
+            unresolved.poll();
+            log.info("Ledger entries {}..{} resolved as {}", entries.get(0).seq(), lastSeq,
+                    commit ? "committed" : "rolled back");
+            settle(commit, entries, next.segment());
+        }
+    }
+
+    private boolean insertWithRetry(List<Queued> batch) {
+        List<LedgerRecord.Entry> entries = new ArrayList<>(batch.size());
+        List<Long> markers = new ArrayList<>();
+        for (Queued queued : batch) {
+            entries.add(queued.entry());
+            if (queued.closesTransaction()) {
+                markers.add(queued.entry().seq());
+            }
+        }
+        long backoffMillis = 100;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Повтор мог последовать за коммитом, о котором мы не узнали - вставляем только недостающее
+                int count = attempt == 1 ? insert(entries, markers) : insertMissing(entries, markers);
+                inserted.increment(count);
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Ledger batch insert failed (attempt {}), retrying in {} ms", attempt, backoffMillis, e);
+                if (!running) {
+                    committed.addAll(batch);
+                    return false;
+                }
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    committed.addAll(batch);
+                    return false;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, 5_000);
+            }
+        }
+        Map<Long, Integer> perSegment = new HashMap<>();
+        for (Queued queued : batch) {
+            perSegment.merge(queued.segment(), 1, Integer::sum);
+        }
+        perSegment.forEach(this::release);
+        return true;
+    }
+
+    // markers - отметки коммита транзакций, чьи последние строки входят в entries; удаляются той же транзакцией
+    private int insert(List<LedgerRecord.Entry> entries, List<Long> markers) {
+        List<Transaction> rows = new ArrayList<>(entries.size());
+        for (LedgerRecord.Entry entry : entries) {
+            rows.add(entry.toTransaction());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionRepository.saveAll(rows);
+            if (!markers.isEmpty()) {
+                commitRepository.deleteByLastSeqs(markers);
+            }
+        });
+        return rows.size();
+    }
+
+    private int insertMissing(List<LedgerRecord.Entry> entries, List<Long> markers) {
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < entries.size(); from += LOOKUP_CHUNK) {
+            List<Long> seqs = new ArrayList<>();
+            LocalDateTime earliest = LocalDateTime.MAX;
+            LocalDateTime latest = LocalDateTime.MIN;
+            for (LedgerRecord.Entry entry : entries.subList(from, Math.min(entries.size(), from + LOOKUP_CHUNK))) {
+                seqs.add(entry.seq());
+                earliest = entry.timestamp().isBefore(earliest) ? entry.timestamp() : earliest;
+                latest = entry.timestamp().isAfter(latest) ? entry.timestamp() : latest;
+            }
+            // Запас в секунду: БД хранит метку времени с меньшей точностью, чем LocalDateTime
+            existing.addAll(transactionRepository.findExistingJournalSeqs(seqs, earliest.minusSeconds(1), latest.plusSeconds(1)));
+        }
+        List<LedgerRecord.Entry> missing = new ArrayList<>();
+        for (LedgerRecord.Entry entry : entries) {
+            if (!existing.contains(entry.seq())) {
+                missing.add(entry);
+            }
+        }
+        if (missing.isEmpty() && markers.isEmpty()) {
+            return 0;
+        }
+        return insert(missing, markers);
+    }
+
+    private void release(long segment, int count) {
+        AtomicInteger left = outstanding.get(segment);
+        if (left != null && left.addAndGet(-count) <= 0) {
+            outstanding.remove(segment, left);
+        }
+        long current = journal.currentSegment();
+        long oldestNeeded = outstanding.isEmpty() ? current : Math.min(outstanding.firstKey(), current);
+        journal.deleteSegmentsBefore(oldestNeeded);
+    }
+
+    /**
+     * Inserts the rows of the previous run that are committed but not yet in bank_transaction.
+     *
+     * @return the highest sequence number found in the journal, 0 if it was empty
+     */
+    private long recover() {
+        TreeMap<Long, LedgerRecord.Entry> entries = new TreeMap<>();
+        Map<Long, Boolean> outcomes = new HashMap<>();
+        journal.replay(data -> {
+            LedgerRecord record = LedgerRecord.decode(data);
+            if (record instanceof LedgerRecord.Entry entry) {
+                entries.put(entry.seq(), entry);
+            } else if (record instanceof LedgerRecord.Outcome outcome) {
+                for (long seq = outcome.firstSeq(); seq <= outcome.lastSeq(); seq++) {
+                    outcomes.put(seq, outcome.committed());
+                }
+            }
+        });
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        // Исход, не попавший в журнал, берётся из отметок коммита
+        Set<Long> marked = new HashSet<>();
+        List<Long> undecided = entries.keySet().stream().filter(seq -> !outcomes.containsKey(seq)).toList();
+        if (!undecided.isEmpty()) {
+            for (LedgerCommit marker : commitRepository.findOverlapping(undecided.get(0), undecided.get(undecided.size() - 1))) {
+                for (long seq = marker.getFirstSeq(); seq <= marker.getLastSeq(); seq++) {
+                    marked.add(seq);
+                }
+            }
+        }
+        List<LedgerRecord.Entry> committedEntries = new ArrayList<>();
+        int aborted = 0;
+        for (LedgerRecord.Entry entry : entries.values()) {
+            boolean outcome = outcomes.getOrDefault(entry.seq(), marked.contains(entry.seq()));
+            if (outcome) {
+                committedEntries.add(entry);
+            } else {
+                aborted++;
+            }
+        }
+        int replayed = 0;
+        for (int from = 0; from < committedEntries.size(); from += Math.max(1, properties.getBatchSize())) {
+            int to = Math.min(committedEntries.size(), from + Math.max(1, properties.getBatchSize()));
+            replayed += insertMissing(committedEntries.subList(from, to), List.of());
+        }
+        // Все транзакции прошлого запуска разобраны, их отметки больше не нужны
+        transactionTemplate.executeWithoutResult(status -> commitRepository.deleteUpTo(entries.lastKey()));
+        log.info("Ledger recovery: {} journaled rows, {} inserted now, {} skipped as not committed",
+                entries.size(), replayed, aborted);
+        return entries.lastKey();
+    }
+}
@@ -0,0 +1,145 @@
+package com.bankapi.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * One account's totals for one calendar day of {@code bank_transaction}, written once by the snapshot
+ * job after the day is over. Accounts without operations on a day have no row for it.
+ */
+@Entity
+@Table(name = "bank_balance_snapshot", indexes = {
+        @Index(name = "idx_bank_balance_snapshot_date", columnList = "snapshot_date")
+})
+@IdClass(BalanceSnapshot.Key.class)
+public class BalanceSnapshot implements Persistable<BalanceSnapshot.Key> {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate;
+
+    @Column(name = "opening_balance", nullable = false)
+    private BigDecimal openingBalance;
+
+    @Column(name = "closing_balance", nullable = false)
+    private BigDecimal closingBalance;
+
+    @Column(name = "credit_total", nullable = false)
+    private BigDecimal creditTotal;
+
+    @Column(name = "debit_total", nullable = false)
+    private BigDecimal debitTotal;
+
+    @Column(name = "operation_count", nullable = false)
+    private long operationCount;
+
+    // Строки только вставляются: без флага saveAll делал бы SELECT перед каждой вставкой (merge)
+    @Transient
+    private boolean isNew = true;
+
+    public BalanceSnapshot() {
+    }
+
+    public BalanceSnapshot(Long userId, LocalDate snapshotDate, BigDecimal openingBalance) {
+        this.userId = userId;
+        this.snapshotDate = snapshotDate;
+        this.openingBalance = openingBalance;
+        this.closingBalance = openingBalance;
+        this.creditTotal = BigDecimal.ZERO;
+        this.debitTotal = BigDecimal.ZERO;
+    }
+
+    // Строки дня подаются по возрастанию (timestamp, id): последняя задаёт баланс на конец дня
+    public void apply(Transaction transaction) {
+        if (Transaction.isCredit(transaction.getType())) {
+            creditTotal = creditTotal.add(transaction.getAmount());
+        } else {
+            debitTotal = debitTotal.add(transaction.getAmount());
+        }
+        closingBalance = transaction.getBalanceAfter();
+        operationCount++;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(userId, snapshotDate);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getSnapshotDate() {
+        return snapshotDate;
+    }
+
+    public BigDecimal getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public BigDecimal getClosingBalance() {
+        return closingBalance;
+    }
+
+    public BigDecimal getCreditTotal() {
+        return creditTotal;
+    }
+
+    public BigDecimal getDebitTotal() {
+        return debitTotal;
+    }
+
+    public long getOperationCount() {
+        return operationCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private LocalDate snapshotDate;
+
+        public Key() {
+        }
+
+        public Key(Long userId, LocalDate snapshotDate) {
+            this.userId = userId;
+            this.snapshotDate = snapshotDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(userId, key.userId) && Objects.equals(snapshotDate, key.snapshotDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, snapshotDate);
+        }
+    }
+}
@@ -7,12 +7,17 @@ import java.math.BigDecimal;
 @Table(name = "bank_account")
 public class BankAccount {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bank_account_user_id_seq")
+    @SequenceGenerator(name = "bank_account_user_id_seq", sequenceName = "bank_account_user_id_seq", allocationSize = 50)
     @Column(name = "user_id")
     private Long userId;
 
     @Column(name = "balance", nullable = false)
     private BigDecimal balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
     public BankAccount() {
     }
 
@@ -42,4 +47,8 @@ public class BankAccount {
     public void setUserId(Long userId) {
         this.userId = userId;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.bankapi.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Sub-balance of a hot account (bank.hot-accounts). The account's balance is
+ * {@code bank_account.balance} plus the sum of its slots.
+ */
+@Entity
+@Table(name = "bank_account_slot")
+@IdClass(BankAccountSlot.Key.class)
+public class BankAccountSlot {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+
+    // Меняется только нативными UPDATE; нужен восстановлению журнала истории
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
+
+    public BankAccountSlot() {
+    }
+
+    public BankAccountSlot(Long userId, Integer slot) {
+        this.userId = userId;
+        this.slot = slot;
+        this.balance = BigDecimal.ZERO;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Integer getSlot() {
+        return slot;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private Integer slot;
+
+        public Key() {
+        }
+
+        public Key(Long userId, Integer slot) {
+            this.userId = userId;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(userId, key.userId) && Objects.equals(slot, key.slot);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, slot);
+        }
+    }
+}
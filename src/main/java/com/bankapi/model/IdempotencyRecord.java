@@ -0,0 +1,102 @@
+package com.bankapi.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A client's {@code Idempotency-Key} and the response of the request executed under it.
+ * The row is inserted before the operation runs (claiming the key) and completed with the
+ * response afterwards; a row without {@code completedAt} belongs to an execution in progress.
+ */
+@Entity
+@Table(name = "bank_idempotency_key", indexes = {
+        @Index(name = "idx_bank_idempotency_key_created_at", columnList = "created_at")
+})
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    // Операция и её параметры: ключ нельзя переиспользовать для другого запроса
+    @Column(name = "request_fingerprint", nullable = false, length = 512)
+    private String requestFingerprint;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "http_status")
+    private Integer httpStatus;
+
+    @Column(name = "status")
+    private Integer status;
+
+    @Column(name = "message", length = 1000)
+    private String message;
+
+    // Ключ захватывается вставкой: без флага save сделал бы merge и перезаписал чужую строку
+    @Transient
+    private boolean isNew = true;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String requestFingerprint, LocalDateTime createdAt) {
+        this.key = key;
+        this.requestFingerprint = requestFingerprint;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    public boolean isCompleted() {
+        return completedAt != null;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getRequestFingerprint() {
+        return requestFingerprint;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public Integer getHttpStatus() {
+        return httpStatus;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,57 @@
+package com.bankapi.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Commit marker of the write-behind ledger: written in the same transaction as the balance change whose
+ * history rows are journal entries {@code firstSeq..lastSeq}, so the marker exists exactly when that
+ * transaction committed.
+ */
+@Entity
+@Table(name = "bank_ledger_commit")
+public class LedgerCommit implements Persistable<Long> {
+
+    @Id
+    @Column(name = "last_seq")
+    private Long lastSeq;
+
+    @Column(name = "first_seq", nullable = false)
+    private Long firstSeq;
+
+    // Отметка только вставляется: без флага save сделал бы лишний SELECT перед INSERT
+    @Transient
+    private boolean isNew = true;
+
+    public LedgerCommit() {
+    }
+
+    public LedgerCommit(long firstSeq, long lastSeq) {
+        this.firstSeq = firstSeq;
+        this.lastSeq = lastSeq;
+    }
+
+    @Override
+    public Long getId() {
+        return lastSeq;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    public Long getFirstSeq() {
+        return firstSeq;
+    }
+
+    public Long getLastSeq() {
+        return lastSeq;
+    }
+}
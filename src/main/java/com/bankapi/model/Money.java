@@ -0,0 +1,80 @@
+package com.bankapi.model;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount of money as a {@code long} number of minor units (cents), the scale of the
+ * {@code numeric(38, 2)} balance and amount columns.
+ * <p>
+ * Arithmetic and comparisons are plain {@code long} operations; {@link #plus} and {@link #minus} throw
+ * {@link ArithmeticException} on overflow instead of wrapping around. Conversion to and from
+ * {@link BigDecimal} happens only at the edges: request parameters, JPA entities and JDBC parameters.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Exact conversion; throws {@link ArithmeticException} for more than two decimal places
+     * or an amount outside the {@code long} range of minor units.
+     */
+    public static Money of(BigDecimal amount) {
+        // movePointRight сохраняет компактное представление; unscaledValue() создавал бы BigInteger на каждый вызов
+        return ofMinor(amount.movePointRight(SCALE).longValueExact());
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Money other && minorUnits == other.minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.bankapi.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Committed money movement per history type ({@code DEPOSIT}, {@code WITHDRAW}, {@code TRANSFER_IN}, {@code TRANSFER_OUT}):
+ * {@code bank.money.flow} summary, tag {@code type}; its count is the number of operations, its total the amount moved.
+ * Callers record only after the transaction has committed.
+ */
+@Component
+public class MoneyFlowMetrics {
+
+    static final String MONEY_FLOW = "bank.money.flow";
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public MoneyFlowMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(String type, BigDecimal amount) {
+        summaries.computeIfAbsent(type, this::register).record(amount.doubleValue());
+    }
+
+    private DistributionSummary register(String type) {
+        return DistributionSummary.builder(MONEY_FLOW)
+                .description("Committed money movement by transaction type")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,69 @@
+package com.bankapi.observability;
+
+import java.util.Arrays;
+
+/**
+ * Timing of one operation, confined to the calling thread. Use with try-with-resources:
+ * call {@link #mark} at the end of each phase and {@link #outcome} once the result is known;
+ * an operation closed without an outcome is counted as {@link Outcome#ERROR}.
+ */
+public final class OperationTrace implements AutoCloseable {
+
+    final String operation;
+    final Long userId;
+    final Long relatedUserId;
+    // Только у попавших в выборку: для остальных строка трассировки не пишется
+    final long[] phaseNanos;
+    Outcome outcome = Outcome.ERROR;
+    long totalNanos;
+
+    private final OperationTracer tracer;
+    private final boolean sampled;
+    private final boolean timed;
+    private final long startedAt;
+    private long lastMark;
+
+    OperationTrace(OperationTracer tracer, String operation, Long userId, Long relatedUserId, boolean sampled,
+                   boolean timed) {
+        this.tracer = tracer;
+        this.operation = operation;
+        this.userId = userId;
+        this.relatedUserId = relatedUserId;
+        this.sampled = sampled;
+        this.timed = timed;
+        if (sampled) {
+            this.phaseNanos = new long[Phase.values().length];
+            Arrays.fill(phaseNanos, -1L);
+        } else {
+            this.phaseNanos = null;
+        }
+        this.startedAt = System.nanoTime();
+        this.lastMark = startedAt;
+    }
+
+    public void mark(Phase phase) {
+        long now = System.nanoTime();
+        long elapsed = now - lastMark;
+        lastMark = now;
+        if (phaseNanos != null) {
+            // При повторе оптимистической попытки фаза встречается снова - время суммируется
+            phaseNanos[phase.ordinal()] = Math.max(0L, phaseNanos[phase.ordinal()]) + elapsed;
+        }
+        if (timed) {
+            tracer.record(operation, phase, elapsed);
+        }
+    }
+
+    public void outcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    @Override
+    public void close() {
+        totalNanos = System.nanoTime() - startedAt;
+        tracer.count(operation, outcome);
+        if (sampled) {
+            tracer.emit(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.bankapi.observability;
+
+import com.bankapi.config.TracingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path instrumentation for BankService mutations.
+ * <p>
+ * Every operation records its result into the {@code bank.operations} counter (tags {@code operation},
+ * {@code outcome}, see {@link Outcome}) and, unless {@code bank.tracing.phase-timers=false}, its phases into the
+ * {@code bank.operation.phase} timer (tags {@code operation}, {@code phase}; percentile histogram enabled).
+ * When {@code bank.tracing.enabled} is on, a sampled share of operations is also written as one structured line
+ * to the {@code com.bankapi.trace} logger.
+ * <p>
+ * Cost per operation with tracing off: one small {@link OperationTrace}, a counter increment, and a timer
+ * update per phase while phase timers are on. The per-phase array is allocated only for sampled operations.
+ */
+@Component
+public class OperationTracer {
+
+    static final String PHASE_TIMER = "bank.operation.phase";
+    static final String OUTCOME_COUNTER = "bank.operations";
+
+    private static final Logger TRACE_LOG = LoggerFactory.getLogger("com.bankapi.trace");
+    private static final Phase[] PHASES = Phase.values();
+
+    private final TracingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Timer[]> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter[]> outcomes = new ConcurrentHashMap<>();
+
+    public OperationTracer(TracingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public OperationTrace start(String operation, Long userId) {
+        return start(operation, userId, null);
+    }
+
+    public OperationTrace start(String operation, Long userId, Long relatedUserId) {
+        boolean sampled = properties.isEnabled()
+                && ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+        return new OperationTrace(this, operation, userId, relatedUserId, sampled, properties.isPhaseTimers());
+    }
+
+    void record(String operation, Phase phase, long nanos) {
+        timers.computeIfAbsent(operation, this::registerTimers)[phase.ordinal()]
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void count(String operation, Outcome outcome) {
+        outcomes.computeIfAbsent(operation, this::registerCounters)[outcome.ordinal()].increment();
+    }
+
+    void emit(OperationTrace trace) {
+        StringBuilder line = new StringBuilder(160)
+                .append("op=").append(trace.operation)
+                .append(" outcome=").append(trace.outcome.tagValue())
+                .append(" userId=").append(trace.userId);
+        if (trace.relatedUserId != null) {
+            line.append(" relatedUserId=").append(trace.relatedUserId);
+        }
+        for (Phase phase : PHASES) {
+            long nanos = trace.phaseNanos[phase.ordinal()];
+            if (nanos >= 0) {
+                line.append(' ').append(phase.tagValue()).append("Us=").append(nanos / 1_000);
+            }
+        }
+        line.append(" totalUs=").append(trace.totalNanos / 1_000);
+        TRACE_LOG.info(line.toString());
+    }
+
+    private Counter[] registerCounters(String operation) {
+        Outcome[] values = Outcome.values();
+        Counter[] byOutcome = new Counter[values.length];
+        for (Outcome outcome : values) {
+            byOutcome[outcome.ordinal()] = Counter.builder(OUTCOME_COUNTER)
+                    .description("Balance mutations by result")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome.tagValue())
+                    .register(meterRegistry);
+        }
+        return byOutcome;
+    }
+
+    private Timer[] registerTimers(String operation) {
+        Timer[] byPhase = new Timer[PHASES.length];
+        for (Phase phase : PHASES) {
+            byPhase[phase.ordinal()] = Timer.builder(PHASE_TIMER)
+                    .description("Time spent in one phase of a balance mutation")
+                    .tag("operation", operation)
+                    .tag("phase", phase.tagValue())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        return byPhase;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bankapi.observability;
+
+/**
+ * Result of a balance mutation, used as the {@code outcome} tag of {@code bank.operations}.
+ */
+public enum Outcome {
+    SUCCESS("success"),
+    INSUFFICIENT_FUNDS("insufficient_funds"),
+    USER_NOT_FOUND("user_not_found"),
+    INVALID_AMOUNT("invalid_amount"),
+    // Исключение, не отнесённое ни к одной из причин выше (в т.ч. исчерпанные оптимистические повторы)
+    ERROR("error");
+
+    private final String tagValue;
+
+    Outcome(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
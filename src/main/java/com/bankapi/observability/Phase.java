@@ -0,0 +1,27 @@
+package com.bankapi.observability;
+
+/**
+ * Phases of a balance mutation, each timed from the previous mark.
+ * <p>
+ * JPA defers entity UPDATEs and INSERTs to the flush at commit, so on the read-modify-write
+ * paths most of the SQL time lands in {@link #COMMIT}; the single-statement paths execute
+ * their UPDATE in {@link #UPDATE} and have no separate {@link #LOOKUP}.
+ */
+public enum Phase {
+    // От начала операции до загрузки счетов, включая ожидание полосной блокировки
+    LOOKUP("lookup"),
+    UPDATE("update"),
+    HISTORY("history"),
+    // Выход из TransactionTemplate: flush и COMMIT
+    COMMIT("commit");
+
+    private final String tagValue;
+
+    Phase(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,47 @@
+package com.bankapi.observability;
+
+import com.bankapi.config.TracingProperties;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/tracing} shows the current tracing settings,
+ * {@code POST /actuator/tracing} with {@code {"enabled": true, "sampleRate": 0.05}} changes them without a restart;
+ * {@code "phaseTimers": false} turns off the per-phase timers.
+ */
+@Component
+@Endpoint(id = "tracing")
+public class TracingEndpoint {
+
+    private final TracingProperties properties;
+
+    public TracingEndpoint(TracingProperties properties) {
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        return Map.of("enabled", properties.isEnabled(), "sampleRate", properties.getSampleRate(),
+                "phaseTimers", properties.isPhaseTimers());
+    }
+
+    @WriteOperation
+    public Map<String, Object> update(@Nullable Boolean enabled, @Nullable Double sampleRate,
+                                      @Nullable Boolean phaseTimers) {
+        if (sampleRate != null) {
+            properties.setSampleRate(sampleRate);
+        }
+        if (enabled != null) {
+            properties.setEnabled(enabled);
+        }
+        if (phaseTimers != null) {
+            properties.setPhaseTimers(phaseTimers);
+        }
+        return settings();
+    }
+}
@@ -0,0 +1,73 @@
+package com.bankapi.replica;
+
+import com.bankapi.config.DataSourceProperties;
+import com.bankapi.config.DataSourceTuningProperties;
+import com.bankapi.config.ReplicaProperties;
+import com.bankapi.datasource.DataSourceConfiguration;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data sources for {@code bank.replicas.enabled=true}: one pool per replica, with the statement settings of
+ * the primary pool ({@link DataSourceConfiguration}), and the application's {@link DataSource} routing
+ * between the primary and the replicas (see {@link ReplicaRouter}). Without the property the primary pool
+ * is the application's only data source.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bank.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration implements DisposableBean {
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties dataSourceProperties,
+                                 DataSourceTuningProperties tuning, ReplicaProperties properties, ReplicaRouter router,
+                                 MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>();
+        List<DataSource> replicas = new ArrayList<>();
+        List<ReplicaProperties.Instance> instances = properties.getInstances();
+        for (int i = 0; i < instances.size(); i++) {
+            ReplicaProperties.Instance instance = instances.get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + (i + 1));
+            pool.setJdbcUrl(instance.getUrl());
+            pool.setUsername(instance.getUsername());
+            pool.setPassword(instance.getPassword());
+            pool.setDriverClassName(dataSourceProperties.getDriverClassName());
+            pool.setMaximumPoolSize(properties.getMaximumPoolSize());
+            pool.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            pool.setReadOnly(true);
+            DataSourceConfiguration.applyStatementSettings(pool, tuning.getStatements());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicaPools.add(pool);
+            replicas.add(pool);
+            targets.put(i, pool);
+        }
+        router.attach(primaryDataSource, replicas);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(router);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.setTargetDataSources(targets);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Override
+    public void destroy() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,323 @@
+package com.bankapi.replica;
+
+import com.bankapi.config.ReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Chooses the database that serves a read: one of the {@code bank.replicas.instances} or the primary.
+ * <p>
+ * A monitor thread samples the primary's log position every {@code check-interval} and the position each
+ * replica has replayed. A replica is eligible while it has replayed everything the primary had written
+ * {@code max-lag} ago. Read-your-writes is tracked per account: after a mutation commits, the account is
+ * stamped with the commit time, and until the stamp expires its reads go only to replicas that have replayed
+ * a primary position sampled after that time. When no replica qualifies, or the monitor has no fresh
+ * samples, the read goes to the primary.
+ * <p>
+ * The choice is made by {@link #read} and applied by {@link ReplicaRoutingDataSource} when a read-only
+ * transaction opens its connection; everything else, including all writes, uses the primary. With
+ * {@code bank.replicas.enabled=false} {@link #read} just runs the reader.
+ * <p>
+ * Metrics: {@code bank.replica.reads} by {@code target=primary|replica-N}, and {@code bank.replica.lag}
+ * by {@code replica}, in units of the position queries (bytes of WAL for PostgreSQL).
+ */
+@Component
+public class ReplicaRouter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+    private static final long DOWN = -1;
+
+    private record Sample(long startedNanos, long position) {
+    }
+
+    private final ReplicaProperties properties;
+    private final MeterRegistry meterRegistry;
+    // Время коммита последней записи по счёту; живёт, пока реплики могут её ещё не содержать
+    private final Cache<Long, Long> writes;
+    private final ThreadLocal<Integer> route = new ThreadLocal<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private DataSource primary;
+    private List<DataSource> replicas = List.of();
+    private Counter primaryReads;
+    private Counter[] replicaReads;
+    // Публикуются монитором целиком: читатели видят согласованные снимки без блокировок
+    private volatile List<Sample> samples = List.of();
+    private volatile long[] replayed = new long[0];
+    private volatile boolean running;
+    private Thread monitor;
+
+    public ReplicaRouter(ReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.writes = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getMaxLag().multipliedBy(2).plus(properties.getCheckInterval()))
+                .maximumSize(1_000_000)
+                .build();
+    }
+
+    /**
+     * Called once by {@link ReplicaDataSourceConfiguration} with the pools to monitor;
+     * replica {@code i} is routed to with lookup key {@code i}.
+     */
+    void attach(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        long[] positions = new long[replicas.size()];
+        Arrays.fill(positions, DOWN);
+        this.replayed = positions;
+        primaryReads = readCounter("primary");
+        replicaReads = new Counter[replicas.size()];
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = i;
+            replicaReads[i] = readCounter(replicaName(i));
+            Gauge.builder("bank.replica.lag", this, router -> router.lag(index))
+                    .description("Primary log position minus the position replayed by the replica")
+                    .tag("replica", replicaName(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isActive() {
+        return running;
+    }
+
+    /**
+     * Runs a reader of the given account's data. Read-only transactions it opens are routed to an
+     * eligible replica, if any.
+     */
+    public <T> T read(Long userId, Supplier<T> reader) {
+        if (!running) {
+            return reader.get();
+        }
+        Integer target = choose(userId);
+        (target == null ? primaryReads : replicaReads[target]).increment();
+        Integer outer = route.get();
+        route.set(target);
+        try {
+            return reader.get();
+        } finally {
+            if (outer == null) {
+                route.remove();
+            } else {
+                route.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Marks the accounts as written once the current transaction commits (right away when no transaction
+     * is active), so their next reads see the write.
+     */
+    public void recordWriteAfterCommit(Collection<Long> userIds) {
+        if (!running) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordWrite(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordWrite(userIds);
+            }
+        });
+    }
+
+    // Ключ реплики для текущего read(); null - основная БД
+    Integer currentReplica() {
+        return route.get();
+    }
+
+    private void recordWrite(Collection<Long> userIds) {
+        long committed = System.nanoTime();
+        for (Long userId : userIds) {
+            writes.put(userId, committed);
+        }
+    }
+
+    private Integer choose(Long userId) {
+        List<Sample> history = samples;
+        long[] positions = replayed;
+        long now = System.nanoTime();
+        long cutoff = now - properties.getMaxLag().toNanos();
+        // Монитор не получает позицию основной БД: отставание реплик неизвестно
+        if (history.isEmpty() || history.get(history.size() - 1).startedNanos() - cutoff < 0) {
+            return null;
+        }
+        Sample lagBound = null;
+        for (Sample sample : history) {
+            if (sample.startedNanos() - cutoff <= 0) {
+                lagBound = sample;
+            }
+        }
+        if (lagBound == null) {
+            return null;
+        }
+        long required = lagBound.position();
+
+        Long written = writes.getIfPresent(userId);
+        if (written != null) {
+            Sample afterWrite = null;
+            for (Sample sample : history) {
+                if (sample.startedNanos() - written > 0) {
+                    afterWrite = sample;
+                    break;
+                }
+            }
+            // Позиция с этой записью ещё не известна
+            if (afterWrite == null) {
+                return null;
+            }
+            required = Math.max(required, afterWrite.position());
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            int index = (start + i) % positions.length;
+            if (positions[index] >= required) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || replicas.isEmpty()) {
+            return;
+        }
+        running = true;
+        monitor = new Thread(this::monitorLoop, "replica-monitor");
+        monitor.setDaemon(true);
+        monitor.start();
+        log.info("Replica routing started: {}", properties);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        monitor.interrupt();
+        try {
+            monitor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Раньше веб-сервера: первые чтения уже видят позиции реплик, а остановка - после последнего запроса
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void monitorLoop() {
+        long intervalMillis = properties.getCheckInterval().toMillis();
+        while (running) {
+            check();
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void check() {
+        long started = System.nanoTime();
+        Long position = queryPosition(primary, properties.getPrimaryPositionQuery(), "primary");
+        if (position != null) {
+            long cutoff = started - properties.getMaxLag().toNanos();
+            List<Sample> history = samples;
+            // Старше cutoff нужен только самый свежий образец: он и задаёт допустимое отставание
+            int from = 0;
+            for (int i = 1; i < history.size(); i++) {
+                if (history.get(i).startedNanos() - cutoff <= 0) {
+                    from = i;
+                }
+            }
+            List<Sample> next = new ArrayList<>(history.subList(from, history.size()));
+            next.add(new Sample(started, position));
+            samples = next;
+        }
+
+        long[] previous = replayed;
+        long[] next = new long[replicas.size()];
+        for (int i = 0; i < next.length; i++) {
+            Long replica = queryPosition(replicas.get(i), properties.getReplicaPositionQuery(), replicaName(i));
+            next[i] = replica != null ? replica : DOWN;
+            if (next[i] == DOWN && previous[i] != DOWN) {
+                log.warn("Replica {} is unavailable, its reads go to the primary", replicaName(i));
+            } else if (next[i] != DOWN && previous[i] == DOWN) {
+                log.info("Replica {} is available at position {}", replicaName(i), next[i]);
+            }
+        }
+        replayed = next;
+    }
+
+    private Long queryPosition(DataSource dataSource, String sql, String name) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            if (!result.next()) {
+                return null;
+            }
+            long position = result.getLong(1);
+            return result.wasNull() ? null : position;
+        } catch (SQLException e) {
+            log.debug("Position query on {} failed: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private double lag(int replica) {
+        List<Sample> history = samples;
+        long position = replayed[replica];
+        if (history.isEmpty() || position == DOWN) {
+            return Double.NaN;
+        }
+        return Math.max(0, history.get(history.size() - 1).position() - position);
+    }
+
+    private Counter readCounter(String target) {
+        return Counter.builder("bank.replica.reads")
+                .description("Routed reads by the database that served them")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static String replicaName(int index) {
+        return "replica-" + (index + 1);
+    }
+}
@@ -0,0 +1,26 @@
+package com.bankapi.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out connections of the replica chosen by {@link ReplicaRouter#read} to read-only transactions,
+ * and of the primary (the default target) to everything else.
+ * <p>
+ * A transaction is known to be read-only only after it has begun, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the target is then chosen at the
+ * first statement rather than when the transaction manager asks for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaRouter router;
+
+    public ReplicaRoutingDataSource(ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? router.currentReplica() : null;
+    }
+}
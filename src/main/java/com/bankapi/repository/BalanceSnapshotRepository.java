@@ -0,0 +1,29 @@
+package com.bankapi.repository;
+
+import com.bankapi.dto.PeriodTotals;
+import com.bankapi.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, BalanceSnapshot.Key> {
+
+    // Последний день, до которого снимки построены (индекс по snapshot_date)
+    @Query("select max(s.snapshotDate) from BalanceSnapshot s")
+    LocalDate findLastSnapshotDate();
+
+    // Ближайший снимок перед днём: его closing_balance - баланс на начало дня. Поиск по первичному ключу
+    Optional<BalanceSnapshot> findFirstByUserIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(Long userId, LocalDate date);
+
+    // Первый снимок начиная с дня: его opening_balance - баланс до первой операции счёта после снятых дней
+    Optional<BalanceSnapshot> findFirstByUserIdAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(Long userId, LocalDate date);
+
+    @Query("select new com.bankapi.dto.PeriodTotals(sum(s.creditTotal), sum(s.debitTotal), sum(s.operationCount))"
+            + " from BalanceSnapshot s where s.userId = :userId and s.snapshotDate between :from and :to")
+    PeriodTotals sumPeriod(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,34 @@
+package com.bankapi.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Single-statement balance mutations that bypass the persistence context.
+ * Both methods bump {@code version}, so optimistic readers still notice the change.
+ */
+public interface BalanceUpdateRepository {
+
+    /**
+     * Balance and version of the row right after the UPDATE.
+     */
+    record BalanceChange(BigDecimal balance, long version) {
+    }
+
+    // balance = balance + :amount; возвращает новый баланс или null, если счёта нет
+    BalanceChange addToBalance(Long userId, BigDecimal amount);
+
+    // balance = balance - :amount WHERE balance >= :amount; null, если счёта нет или не хватает средств
+    BalanceChange subtractFromBalance(Long userId, BigDecimal amount);
+
+    // balance = balance + :amount в одном слоте горячего счёта; null, если такого слота нет
+    BalanceChange addToSlot(Long userId, int slot, BigDecimal amount);
+
+    /**
+     * Locks the account row, then all its slots, zeroes the slots and returns what they held.
+     * The caller adds the result to the account row in the same transaction.
+     * Account row first, slots second: a transaction that also credits a slot takes that slot lock
+     * after every account row it locks, so credits to hot accounts never join a group commit,
+     * where a slot credit could precede other units' account rows.
+     */
+    BigDecimal drainSlots(Long userId);
+}
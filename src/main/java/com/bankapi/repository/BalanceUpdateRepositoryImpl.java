@@ -0,0 +1,135 @@
+package com.bankapi.repository;
+
+import com.bankapi.model.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Runs the conditional UPDATE and reads the new balance and version back in one round-trip:
+ * {@code UPDATE ... RETURNING} on PostgreSQL, a {@code FINAL TABLE} delta query on H2.
+ * Other databases fall back to UPDATE followed by a SELECT of the row the UPDATE has just locked.
+ */
+public class BalanceUpdateRepositoryImpl implements BalanceUpdateRepository {
+
+    private static final String CREDIT = "UPDATE bank_account SET balance = balance + :amount, version = version + 1"
+            + " WHERE user_id = :userId";
+    private static final String DEBIT = "UPDATE bank_account SET balance = balance - :amount, version = version + 1"
+            + " WHERE user_id = :userId AND balance >= :amount";
+    private static final String SLOT_CREDIT = "UPDATE bank_account_slot SET balance = balance + :amount, version = version + 1"
+            + " WHERE user_id = :userId AND slot = :slot";
+
+    private enum Flavor { RETURNING, FINAL_TABLE, UPDATE_THEN_SELECT }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Flavor flavor;
+
+    @Override
+    public BalanceChange addToBalance(Long userId, BigDecimal amount) {
+        return apply(CREDIT, userId, amount);
+    }
+
+    @Override
+    public BalanceChange subtractFromBalance(Long userId, BigDecimal amount) {
+        return apply(DEBIT, userId, amount);
+    }
+
+    @Override
+    public BalanceChange addToSlot(Long userId, int slot, BigDecimal amount) {
+        return apply(SLOT_CREDIT, "bank_account_slot", userId, slot, amount);
+    }
+
+    @Override
+    public BigDecimal drainSlots(Long userId) {
+        entityManager.createNativeQuery("SELECT balance FROM bank_account WHERE user_id = :userId FOR UPDATE")
+                .setParameter("userId", userId)
+                .getResultList();
+        List<?> slots = entityManager
+                .createNativeQuery("SELECT balance FROM bank_account_slot WHERE user_id = :userId ORDER BY slot FOR UPDATE")
+                .setParameter("userId", userId)
+                .getResultList();
+        Money total = Money.ZERO;
+        for (Object value : slots) {
+            total = total.plus(Money.of(toBigDecimal(value)));
+        }
+        if (total.signum() != 0) {
+            entityManager.createNativeQuery("UPDATE bank_account_slot SET balance = 0, version = version + 1"
+                            + " WHERE user_id = :userId AND balance <> 0")
+                    .setParameter("userId", userId)
+                    .executeUpdate();
+        }
+        return total.toBigDecimal();
+    }
+
+    private BalanceChange apply(String update, Long userId, BigDecimal amount) {
+        return apply(update, "bank_account", userId, null, amount);
+    }
+
+    private BalanceChange apply(String update, String table, Long userId, Integer slot, BigDecimal amount) {
+        switch (flavor()) {
+            case RETURNING:
+                return singleChange(bind(entityManager.createNativeQuery(update + " RETURNING balance, version"), userId, slot, amount));
+            case FINAL_TABLE:
+                return singleChange(bind(entityManager.createNativeQuery(
+                        "SELECT balance, version FROM FINAL TABLE (" + update + ")"), userId, slot, amount));
+            default:
+                int updated = bind(entityManager.createNativeQuery(update), userId, slot, amount).executeUpdate();
+                if (updated == 0) {
+                    return null;
+                }
+                Query select = entityManager.createNativeQuery("SELECT balance, version FROM " + table
+                        + " WHERE user_id = :userId" + (slot != null ? " AND slot = :slot" : ""));
+                select.setParameter("userId", userId);
+                if (slot != null) {
+                    select.setParameter("slot", slot);
+                }
+                return singleChange(select);
+        }
+    }
+
+    private Query bind(Query query, Long userId, Integer slot, BigDecimal amount) {
+        query.setParameter("userId", userId).setParameter("amount", amount);
+        return slot != null ? query.setParameter("slot", slot) : query;
+    }
+
+    private BalanceChange singleChange(Query query) {
+        List<?> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = (Object[]) rows.get(0);
+        return new BalanceChange(toBigDecimal(row[0]), ((Number) row[1]).longValue());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    private Flavor flavor() {
+        Flavor current = flavor;
+        if (current == null) {
+            Dialect dialect = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect();
+            if (dialect instanceof PostgreSQLDialect) {
+                current = Flavor.RETURNING;
+            } else if (dialect instanceof H2Dialect) {
+                current = Flavor.FINAL_TABLE;
+            } else {
+                current = Flavor.UPDATE_THEN_SELECT;
+            }
+            flavor = current;
+        }
+        return current;
+    }
+}
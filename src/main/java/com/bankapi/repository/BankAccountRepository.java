@@ -1,7 +1,73 @@
 package com.bankapi.repository;
 
+import com.bankapi.dto.BalanceResponse;
 import com.bankapi.model.BankAccount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BankAccountRepository extends JpaRepository<BankAccount, Long>, BalanceUpdateRepository {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from BankAccount a where a.userId = :userId")
+    Optional<BankAccount> findByIdForUpdate(@Param("userId") Long userId);
+
+    // SELECT ... ORDER BY user_id FOR UPDATE: строки блокируются по возрастанию id,
+    // поэтому встречные переводы не могут взаимно заблокироваться
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from BankAccount a where a.userId in :userIds order by a.userId")
+    List<BankAccount> findAllByIdForUpdate(@Param("userIds") Collection<Long> userIds);
+
+    @Query("select a.version from BankAccount a where a.userId = :userId")
+    Long findVersion(@Param("userId") Long userId);
+
+    // Баланс горячего счёта: строка счёта плюс все его слоты; null, если счёта нет
+    // Одно значение вместо управляемой сущности: без снимка для dirty checking и без сброса контекста перед запросом
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select a.balance from BankAccount a where a.userId = :userId")
+    Optional<BigDecimal> findBalance(@Param("userId") Long userId);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(value = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM bank_account_slot s WHERE s.user_id = a.user_id), 0)"
+            + " FROM bank_account a WHERE a.user_id = :userId", nativeQuery = true)
+    BigDecimal findTotalBalance(@Param("userId") Long userId);
+
+    // Баланс горячего счёта на момент before: текущая сумма строки и слотов минус обороты с before.
+    // Одним запросом, чтобы баланс и обороты были прочитаны из одного снимка
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select a.balance"
+            + " + coalesce((select sum(s.balance) from BankAccountSlot s where s.userId = a.userId), 0)"
+            + " - coalesce((select sum(case when t.type in ('DEPOSIT', 'TRANSFER_IN') then t.amount else -t.amount end)"
+            + " from Transaction t where t.userId = a.userId and t.timestamp >= :before), 0)"
+            + " from BankAccount a where a.userId = :userId")
+    BigDecimal findTotalBalanceBefore(@Param("userId") Long userId, @Param("before") LocalDateTime before);
+
+    @Query("select coalesce(sum(s.balance), 0) from BankAccountSlot s where s.userId = :userId")
+    BigDecimal findSlotTotal(@Param("userId") Long userId);
+
+    // Все балансы одним запросом без управляемых сущностей: загрузка AccountEngine при старте
+    @Transactional(readOnly = true)
+    @Query("select new com.bankapi.dto.BalanceResponse(a.userId, a.balance) from BankAccount a")
+    List<BalanceResponse> findAllBalances();
+
+    // Абсолютный баланс из проекции AccountEngine; version растёт, как при любом изменении баланса
+    @Modifying
+    @Query("update BankAccount a set a.balance = :balance, a.version = a.version + 1 where a.userId = :userId")
+    int setBalance(@Param("userId") Long userId, @Param("balance") BigDecimal balance);
 }
@@ -0,0 +1,17 @@
+package com.bankapi.repository;
+
+import com.bankapi.model.BankAccountSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BankAccountSlotRepository extends JpaRepository<BankAccountSlot, BankAccountSlot.Key> {
+
+    @Query("select s.slot from BankAccountSlot s where s.userId = :userId")
+    List<Integer> findSlotNumbers(@Param("userId") Long userId);
+
+    @Query("select distinct s.userId from BankAccountSlot s")
+    List<Long> findSlottedUserIds();
+}
@@ -0,0 +1,31 @@
+package com.bankapi.repository;
+
+import com.bankapi.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Сохраняет ответ запроса под захваченным ключом
+    @Modifying
+    @Query("update IdempotencyRecord r set r.httpStatus = :httpStatus, r.status = :status, r.message = :message,"
+            + " r.completedAt = :completedAt where r.key = :key and r.completedAt is null")
+    int complete(@Param("key") String key, @Param("httpStatus") int httpStatus, @Param("status") int status,
+                 @Param("message") String message, @Param("completedAt") LocalDateTime completedAt);
+
+    // Освобождает ключ исполнения, не давшего результата: повтор исполнит запрос заново
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.key = :key and r.completedAt is null")
+    int release(@Param("key") String key);
+
+    // Удаление ключей старше срока хранения (индекс по created_at)
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,28 @@
+package com.bankapi.repository;
+
+import com.bankapi.model.LedgerCommit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerCommitRepository extends JpaRepository<LedgerCommit, Long> {
+
+    // Отметки транзакций, чьи записи пересекаются с диапазоном номеров fromSeq..toSeq
+    @Query("select c from LedgerCommit c where c.lastSeq >= :fromSeq and c.firstSeq <= :toSeq")
+    List<LedgerCommit> findOverlapping(@Param("fromSeq") long fromSeq, @Param("toSeq") long toSeq);
+
+    // Строки истории этих транзакций уже в bank_transaction: отметки больше не нужны
+    @Modifying
+    @Query("delete from LedgerCommit c where c.lastSeq in :lastSeqs")
+    int deleteByLastSeqs(@Param("lastSeqs") Collection<Long> lastSeqs);
+
+    @Modifying
+    @Query("delete from LedgerCommit c where c.lastSeq <= :lastSeq")
+    int deleteUpTo(@Param("lastSeq") long lastSeq);
+}
@@ -1,20 +1,133 @@
 package com.bankapi.repository;
 
+import com.bankapi.dto.PeriodTotals;
+import com.bankapi.dto.TransactionView;
 import com.bankapi.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    // Полные сущности для внутренних вызовов (getOperationList): загружаются только для чтения, без снимков dirty checking
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
     List<Transaction> findByUserId(Long userId);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
     List<Transaction> findByUserIdAndTimestampBetween(Long userId, LocalDateTime startDate, LocalDateTime endDate);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
     List<Transaction> findByUserIdAndTimestampAfter(Long userId, LocalDateTime startDate);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL")
+    })
     List<Transaction> findByUserIdAndTimestampBefore(Long userId, LocalDateTime endDate);
-}
\ No newline at end of file
+
+    // Keyset-пагинация по индексу (user_id, timestamp, id): стоимость страницы не зависит от длины истории.
+    // Страницы читаются проекцией в record: сущности не попадают в контекст и не сериализуются Jackson напрямую
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new com.bankapi.dto.TransactionView(t.id, t.userId, t.amount, t.type, t.timestamp, t.balanceAfter, t.relatedUserId)"
+            + " from Transaction t where t.userId = :userId"
+            + " and t.timestamp >= :startDate and t.timestamp <= :endDate"
+            + " order by t.timestamp asc, t.id asc")
+    List<TransactionView> findFirstPage(@Param("userId") Long userId,
+                                    @Param("startDate") LocalDateTime startDate,
+                                    @Param("endDate") LocalDateTime endDate,
+                                    Limit limit);
+
+    // Отдельное условие t.timestamp >= :afterTimestamp избыточно для результата, но по сравнению кортежей
+    // PostgreSQL не отсекает секции bank_transaction - без него страница читала бы все месяцы до endDate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query("select new com.bankapi.dto.TransactionView(t.id, t.userId, t.amount, t.type, t.timestamp, t.balanceAfter, t.relatedUserId)"
+            + " from Transaction t where t.userId = :userId"
+            + " and (t.timestamp, t.id) > (:afterTimestamp, :afterId)"
+            + " and t.timestamp >= :afterTimestamp and t.timestamp <= :endDate"
+            + " order by t.timestamp asc, t.id asc")
+    List<TransactionView> findPageAfter(@Param("userId") Long userId,
+                                    @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                    @Param("afterId") Long afterId,
+                                    @Param("endDate") LocalDateTime endDate,
+                                    Limit limit);
+
+    // Однонаправленный курсор для выгрузки: строки читаются порциями по fetch size, а не списком целиком.
+    // Вызывать только внутри транзакции и закрывать поток (try-with-resources)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select new com.bankapi.dto.TransactionView(t.id, t.userId, t.amount, t.type, t.timestamp, t.balanceAfter, t.relatedUserId)"
+            + " from Transaction t where t.userId = :userId"
+            + " and t.timestamp >= :startDate and t.timestamp <= :endDate"
+            + " order by t.timestamp asc, t.id asc")
+    Stream<TransactionView> streamHistory(@Param("userId") Long userId,
+                                      @Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate);
+
+    // Все строки календарного дня по индексу (timestamp, id) - вход задания снимков балансов
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select t from Transaction t where t.timestamp >= :from and t.timestamp < :to"
+            + " order by t.timestamp asc, t.id asc")
+    Stream<Transaction> streamPeriod(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select min(t.timestamp) from Transaction t")
+    LocalDateTime findFirstTimestamp();
+
+    // Последняя строка счёта в [from, before): её balance_after - баланс на момент before
+    @Query("select t from Transaction t where t.userId = :userId"
+            + " and t.timestamp >= :from and t.timestamp < :before"
+            + " order by t.timestamp desc, t.id desc")
+    List<Transaction> findLastInPeriod(@Param("userId") Long userId,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("before") LocalDateTime before,
+                                       Limit limit);
+
+    @Query("select t from Transaction t where t.userId = :userId and t.timestamp >= :from"
+            + " order by t.timestamp asc, t.id asc")
+    List<Transaction> findFirstFrom(@Param("userId") Long userId, @Param("from") LocalDateTime from, Limit limit);
+
+    // Обороты по строкам [from, to) - используется только для хвоста, ещё не покрытого снимками
+    @Query("select new com.bankapi.dto.PeriodTotals("
+            + " sum(case when t.type in ('DEPOSIT', 'TRANSFER_IN') then t.amount else 0 end),"
+            + " sum(case when t.type in ('WITHDRAW', 'TRANSFER_OUT') then t.amount else 0 end),"
+            + " count(t))"
+            + " from Transaction t where t.userId = :userId and t.timestamp >= :from and t.timestamp < :to")
+    PeriodTotals sumPeriod(@Param("userId") Long userId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Какие записи журнала уже вставлены (восстановление и повтор фоновой вставки).
+    // Границы по времени записей ограничивают поиск их секциями bank_transaction
+    @Query("select t.journalSeq from Transaction t where t.journalSeq in :seqs"
+            + " and t.timestamp >= :from and t.timestamp <= :to")
+    List<Long> findExistingJournalSeqs(@Param("seqs") Collection<Long> seqs,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+
+    @Query("select max(t.journalSeq) from Transaction t")
+    Long findMaxJournalSeq();
+}
@@ -0,0 +1,78 @@
+package com.bankapi.service;
+
+import com.bankapi.config.ConcurrencyProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-JVM locks keyed by account id.
+ * <p>
+ * Stripes are always acquired in ascending stripe order, so two callers locking
+ * overlapping account sets cannot deadlock, while callers touching unrelated
+ * accounts (different stripes) proceed in parallel. The lock is meant to be held
+ * around a whole database transaction: rows are then locked by at most one
+ * thread of this instance at a time, and the database row locks only arbitrate
+ * between instances.
+ */
+@Component
+public class AccountLockStripes {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final ReentrantLock[] stripes;
+    private final int shift;
+
+    public AccountLockStripes(ConcurrencyProperties properties) {
+        int size = 1;
+        while (size < properties.getLockStripes()) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.shift = 64 - Integer.numberOfTrailingZeros(size);
+    }
+
+    public <T> T callLocked(Collection<Long> accountIds, Supplier<T> action) {
+        int[] indexes = accountIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    public void runLocked(Collection<Long> accountIds, Runnable action) {
+        callLocked(accountIds, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    int stripeIndex(Long accountId) {
+        if (shift == 64) {
+            return 0;
+        }
+        // Мультипликативное хеширование: соседние id попадают в разные полосы
+        return (int) ((accountId * GOLDEN_RATIO) >>> shift);
+    }
+}
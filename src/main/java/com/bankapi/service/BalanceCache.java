@@ -0,0 +1,75 @@
+package com.bankapi.service;
+
+import com.bankapi.config.BalanceCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Local read-through cache of account balances, bounded by size and time since load.
+ * <p>
+ * Writers never put values: they evict the affected accounts once their transaction has committed.
+ * Loads go through {@link Cache#get}, which computes atomically per key, so an eviction that races
+ * with a load of the pre-commit balance waits for that load and then removes its result.
+ * Unknown accounts are not cached.
+ * <p>
+ * Metrics are published through {@link CaffeineCacheMetrics} under {@code cache.*} with tag {@code cache=balance}
+ * ({@code cache.gets} by {@code result=hit|miss}, {@code cache.evictions}, {@code cache.size}, ...).
+ */
+@Component
+public class BalanceCache {
+
+    private final BalanceCacheProperties properties;
+    private final Cache<Long, BigDecimal> cache;
+
+    public BalanceCache(BalanceCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "balance");
+    }
+
+    public BigDecimal get(Long userId, Function<Long, BigDecimal> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(userId);
+        }
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Evicts the given accounts after the current transaction commits, or right away when
+     * no transaction is active. A rolled-back transaction changed nothing and evicts nothing.
+     */
+    public void evictAfterCommit(Long... userIds) {
+        evictAfterCommit(List.of(userIds));
+    }
+
+    public void evictAfterCommit(Collection<Long> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll(userIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidateAll(userIds);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,172 @@
+package com.bankapi.service;
+
+import com.bankapi.config.BalanceSnapshotProperties;
+import com.bankapi.model.BalanceSnapshot;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BalanceSnapshotRepository;
+import com.bankapi.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Incrementally builds {@code bank_balance_snapshot}: one row per account and calendar day with the
+ * opening and closing balance, credit and debit totals and the number of operations.
+ * <p>
+ * Days are snapshotted strictly in order, each in its own transaction, once the day is over by
+ * {@code bank.snapshots.settle-delay}. Every day up to {@link #coveredUntil()} is therefore complete,
+ * and readers combine snapshots up to that day with raw rows after it, so the raw part never spans
+ * more than the not yet snapshotted tail. Each day is read once, by the {@code (timestamp, id)} index.
+ * <p>
+ * Several instances may run the job: a day inserted by another instance fails here on the primary key
+ * and the watermark is re-read on the next run.
+ */
+@Component
+public class BalanceSnapshotJob implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotJob.class);
+
+    private final BalanceSnapshotProperties properties;
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+
+    // Последний день, за который снимки построены; null - снимков нет
+    private volatile LocalDate coveredUntil;
+    private ScheduledExecutorService scheduler;
+    private Counter snapshotted;
+    private volatile boolean running;
+
+    public BalanceSnapshotJob(BalanceSnapshotProperties properties, TransactionRepository transactionRepository,
+                              BalanceSnapshotRepository snapshotRepository, TransactionTemplate transactionTemplate,
+                              EntityManager entityManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transactionRepository = transactionRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public LocalDate coveredUntil() {
+        return coveredUntil;
+    }
+
+    /**
+     * Snapshots every day after {@link #coveredUntil()} up to and including {@code lastDay}.
+     *
+     * @return number of days snapshotted
+     */
+    public synchronized int snapshotUntil(LocalDate lastDay) {
+        LocalDate next;
+        if (coveredUntil != null) {
+            next = coveredUntil.plusDays(1);
+        } else {
+            LocalDateTime first = transactionRepository.findFirstTimestamp();
+            if (first == null) {
+                return 0;
+            }
+            next = first.toLocalDate();
+        }
+        int days = 0;
+        for (LocalDate day = next; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            LocalDate current = day;
+            int accounts = transactionTemplate.execute(status -> snapshotDay(current));
+            coveredUntil = current;
+            snapshotted.increment(accounts);
+            days++;
+        }
+        return days;
+    }
+
+    private int snapshotDay(LocalDate day) {
+        Map<Long, BalanceSnapshot> snapshots = new HashMap<>();
+        try (Stream<Transaction> rows = transactionRepository.streamPeriod(day.atStartOfDay(), day.plusDays(1).atStartOfDay())) {
+            for (Transaction row : (Iterable<Transaction>) rows::iterator) {
+                snapshots.computeIfAbsent(row.getUserId(), userId -> new BalanceSnapshot(userId, day, row.balanceBefore()))
+                        .apply(row);
+                entityManager.detach(row);
+            }
+        }
+        snapshotRepository.saveAll(snapshots.values());
+        return snapshots.size();
+    }
+
+    private void runScheduled() {
+        try {
+            LocalDate lastClosedDay = LocalDateTime.now().minus(properties.getSettleDelay()).toLocalDate().minusDays(1);
+            refreshCoveredUntil();
+            int days = snapshotUntil(lastClosedDay);
+            if (days > 0) {
+                log.info("Balance snapshots built for {} day(s), covered until {}", days, coveredUntil);
+            }
+        } catch (RuntimeException e) {
+            // Следующий запуск продолжит с первого непостроенного дня
+            log.warn("Balance snapshot run failed, covered until {}", coveredUntil, e);
+        }
+    }
+
+    // Другой экземпляр мог построить дни раньше нас
+    private synchronized void refreshCoveredUntil() {
+        LocalDate stored = snapshotRepository.findLastSnapshotDate();
+        if (stored != null && (coveredUntil == null || stored.isAfter(coveredUntil))) {
+            coveredUntil = stored;
+        }
+    }
+
+    @Override
+    public void start() {
+        coveredUntil = snapshotRepository.findLastSnapshotDate();
+        if (snapshotted == null) {
+            snapshotted = Counter.builder("bank.snapshots.accounts")
+                    .description("Account-day balance snapshots written")
+                    .register(meterRegistry);
+            Gauge.builder("bank.snapshots.lag.days", this,
+                            job -> job.coveredUntil == null ? 0 : ChronoUnit.DAYS.between(job.coveredUntil, LocalDate.now()))
+                    .description("Days between today and the last snapshotted day")
+                    .register(meterRegistry);
+        }
+        if (properties.isEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "balance-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::runScheduled, 0, properties.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Balance snapshot job started: {}, covered until {}", properties, coveredUntil);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -1,149 +1,708 @@
 package com.bankapi.service;
 
+import com.bankapi.config.BatchProperties;
+import com.bankapi.config.ConcurrencyMode;
+import com.bankapi.config.ConcurrencyProperties;
+import com.bankapi.config.GroupCommitProperties;
+import com.bankapi.config.HistoryProperties;
+import com.bankapi.dto.BalanceSummary;
+import com.bankapi.dto.OperationCursor;
+import com.bankapi.dto.OperationPage;
+import com.bankapi.dto.PeriodTotals;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.engine.AccountEngine;
+import com.bankapi.exception.BatchTooLargeException;
 import com.bankapi.exception.InsufficientFundsException;
 import com.bankapi.exception.InvalidAmountException;
+import com.bankapi.exception.InvalidPeriodException;
 import com.bankapi.exception.UserNotFoundException;
+import com.bankapi.ledger.WriteBehindLedger;
+import com.bankapi.model.BalanceSnapshot;
 import com.bankapi.model.BankAccount;
+import com.bankapi.model.Money;
 import com.bankapi.model.Transaction;
+import com.bankapi.observability.OperationTrace;
+import com.bankapi.observability.MoneyFlowMetrics;
+import com.bankapi.observability.OperationTracer;
+import com.bankapi.observability.Outcome;
+import com.bankapi.observability.Phase;
+import com.bankapi.replica.ReplicaRouter;
+import com.bankapi.repository.BalanceUpdateRepository.BalanceChange;
+import com.bankapi.repository.BalanceSnapshotRepository;
 import com.bankapi.repository.BankAccountRepository;
 import com.bankapi.repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class BankService {
 
+    // Открытые границы диапазона дат заменяются крайними значениями, чтобы запрос страницы был один
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final String SCALE_MESSAGE = "Transfer amount must have at most 2 decimal places.";
+
     @Autowired
     private BankAccountRepository accountRepository;
 
     @Autowired
     private TransactionRepository transactionRepository;
 
-    public BigDecimal getBalance(Long userId) {
-        Optional<BankAccount> account = accountRepository.findById(userId);
-        return account.map(BankAccount::getBalance).orElse(null);
-    }
+    @Autowired
+    private AccountLockStripes accountLocks;
 
-    @Transactional
-    public int putMoney(Long userId, BigDecimal amount) {
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    @Autowired
+    private ConcurrencyProperties concurrencyProperties;
 
-            return 0;
-        }
+    @Autowired
+    private OptimisticRetryExecutor retryExecutor;
+
+    @Autowired
+    private HistoryProperties historyProperties;
 
-        Optional<BankAccount> accountOpt = accountRepository.findById(userId);
+    @Autowired
+    private BatchProperties batchProperties;
+
+    @Autowired
+    private BalanceCache balanceCache;
 
-        if (accountOpt.isPresent()) {
-            BankAccount account = accountOpt.get();
-            BigDecimal newBalance = account.getBalance().add(amount);
-            account.setBalance(newBalance);
+    @Autowired
+    private OperationTracer operationTracer;
 
+    @Autowired
+    private MoneyFlowMetrics moneyFlowMetrics;
 
-            System.out.println("--- Service Debug: Account state before saving (putMoney) ---");
-            System.out.println("Account userId: " + account.getUserId());
-            System.out.println("Account balance: " + account.getBalance());
-            System.out.println("------------------------------------------------------------");
+    @Autowired
+    private WriteBehindLedger ledger;
 
+    @Autowired
+    private GroupCommitProperties groupCommitProperties;
 
-            accountRepository.save(account);
+    @Autowired
+    private GroupCommitExecutor groupCommit;
 
-            Transaction transaction = new Transaction(userId, amount, "DEPOSIT", LocalDateTime.now(), newBalance, null);
-            transactionRepository.save(transaction);
+    @Autowired
+    private HotAccounts hotAccounts;
 
-            return 1;
-        } else {
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
 
-            return 0;
+    @Autowired
+    private BalanceSnapshotJob snapshotJob;
+
+    @Autowired
+    private AccountEngine engine;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    public BigDecimal getBalance(Long userId) {
+        // Баланс движка всегда свежее строки счёта: кэш и БД не используются
+        if (engine.isActive()) {
+            return engine.getBalance(userId);
         }
+        // База выбирается при загрузке, а не до обращения к кэшу: загрузка с отстающей реплики, начатая до
+        // записи, снимается сбросом после её коммита, а начатая после сброса уже видит отметку записи
+        return balanceCache.get(userId, id -> replicaRouter.read(id, () -> {
+            if (hotAccounts.isHot(id)) {
+                return accountRepository.findTotalBalance(id);
+            }
+            return accountRepository.findBalance(id).orElse(null);
+        }));
     }
 
+    public int putMoney(Long userId, BigDecimal amount) {
 
-    @Transactional
-    public int takeMoney(Long userId, BigDecimal amount) {
+        try (OperationTrace trace = operationTracer.start("putMoney", userId)) {
+            if (toMoney(amount) == null) {
+                trace.outcome(Outcome.INVALID_AMOUNT);
+                return 0;
+            }
 
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return 0;
+            int result;
+            if (engine.isActive()) {
+                result = applyInEngine(engine.deposit(userId, amount), trace);
+            } else if (concurrencyProperties.isAtomicUpdates() || hotAccounts.isHot(userId)) {
+                // Зачисление на горячий счёт всегда однострочное: в слот, без чтения строки счёта
+                result = atomically(userId, () -> credit(userId, amount, trace));
+            } else {
+                result = inTransaction("putMoney", () -> {
+                    Optional<BankAccount> accountOpt = loadForUpdate(userId);
+                    trace.mark(Phase.LOOKUP);
+
+                    if (accountOpt.isPresent()) {
+                        BankAccount account = accountOpt.get();
+                        BigDecimal newBalance = Money.of(account.getBalance()).plus(Money.of(amount)).toBigDecimal();
+                        account.setBalance(newBalance);
+                        accountRepository.save(account);
+                        trace.mark(Phase.UPDATE);
+
+                        Transaction transaction = new Transaction(userId, amount, "DEPOSIT", LocalDateTime.now(), newBalance, null);
+                        saveHistory(transaction, nextVersion(account));
+                        trace.mark(Phase.HISTORY);
+                        accountsChanged(List.of(userId));
+
+                        return 1;
+                    } else {
+                        trace.outcome(Outcome.USER_NOT_FOUND);
+                        return 0;
+                    }
+                });
+            }
+            trace.mark(Phase.COMMIT);
+            if (result == 1) {
+                trace.outcome(Outcome.SUCCESS);
+                moneyFlowMetrics.record("DEPOSIT", amount);
+            }
+            return result;
         }
+    }
 
-        Optional<BankAccount> accountOpt = accountRepository.findById(userId);
-        if (accountOpt.isPresent()) {
-            BankAccount account = accountOpt.get();
-            if (account.getBalance().compareTo(amount) >= 0) {
-                BigDecimal newBalance = account.getBalance().subtract(amount);
-                account.setBalance(newBalance);
 
-                System.out.println("--- Service Debug: Account state before saving (takeMoney) ---");
-                System.out.println("Account userId: " + account.getUserId());
-                System.out.println("Account balance: " + account.getBalance());
-                System.out.println("-------------------------------------------------------------");
+    public int takeMoney(Long userId, BigDecimal amount) {
 
-                accountRepository.save(account);
-                Transaction transaction = new Transaction(userId, amount, "WITHDRAW", LocalDateTime.now(), newBalance, null);
-                transactionRepository.save(transaction);
+        try (OperationTrace trace = operationTracer.start("takeMoney", userId)) {
+            if (toMoney(amount) == null) {
+                trace.outcome(Outcome.INVALID_AMOUNT);
+                return 0;
+            }
 
+            int result;
+            if (engine.isActive()) {
+                result = applyInEngine(engine.withdraw(userId, amount), trace);
+            } else if (concurrencyProperties.isAtomicUpdates()) {
+                result = atomically(userId, () -> debit(userId, amount, trace));
+            } else {
+                result = inTransaction("takeMoney", () -> {
+                    Optional<BankAccount> accountOpt = loadForUpdate(userId);
+                    trace.mark(Phase.LOOKUP);
+                    if (accountOpt.isPresent()) {
+                        BankAccount account = accountOpt.get();
+                        sweepIfShort(account, amount);
+                        Money balance = Money.of(account.getBalance());
+                        Money debit = Money.of(amount);
+                        if (!balance.isLessThan(debit)) {
+                            account.setBalance(balance.minus(debit).toBigDecimal());
+                            accountRepository.save(account);
+                            trace.mark(Phase.UPDATE);
+
+                            Transaction transaction = new Transaction(userId, amount, "WITHDRAW", LocalDateTime.now(), balanceAfter(account), null);
+                            saveHistory(transaction, nextVersion(account));
+                            trace.mark(Phase.HISTORY);
+                            accountsChanged(List.of(userId));
+
+                            return 1;
+                        }
+                        trace.outcome(Outcome.INSUFFICIENT_FUNDS);
+                        return 0;
+                    } else {
+                        trace.outcome(Outcome.USER_NOT_FOUND);
+                        return 0;
+                    }
+                });
+            }
+            trace.mark(Phase.COMMIT);
+            if (result == 1) {
+                trace.outcome(Outcome.SUCCESS);
+                moneyFlowMetrics.record("WITHDRAW", amount);
+            }
+            return result;
+        }
+    }
+
+    private int applyInEngine(Outcome outcome, OperationTrace trace) {
+        trace.mark(Phase.UPDATE);
+        if (outcome != Outcome.SUCCESS) {
+            trace.outcome(outcome);
+            return 0;
+        }
+        return 1;
+    }
+
+    // Однострочное изменение баланса: своя транзакция или место в общей транзакции группового коммита.
+    // Горячий счёт в группу не попадает: блокировка слота в ней оказалась бы раньше строк счетов
+    // следующих операций, а перевод на этот счёт берёт их в обратном порядке - взаимная блокировка
+    private int atomically(Long userId, Supplier<Integer> mutation) {
+        if (groupCommitProperties.isEnabled() && !hotAccounts.isHot(userId)) {
+            return groupCommit.submit(userId, mutation);
+        }
+        return transactionTemplate.execute(status -> mutation.get());
+    }
+
+    private int credit(Long userId, BigDecimal amount, OperationTrace trace) {
+        if (hotAccounts.isHot(userId)) {
+            int slot = hotAccounts.randomSlot();
+            BalanceChange slotChange = accountRepository.addToSlot(userId, slot, amount);
+            trace.mark(Phase.UPDATE);
+            // Слотов нет, если счёт создан уже после старта: тогда зачисление идёт в строку счёта
+            if (slotChange != null) {
+                BigDecimal total = accountRepository.findTotalBalance(userId);
+                saveHistory(new Transaction(userId, amount, "DEPOSIT", LocalDateTime.now(), total, null), slot, slotChange.version());
+                trace.mark(Phase.HISTORY);
+                accountsChanged(List.of(userId));
                 return 1;
             }
+        }
+        BalanceChange change = accountRepository.addToBalance(userId, amount);
+        trace.mark(Phase.UPDATE);
+        if (change == null) {
+            trace.outcome(Outcome.USER_NOT_FOUND);
             return 0;
-        } else {
+        }
+        saveHistory(new Transaction(userId, amount, "DEPOSIT", LocalDateTime.now(), change.balance(), null), change.version());
+        trace.mark(Phase.HISTORY);
+        accountsChanged(List.of(userId));
+        return 1;
+    }
+
+    private int debit(Long userId, BigDecimal amount, OperationTrace trace) {
+        // Ноль затронутых строк: счёта нет или средств недостаточно
+        BalanceChange change = accountRepository.subtractFromBalance(userId, amount);
+        if (change == null && hotAccounts.isHot(userId)) {
+            change = sweepAndSubtract(userId, amount);
+        }
+        trace.mark(Phase.UPDATE);
+        if (change == null) {
+            // Причина нужна только для метрик, лишний запрос выполняется лишь при отказе
+            trace.outcome(accountRepository.existsById(userId) ? Outcome.INSUFFICIENT_FUNDS : Outcome.USER_NOT_FOUND);
             return 0;
         }
+        BigDecimal balanceAfter = hotAccounts.isHot(userId) ? accountRepository.findTotalBalance(userId) : change.balance();
+        saveHistory(new Transaction(userId, amount, "WITHDRAW", LocalDateTime.now(), balanceAfter, null), change.version());
+        trace.mark(Phase.HISTORY);
+        accountsChanged(List.of(userId));
+        return 1;
     }
 
-    @Transactional
     public void transferMoney(Long senderId, Long receiverId, BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new InvalidAmountException("Transfer amount must be positive.");
-        }
+        try (OperationTrace trace = operationTracer.start("transferMoney", senderId, receiverId)) {
+            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+                trace.outcome(Outcome.INVALID_AMOUNT);
+                throw new InvalidAmountException("Transfer amount must be positive.");
+            }
+            if (toMoney(amount) == null) {
+                trace.outcome(Outcome.INVALID_AMOUNT);
+                throw new InvalidAmountException(SCALE_MESSAGE);
+            }
 
-        if (senderId.equals(receiverId)) {
-            throw new InvalidAmountException("Cannot transfer money to yourself.");
+            if (senderId.equals(receiverId)) {
+                trace.outcome(Outcome.INVALID_AMOUNT);
+                throw new InvalidAmountException("Cannot transfer money to yourself.");
+            }
+
+            if (engine.isActive()) {
+                transferInEngine(senderId, receiverId, amount, trace);
+            } else if (isOptimistic()) {
+                inTransaction("transferMoney", () -> {
+                    doTransfer(senderId, receiverId, amount, trace);
+                    return null;
+                });
+            } else {
+                // Полосная блокировка берётся до начала транзакции и снимается после коммита
+                accountLocks.runLocked(transferLockIds(senderId, receiverId), () ->
+                        inTransaction("transferMoney", () -> {
+                            doTransfer(senderId, receiverId, amount, trace);
+                            return null;
+                        }));
+            }
+            trace.mark(Phase.COMMIT);
+            trace.outcome(Outcome.SUCCESS);
+            moneyFlowMetrics.record("TRANSFER_OUT", amount);
+            moneyFlowMetrics.record("TRANSFER_IN", amount);
         }
+    }
 
+    private void transferInEngine(Long senderId, Long receiverId, BigDecimal amount, OperationTrace trace) {
+        try {
+            engine.transfer(senderId, receiverId, amount);
+        } catch (UserNotFoundException e) {
+            trace.outcome(Outcome.USER_NOT_FOUND);
+            throw e;
+        } catch (InsufficientFundsException e) {
+            trace.outcome(Outcome.INSUFFICIENT_FUNDS);
+            throw e;
+        } catch (InvalidAmountException e) {
+            trace.outcome(Outcome.INVALID_AMOUNT);
+            throw e;
+        }
+        trace.mark(Phase.UPDATE);
+    }
 
-        Optional<BankAccount> senderAccountOpt = accountRepository.findById(senderId);
-        if (!senderAccountOpt.isPresent()) {
+    private void doTransfer(Long senderId, Long receiverId, BigDecimal amount, OperationTrace trace) {
+        // Горячий получатель зачисляется в слот: его строка bank_account не загружается и не блокируется
+        boolean receiverHot = hotAccounts.isHot(receiverId);
+        List<Long> orderedIds = transferLockIds(senderId, receiverId);
+        List<BankAccount> lockedAccounts = isOptimistic()
+                ? accountRepository.findAllById(orderedIds)
+                : accountRepository.findAllByIdForUpdate(orderedIds);
+        trace.mark(Phase.LOOKUP);
+
+        BankAccount senderAccount = findLocked(lockedAccounts, senderId);
+        if (senderAccount == null) {
+            trace.outcome(Outcome.USER_NOT_FOUND);
             throw new UserNotFoundException("Sender user not found with ID: " + senderId);
         }
-        BankAccount senderAccount = senderAccountOpt.get();
-        Optional<BankAccount> receiverAccountOpt = accountRepository.findById(receiverId);
-        if (!receiverAccountOpt.isPresent()) {
+        BankAccount receiverAccount = receiverHot ? null : findLocked(lockedAccounts, receiverId);
+        if (!receiverHot && receiverAccount == null) {
+            trace.outcome(Outcome.USER_NOT_FOUND);
             throw new UserNotFoundException("Receiver user not found with ID: " + receiverId);
         }
-        BankAccount receiverAccount = receiverAccountOpt.get();
-        if (senderAccount.getBalance().compareTo(amount) < 0) {
+        sweepIfShort(senderAccount, amount);
+        Money transfer = Money.of(amount);
+        Money senderBalance = Money.of(senderAccount.getBalance());
+        if (senderBalance.isLessThan(transfer)) {
+            trace.outcome(Outcome.INSUFFICIENT_FUNDS);
             throw new InsufficientFundsException("Insufficient funds for user ID: " + senderId);
         }
-        senderAccount.setBalance(senderAccount.getBalance().subtract(amount));
-        receiverAccount.setBalance(receiverAccount.getBalance().add(amount));
+        senderAccount.setBalance(senderBalance.minus(transfer).toBigDecimal());
+        accountRepository.save(senderAccount);
+
+        int receiverSlot = -1;
+        long receiverVersion;
+        BigDecimal receiverBalance;
+        if (receiverHot) {
+            receiverSlot = hotAccounts.randomSlot();
+            BalanceChange change = accountRepository.addToSlot(receiverId, receiverSlot, amount);
+            if (change == null) {
+                // Слотов нет: счёт создан после старта или не существует
+                receiverSlot = -1;
+                change = accountRepository.addToBalance(receiverId, amount);
+            }
+            if (change == null) {
+                trace.outcome(Outcome.USER_NOT_FOUND);
+                throw new UserNotFoundException("Receiver user not found with ID: " + receiverId);
+            }
+            receiverVersion = change.version();
+            receiverBalance = accountRepository.findTotalBalance(receiverId);
+        } else {
+            receiverAccount.setBalance(Money.of(receiverAccount.getBalance()).plus(transfer).toBigDecimal());
+            accountRepository.save(receiverAccount);
+            receiverVersion = nextVersion(receiverAccount);
+            receiverBalance = balanceAfter(receiverAccount);
+        }
+        trace.mark(Phase.UPDATE);
 
-        System.out.println("--- Service Debug: Account state before saving (transferMoney - Sender) ---");
-        System.out.println("Account userId: " + senderAccount.getUserId());
-        System.out.println("Account balance: " + senderAccount.getBalance());
-        System.out.println("-------------------------------------------------------------------------");
+        Transaction senderTx = new Transaction(senderId, amount, "TRANSFER_OUT", LocalDateTime.now(), balanceAfter(senderAccount), receiverId);
+        Transaction receiverTx = new Transaction(receiverId, amount, "TRANSFER_IN", LocalDateTime.now(), receiverBalance, senderId);
 
-        accountRepository.save(senderAccount);
-        System.out.println("--- Service Debug: Account state before saving (transferMoney - Receiver) ---");
-        System.out.println("Account userId: " + receiverAccount.getUserId());
-        System.out.println("Account balance: " + receiverAccount.getBalance());
-        System.out.println("--------------------------------------------------------------------------");
+        saveHistory(senderTx, nextVersion(senderAccount));
+        saveHistory(receiverTx, receiverSlot, receiverVersion);
+        trace.mark(Phase.HISTORY);
+        accountsChanged(List.of(senderId, receiverId));
+    }
 
-        accountRepository.save(receiverAccount);
-        Transaction senderTx = new Transaction(senderId, amount, "TRANSFER_OUT", LocalDateTime.now(), senderAccount.getBalance(), receiverId);
-        Transaction receiverTx = new Transaction(receiverId, amount, "TRANSFER_IN", LocalDateTime.now(), receiverAccount.getBalance(), senderId);
+    // По возрастанию id; горячий получатель не блокируется - зачисление в слот не конфликтует с другими
+    private List<Long> transferLockIds(Long senderId, Long receiverId) {
+        if (hotAccounts.isHot(receiverId)) {
+            return List.of(senderId);
+        }
+        return senderId < receiverId ? List.of(senderId, receiverId) : List.of(receiverId, senderId);
+    }
 
-        transactionRepository.save(senderTx);
-        transactionRepository.save(receiverTx);
+    /**
+     * Applies a list of transfers, committing {@code bank.batch.commit-size} of them per database transaction.
+     * <p>
+     * All accounts of a group are locked up front in ascending id order (stripes, then rows), and every
+     * transfer is checked against the running balances before anything is written, so a rejected item
+     * never needs a rollback and cannot poison the rest of its group. History rows of a group are inserted
+     * with one {@code saveAll}, which Hibernate turns into JDBC batches ({@code hibernate.jdbc.batch_size}).
+     * If a group fails to commit, every transfer of that group is reported as failed.
+     */
+    public List<TransferResult> transferBatch(List<TransferRequest> requests) {
+        if (requests.size() > batchProperties.getMaxSize()) {
+            throw new BatchTooLargeException("Batch size " + requests.size() + " exceeds limit of " + batchProperties.getMaxSize());
+        }
+        TransferResult[] results = new TransferResult[requests.size()];
+        if (engine.isActive()) {
+            transferBatchInEngine(requests, results);
+            return List.of(results);
+        }
+        List<Integer> group = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String invalid = validateTransfer(requests.get(i));
+            if (invalid != null) {
+                results[i] = TransferResult.failure(i, requests.get(i), invalid);
+                continue;
+            }
+            group.add(i);
+            if (group.size() == Math.max(1, batchProperties.getCommitSize())) {
+                applyGroup(requests, group, results);
+                group = new ArrayList<>();
+            }
+        }
+        if (!group.isEmpty()) {
+            applyGroup(requests, group, results);
+        }
+        return List.of(results);
     }
 
+    // Движок применяет переводы по одному без групповых блокировок; все команды публикуются до ожидания ответов
+    private void transferBatchInEngine(List<TransferRequest> requests, TransferResult[] results) {
+        List<Integer> valid = new ArrayList<>();
+        List<Long> senderIds = new ArrayList<>();
+        List<Long> receiverIds = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String invalid = validateTransfer(requests.get(i));
+            if (invalid != null) {
+                results[i] = TransferResult.failure(i, requests.get(i), invalid);
+                continue;
+            }
+            valid.add(i);
+            senderIds.add(requests.get(i).getSenderId());
+            receiverIds.add(requests.get(i).getReceiverId());
+            amounts.add(requests.get(i).getAmount());
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try (OperationTrace trace = operationTracer.start("transferBatch", senderIds.get(0))) {
+            List<String> failures = engine.transferAll(senderIds, receiverIds, amounts);
+            trace.mark(Phase.UPDATE);
+            trace.outcome(Outcome.SUCCESS);
+            for (int k = 0; k < valid.size(); k++) {
+                int index = valid.get(k);
+                TransferRequest request = requests.get(index);
+                if (failures.get(k) == null) {
+                    results[index] = TransferResult.success(index, request);
+                    moneyFlowMetrics.record("TRANSFER_OUT", request.getAmount());
+                    moneyFlowMetrics.record("TRANSFER_IN", request.getAmount());
+                } else {
+                    results[index] = TransferResult.failure(index, request, failures.get(k));
+                }
+            }
+        }
+    }
+
+    private String validateTransfer(TransferRequest request) {
+        if (request == null || request.getSenderId() == null || request.getReceiverId() == null) {
+            return "Sender and receiver are required.";
+        }
+        if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Transfer amount must be positive.";
+        }
+        if (toMoney(request.getAmount()) == null) {
+            return SCALE_MESSAGE;
+        }
+        if (request.getSenderId().equals(request.getReceiverId())) {
+            return "Cannot transfer money to yourself.";
+        }
+        return null;
+    }
+
+    private void applyGroup(List<TransferRequest> requests, List<Integer> group, TransferResult[] results) {
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (int index : group) {
+            accountIds.add(requests.get(index).getSenderId());
+            accountIds.add(requests.get(index).getReceiverId());
+        }
+        List<Long> orderedIds = new ArrayList<>(accountIds);
+        try (OperationTrace trace = operationTracer.start("transferBatch", orderedIds.get(0))) {
+            List<TransferResult> applied = isOptimistic()
+                    ? inTransaction("transferBatch", () -> doTransferGroup(requests, group, orderedIds, trace))
+                    : accountLocks.callLocked(orderedIds,
+                            () -> inTransaction("transferBatch", () -> doTransferGroup(requests, group, orderedIds, trace)));
+            trace.mark(Phase.COMMIT);
+            trace.outcome(Outcome.SUCCESS);
+            for (TransferResult result : applied) {
+                results[result.index()] = result;
+                if (result.status() == 1) {
+                    moneyFlowMetrics.record("TRANSFER_OUT", result.amount());
+                    moneyFlowMetrics.record("TRANSFER_IN", result.amount());
+                }
+            }
+        } catch (RuntimeException e) {
+            for (int index : group) {
+                results[index] = TransferResult.failure(index, requests.get(index), "Batch group failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<TransferResult> doTransferGroup(List<TransferRequest> requests, List<Integer> group, List<Long> orderedIds,
+                                                 OperationTrace trace) {
+        List<BankAccount> loaded = isOptimistic()
+                ? accountRepository.findAllById(orderedIds)
+                : accountRepository.findAllByIdForUpdate(orderedIds);
+        trace.mark(Phase.LOOKUP);
+        Map<Long, BankAccount> accounts = new HashMap<>();
+        // Текущие балансы группы - long в копейках: сравнения и проводки без создания объектов,
+        // в сущности они возвращаются один раз в конце
+        Map<Long, Integer> positions = new HashMap<>();
+        long[] balances = new long[loaded.size()];
+        for (int position = 0; position < loaded.size(); position++) {
+            BankAccount account = loaded.get(position);
+            accounts.put(account.getUserId(), account);
+            positions.put(account.getUserId(), position);
+            Money balance = Money.of(account.getBalance());
+            // Строки счетов группы уже заблокированы: слоты горячих счетов сметаются в них на всю группу
+            if (hotAccounts.isHot(account.getUserId())) {
+                balance = balance.plus(Money.of(accountRepository.drainSlots(account.getUserId())));
+            }
+            balances[position] = balance.minorUnits();
+        }
+
+        List<TransferResult> applied = new ArrayList<>(group.size());
+        List<Transaction> history = new ArrayList<>(group.size() * 2);
+        LocalDateTime now = LocalDateTime.now();
+        for (int index : group) {
+            TransferRequest request = requests.get(index);
+            Integer sender = positions.get(request.getSenderId());
+            Integer receiver = positions.get(request.getReceiverId());
+            long amount = Money.of(request.getAmount()).minorUnits();
+            if (sender == null) {
+                applied.add(TransferResult.failure(index, request, "Sender user not found with ID: " + request.getSenderId()));
+            } else if (receiver == null) {
+                applied.add(TransferResult.failure(index, request, "Receiver user not found with ID: " + request.getReceiverId()));
+            } else if (balances[sender] < amount) {
+                applied.add(TransferResult.failure(index, request, "Insufficient funds for user ID: " + request.getSenderId()));
+            } else {
+                balances[sender] -= amount;
+                balances[receiver] = Math.addExact(balances[receiver], amount);
+                history.add(new Transaction(request.getSenderId(), request.getAmount(), "TRANSFER_OUT", now,
+                        Money.ofMinor(balances[sender]).toBigDecimal(), request.getReceiverId()));
+                history.add(new Transaction(request.getReceiverId(), request.getAmount(), "TRANSFER_IN", now,
+                        Money.ofMinor(balances[receiver]).toBigDecimal(), request.getSenderId()));
+                applied.add(TransferResult.success(index, request));
+            }
+        }
+        for (int position = 0; position < loaded.size(); position++) {
+            BankAccount account = loaded.get(position);
+            if (balances[position] != Money.of(account.getBalance()).minorUnits()) {
+                account.setBalance(Money.ofMinor(balances[position]).toBigDecimal());
+            }
+        }
+        trace.mark(Phase.UPDATE);
+        // Изменённые счета управляемые - их UPDATE уйдут пакетом при коммите
+        if (ledger.isActive()) {
+            for (Transaction row : history) {
+                ledger.append(row, nextVersion(accounts.get(row.getUserId())));
+            }
+        } else {
+            transactionRepository.saveAll(history);
+        }
+        trace.mark(Phase.HISTORY);
+        accountsChanged(orderedIds);
+        return applied;
+    }
+
+    // В режиме журнала строка истории вставляется в bank_transaction фоновым пакетом после коммита
+    private void saveHistory(Transaction row, long accountVersion) {
+        saveHistory(row, -1, accountVersion);
+    }
+
+    private void saveHistory(Transaction row, int slot, long version) {
+        if (ledger.isActive()) {
+            ledger.append(row, slot, version);
+        } else {
+            transactionRepository.save(row);
+        }
+    }
+
+    // Строки горячего счёта не хватает на списание: все слоты сметаются в неё (блокировки: строка, затем слоты)
+    private void sweepIfShort(BankAccount account, BigDecimal amount) {
+        if (account.getBalance().compareTo(amount) < 0 && hotAccounts.isHot(account.getUserId())) {
+            account.setBalance(account.getBalance().add(accountRepository.drainSlots(account.getUserId())));
+        }
+    }
+
+    private BalanceChange sweepAndSubtract(Long userId, BigDecimal amount) {
+        BigDecimal swept = accountRepository.drainSlots(userId);
+        if (swept.signum() == 0) {
+            return null;
+        }
+        accountRepository.addToBalance(userId, swept);
+        return accountRepository.subtractFromBalance(userId, amount);
+    }
+
+    // Положительная сумма, представимая в копейках; null - сумму нужно отклонить.
+    // Доли копейки numeric(38, 2) округлил бы молча, поэтому они отклоняются, а не округляются
+    private static Money toMoney(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return null;
+        }
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    // После коммита: чтения этих счетов с реплик ждут, пока реплика не увидит запись, а кэш балансов сбрасывается.
+    // Порядок важен: отметка ставится до сброса, иначе загрузка между ними закэширует баланс с отстающей реплики
+    private void accountsChanged(List<Long> userIds) {
+        replicaRouter.recordWriteAfterCommit(userIds);
+        balanceCache.evictAfterCommit(userIds);
+    }
+
+    // Баланс горячего счёта - строка счёта плюс его слоты
+    private BigDecimal balanceAfter(BankAccount account) {
+        if (!hotAccounts.isHot(account.getUserId())) {
+            return account.getBalance();
+        }
+        return account.getBalance().add(accountRepository.findSlotTotal(account.getUserId()));
+    }
+
+    // Изменённая управляемая сущность получает version + 1 при flush, один раз за транзакцию
+    private static long nextVersion(BankAccount account) {
+        return account.getVersion() + 1;
+    }
+
+    private boolean isOptimistic() {
+        return concurrencyProperties.getMode() == ConcurrencyMode.OPTIMISTIC;
+    }
+
+    // Пессимистический режим блокирует строку сразу, оптимистический полагается на @Version
+    private Optional<BankAccount> loadForUpdate(Long userId) {
+        return isOptimistic()
+                ? accountRepository.findById(userId)
+                : accountRepository.findByIdForUpdate(userId);
+    }
+
+    // Каждая попытка - отдельная транзакция, поэтому повтор оборачивает TransactionTemplate снаружи
+    private <T> T inTransaction(String operation, Supplier<T> action) {
+        if (isOptimistic()) {
+            return retryExecutor.execute(operation, () -> transactionTemplate.execute(status -> action.get()));
+        }
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    private BankAccount findLocked(List<BankAccount> accounts, Long userId) {
+        for (BankAccount account : accounts) {
+            if (userId.equals(account.getUserId())) {
+                return account;
+            }
+        }
+        return null;
+    }
+
+    @Transactional(readOnly = true)
     public List<Transaction> getOperationList(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        return replicaRouter.read(userId, () -> findOperations(userId, startDate, endDate));
+    }
+
+    private List<Transaction> findOperations(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
         if (startDate != null && endDate != null) {
             return transactionRepository.findByUserIdAndTimestampBetween(userId, startDate, endDate);
         } else if (startDate != null) {
@@ -155,4 +714,133 @@ public class BankService {
         }
     }
 
-}
\ No newline at end of file
+    @Transactional(readOnly = true)
+    public OperationPage getOperationPage(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                          String cursor, Integer limit) {
+        return replicaRouter.read(userId, () -> findOperationPage(userId, startDate, endDate, cursor, limit));
+    }
+
+    private OperationPage findOperationPage(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                            String cursor, Integer limit) {
+        int pageSize = limit == null || limit <= 0
+                ? historyProperties.getDefaultPageSize()
+                : Math.min(limit, historyProperties.getMaxPageSize());
+        LocalDateTime to = endDate != null ? endDate : HISTORY_END;
+        // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+        Limit fetch = Limit.of(pageSize + 1);
+
+        List<TransactionView> rows;
+        if (cursor != null && !cursor.isBlank()) {
+            OperationCursor after = OperationCursor.decode(cursor);
+            rows = transactionRepository.findPageAfter(userId, after.timestamp(), after.id(), to, fetch);
+        } else {
+            LocalDateTime from = startDate != null ? startDate : HISTORY_START;
+            rows = transactionRepository.findFirstPage(userId, from, to, fetch);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new OperationPage(rows, null);
+        }
+        List<TransactionView> items = rows.subList(0, pageSize);
+        TransactionView last = items.get(pageSize - 1);
+        return new OperationPage(items, new OperationCursor(last.timestamp(), last.id()).encode());
+    }
+
+    // Строки читаются проекцией и не попадают в контекст, поэтому память не растёт с объёмом выгрузки
+    @Transactional(readOnly = true)
+    public long exportOperations(Long userId, LocalDateTime startDate, LocalDateTime endDate, Consumer<TransactionView> sink) {
+        return replicaRouter.read(userId, () -> streamOperations(userId, startDate, endDate, sink));
+    }
+
+    private long streamOperations(Long userId, LocalDateTime startDate, LocalDateTime endDate, Consumer<TransactionView> sink) {
+        LocalDateTime from = startDate != null ? startDate : HISTORY_START;
+        LocalDateTime to = endDate != null ? endDate : HISTORY_END;
+        long exported = 0;
+        try (Stream<TransactionView> rows = transactionRepository.streamHistory(userId, from, to)) {
+            for (TransactionView transaction : (Iterable<TransactionView>) rows::iterator) {
+                sink.accept(transaction);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    // Баланс после всех операций с меткой времени строго раньше before
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAt(Long userId, LocalDateTime before) {
+        if (!accountRepository.existsById(userId)) {
+            throw new UserNotFoundException("User not found");
+        }
+        return balanceBefore(userId, before);
+    }
+
+    // Итоги за дни from..to включительно: дни до snapshotJob.coveredUntil() берутся из снимков, остальные - из строк
+    @Transactional(readOnly = true)
+    public BalanceSummary getPeriodSummary(Long userId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new InvalidPeriodException("Period end must not be before its start");
+        }
+        if (!accountRepository.existsById(userId)) {
+            throw new UserNotFoundException("User not found");
+        }
+        BigDecimal opening = balanceBefore(userId, from.atStartOfDay());
+
+        LocalDate covered = snapshotJob.coveredUntil();
+        PeriodTotals totals = PeriodTotals.EMPTY;
+        LocalDate tailFrom = from;
+        if (covered != null && !from.isAfter(covered)) {
+            LocalDate coveredTo = to.isBefore(covered) ? to : covered;
+            totals = snapshotRepository.sumPeriod(userId, from, coveredTo);
+            tailFrom = coveredTo.plusDays(1);
+        }
+        if (!tailFrom.isAfter(to)) {
+            totals = totals.plus(transactionRepository.sumPeriod(userId, tailFrom.atStartOfDay(), to.plusDays(1).atStartOfDay()));
+        }
+        return BalanceSummary.of(userId, from, to, opening, totals);
+    }
+
+    // Строки читаются только с начала дня before (или первого дня без снимков), остальное - из ближайшего снимка,
+    // поэтому ответ не зависит от длины истории. После удаления старых строк bank_transaction
+    // баланс за снятые дни остаётся известен с точностью до границы дня
+    private BigDecimal balanceBefore(Long userId, LocalDateTime before) {
+        // balance_after горячего счёта приблизителен (слоты меняются параллельно), поэтому баланс
+        // восстанавливается из оборотов; строки с before должны быть ещё не архивированы
+        if (hotAccounts.isHot(userId)) {
+            return accountRepository.findTotalBalanceBefore(userId, before);
+        }
+        LocalDate covered = snapshotJob.coveredUntil();
+        LocalDate day = before.toLocalDate();
+        LocalDate rawFrom;
+        if (covered == null) {
+            rawFrom = null;
+        } else if (day.isAfter(covered)) {
+            rawFrom = covered.plusDays(1);
+        } else {
+            rawFrom = day;
+        }
+        LocalDateTime rawStart = rawFrom != null ? rawFrom.atStartOfDay() : HISTORY_START;
+
+        List<Transaction> last = transactionRepository.findLastInPeriod(userId, rawStart, before, Limit.of(1));
+        if (!last.isEmpty()) {
+            return last.get(0).getBalanceAfter();
+        }
+        if (rawFrom != null) {
+            Optional<BalanceSnapshot> snapshot =
+                    snapshotRepository.findFirstByUserIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(userId, rawFrom);
+            if (snapshot.isPresent()) {
+                return snapshot.get().getClosingBalance();
+            }
+            snapshot = snapshotRepository.findFirstByUserIdAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(userId, rawFrom);
+            if (snapshot.isPresent()) {
+                return snapshot.get().getOpeningBalance();
+            }
+        }
+        // Операций до before нет: баланс восстанавливается по первой следующей операции, а без них равен текущему
+        List<Transaction> next = transactionRepository.findFirstFrom(userId, before, Limit.of(1));
+        if (!next.isEmpty()) {
+            return next.get(0).balanceBefore();
+        }
+        return getBalance(userId);
+    }
+
+}
@@ -0,0 +1,251 @@
+package com.bankapi.service;
+
+import com.bankapi.config.GroupCommitProperties;
+import com.bankapi.exception.OperationNotAppliedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Group commit for small single-account mutations: callers hand over a unit of work and block
+ * while a single worker applies queued units together in one database transaction.
+ * <p>
+ * A group closes when it reaches {@code bank.group-commit.max-batch-size} units or when
+ * {@code bank.group-commit.max-delay} has passed since its first unit was taken, whichever comes first.
+ * Units run in ascending {@code lockKey} order (submission order within a key), the same order transfers
+ * lock accounts in, so a group cannot deadlock with them.
+ * <p>
+ * Each caller gets the result of its own unit. A unit that reports a business failure through its result
+ * (no such account, insufficient funds) does not affect the others. If a unit throws, the whole group rolls
+ * back and every unit is re-run in its own transaction, so only the failing caller sees the exception.
+ * Units must therefore be safe to re-run after a rollback. Units the worker will never take (it stopped or
+ * died) fail with an {@link OperationNotAppliedException}. A unit still queued after
+ * {@code bank.group-commit.result-timeout} is withdrawn and fails the same way; a unit the worker has
+ * already taken may still commit, so its caller keeps waiting for the real outcome.
+ * <p>
+ * Metrics: {@code bank.group.commit.batch.size} (units per committed group),
+ * {@code bank.group.commit.fallbacks} (groups re-run unit by unit).
+ */
+@Component
+public class GroupCommitExecutor implements SmartLifecycle {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private static final class Unit<R> {
+        final long lockKey;
+        final Supplier<R> work;
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        Object applied;
+
+        Unit(long lockKey, Supplier<R> work) {
+            this.lockKey = lockKey;
+            this.work = work;
+        }
+
+        void apply() {
+            applied = work.get();
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete() {
+            result.complete((R) applied);
+        }
+    }
+
+    private final GroupCommitProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Unit<?>> queue;
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public GroupCommitExecutor(GroupCommitProperties properties, TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.batchSize = DistributionSummary.builder("bank.group.commit.batch.size")
+                .description("Units applied per group-commit transaction")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("bank.group.commit.fallbacks")
+                .description("Groups rolled back and re-run one unit per transaction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work} inside the next group transaction and returns its result once that transaction
+     * has committed. Exceptions thrown by {@code work} are rethrown to this caller only.
+     */
+    public <R> R submit(long lockKey, Supplier<R> work) {
+        if (!running) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+        Unit<R> unit = new Unit<>(lockKey, work);
+        try {
+            queue.put(unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationNotAppliedException("Interrupted while queueing for group commit", e);
+        }
+        // Рабочий поток мог завершиться между проверкой running и put: тогда операцию никто не заберёт
+        if (!running && queue.remove(unit)) {
+            unit.result.completeExceptionally(new OperationNotAppliedException("Group commit is stopped"));
+        }
+        return await(unit);
+    }
+
+    private <R> R await(Unit<R> unit) {
+        long timeoutNanos = properties.getResultTimeout().toNanos();
+        try {
+            try {
+                return unit.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (queue.remove(unit)) {
+                    // Рабочий поток операцию не забирал: она не применится, ошибка означает отказ
+                    throw new OperationNotAppliedException("Group commit did not answer within "
+                            + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                }
+                // Операция уже в транзакции группы и может закоммититься: ответ только по её исходу.
+                // Рабочий поток завершает каждую забранную операцию, так что ожидание конечно
+                return unit.result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runLoop() {
+        List<Unit<?>> group = List.of();
+        try {
+            // Очередь дочищается и после stop(): каждый, кто успел встать в неё, получит ответ
+            while (running || !queue.isEmpty()) {
+                group = nextGroup();
+                if (!group.isEmpty()) {
+                    commit(group);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Выход по ошибке (Error из операции) или прерыванию: новые операции идут мимо очереди,
+            // а оставшиеся в ней и в текущей группе завершаются ошибкой, а не ждут вечно
+            running = false;
+            OperationNotAppliedException stopped = new OperationNotAppliedException("Group commit is stopped");
+            for (Unit<?> unit : group) {
+                unit.result.completeExceptionally(stopped);
+            }
+            List<Unit<?>> left = new ArrayList<>();
+            queue.drainTo(left);
+            for (Unit<?> unit : left) {
+                unit.result.completeExceptionally(stopped);
+            }
+        }
+    }
+
+    private List<Unit<?>> nextGroup() throws InterruptedException {
+        int maxSize = Math.max(1, properties.getMaxBatchSize());
+        List<Unit<?>> group = new ArrayList<>(maxSize);
+        Unit<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return group;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + properties.getMaxDelay().toNanos();
+        while (group.size() < maxSize) {
+            queue.drainTo(group, maxSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= maxSize || remaining <= 0) {
+                break;
+            }
+            Unit<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next != null) {
+                group.add(next);
+            }
+        }
+        return group;
+    }
+
+    private void commit(List<Unit<?>> group) {
+        // List.sort стабильна: операции одного счёта сохраняют порядок поступления
+        group.sort(Comparator.comparingLong(unit -> unit.lockKey));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Unit<?> unit : group) {
+                    unit.apply();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).result.completeExceptionally(e);
+                return;
+            }
+            fallbacks.increment();
+            for (Unit<?> unit : group) {
+                applyAlone(unit);
+            }
+            return;
+        }
+        batchSize.record(group.size());
+        for (Unit<?> unit : group) {
+            unit.complete();
+        }
+    }
+
+    private void applyAlone(Unit<?> unit) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> unit.apply());
+            batchSize.record(1);
+            unit.complete();
+        } catch (RuntimeException e) {
+            unit.result.completeExceptionally(e);
+        }
+    }
+}
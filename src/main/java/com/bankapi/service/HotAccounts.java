@@ -0,0 +1,117 @@
+package com.bankapi.service;
+
+import com.bankapi.config.HotAccountProperties;
+import com.bankapi.config.LedgerProperties;
+import com.bankapi.model.BankAccountSlot;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.BankAccountSlotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Accounts whose balance is split across {@code bank.hot-accounts.slots} slot rows.
+ * <p>
+ * Credits to a hot account go to a random slot ({@link #randomSlot}), so concurrent deposits and
+ * incoming transfers lock different rows and never the {@code bank_account} row. Debits always come
+ * from the {@code bank_account} row; when it is short, the caller sweeps every slot into it first
+ * ({@code drainSlots}), so money spread across slots is never overdrawn.
+ * <p>
+ * On startup, before the web server accepts requests, missing slot rows are created for the configured
+ * accounts, and slots of accounts removed from the list are swept back into their account rows.
+ * <p>
+ * Hot accounts cannot be combined with {@code bank.ledger}: their point-in-time balances are computed back
+ * from bank_transaction turnovers, which would miss history rows still waiting in the ledger.
+ */
+@Component
+public class HotAccounts implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(HotAccounts.class);
+
+    private final HotAccountProperties properties;
+    private final LedgerProperties ledgerProperties;
+    private final BankAccountRepository accountRepository;
+    private final BankAccountSlotRepository slotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean running;
+
+    public HotAccounts(HotAccountProperties properties, LedgerProperties ledgerProperties,
+                       BankAccountRepository accountRepository, BankAccountSlotRepository slotRepository,
+                       TransactionTemplate transactionTemplate) {
+        this.properties = properties;
+        this.ledgerProperties = ledgerProperties;
+        this.accountRepository = accountRepository;
+        this.slotRepository = slotRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isHot(Long userId) {
+        return properties.getUserIds().contains(userId);
+    }
+
+    public int randomSlot() {
+        return ThreadLocalRandom.current().nextInt(Math.max(1, properties.getSlots()));
+    }
+
+    @Override
+    public void start() {
+        Set<Long> hot = properties.getUserIds();
+        if (!hot.isEmpty() && ledgerProperties.isEnabled()) {
+            throw new IllegalStateException("bank.hot-accounts cannot be combined with bank.ledger");
+        }
+        for (Long userId : slotRepository.findSlottedUserIds()) {
+            if (!hot.contains(userId)) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    BigDecimal swept = accountRepository.drainSlots(userId);
+                    if (swept.signum() != 0) {
+                        accountRepository.addToBalance(userId, swept);
+                    }
+                });
+                log.info("Account {} is no longer hot, slots swept into the account row", userId);
+            }
+        }
+        for (Long userId : hot) {
+            if (!accountRepository.existsById(userId)) {
+                log.warn("Hot account {} does not exist, skipped", userId);
+                continue;
+            }
+            Set<Integer> existing = new HashSet<>(slotRepository.findSlotNumbers(userId));
+            List<BankAccountSlot> missing = new ArrayList<>();
+            for (int slot = 0; slot < properties.getSlots(); slot++) {
+                if (!existing.contains(slot)) {
+                    missing.add(new BankAccountSlot(userId, slot));
+                }
+            }
+            slotRepository.saveAll(missing);
+        }
+        running = true;
+        if (!hot.isEmpty()) {
+            log.info("Hot accounts: {}", properties);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Раньше веб-сервера: слоты создаются до первого зачисления
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,286 @@
+package com.bankapi.service;
+
+import com.bankapi.config.IdempotencyProperties;
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.exception.IdempotencyConflictException;
+import com.bankapi.exception.IdempotencyKeyReuseException;
+import com.bankapi.exception.InvalidIdempotencyKeyException;
+import com.bankapi.exception.OperationNotAppliedException;
+import com.bankapi.model.IdempotencyRecord;
+import com.bankapi.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executes a money-moving request at most once per client {@code Idempotency-Key} and replays its
+ * response to retries.
+ * <p>
+ * {@code bank_idempotency_key} is the source of truth: the key is claimed by inserting its row before
+ * the operation runs, and the response is stored in that row afterwards. A bounded local cache of
+ * executions answers retries without the database and collapses concurrent duplicates: the first
+ * caller runs the operation, the others wait for its response. A duplicate arriving at another
+ * instance while the key is claimed gets {@link IdempotencyConflictException}.
+ * <p>
+ * Business refusals (insufficient funds, unknown account, invalid amount) are responses like any
+ * other and are stored. An operation that ends with an exception releases the key only if the exception
+ * proves nothing was applied ({@link OperationNotAppliedException}, or a lock or version conflict the
+ * database rolled back), so a retry executes it again. Any other exception may follow a commit (a
+ * timeout waiting for the engine, a failed COMMIT), and the key stays claimed until
+ * {@code bank.idempotency.retention} expires, as it does when the instance dies after the operation but
+ * before the response is stored: retries get a conflict rather than a second execution.
+ */
+@Component
+public class IdempotencyService implements SmartLifecycle {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyProperties properties;
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, CompletableFuture<Outcome>> executions;
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter conflicts;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public IdempotencyService(IdempotencyProperties properties, IdempotencyRecordRepository repository,
+                              PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.repository = repository;
+        // Ключ захватывается и освобождается своей транзакцией, независимо от транзакции операции
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executions = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfterWrite(properties.getCacheExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, executions, "idempotency");
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.conflicts = requests(meterRegistry, "conflict");
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bank.idempotency.requests")
+                .description("Requests with an Idempotency-Key by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Operation name and parameters identifying the request a key was first used for.
+     * Amounts are compared by value, so {@code 10} and {@code 10.00} are the same request.
+     */
+    public static String fingerprint(String operation, Object... parameters) {
+        StringJoiner joiner = new StringJoiner("|");
+        joiner.add(operation);
+        for (Object parameter : parameters) {
+            joiner.add(parameter instanceof BigDecimal amount
+                    ? amount.stripTrailingZeros().toPlainString()
+                    : String.valueOf(parameter));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Runs {@code operation} once for {@code key}; retries and concurrent duplicates get its response
+     * with the {@value #REPLAYED_HEADER} header. Without a key the operation simply runs.
+     *
+     * @throws IdempotencyKeyReuseException the key was used for a different request
+     * @throws IdempotencyConflictException the key is claimed by an execution on another instance
+     */
+    public ResponseEntity<StatusResponse> execute(String key, String fingerprint,
+                                                  Supplier<ResponseEntity<StatusResponse>> operation) {
+        if (key == null || !properties.isEnabled()) {
+            return operation.get();
+        }
+        if (key.isBlank() || key.length() > properties.getMaxKeyLength()) {
+            throw new InvalidIdempotencyKeyException(
+                    "Idempotency-Key must be 1 to " + properties.getMaxKeyLength() + " characters long");
+        }
+        while (true) {
+            CompletableFuture<Outcome> execution = new CompletableFuture<>();
+            CompletableFuture<Outcome> existing = executions.asMap().putIfAbsent(key, execution);
+            if (existing == null) {
+                Outcome outcome = lead(key, fingerprint, operation, execution);
+                if (outcome.fresh()) {
+                    return outcome.toResponse(false);
+                }
+                return replay(outcome, fingerprint);
+            }
+            try {
+                return replay(existing.join(), fingerprint);
+            } catch (CompletionException e) {
+                // Исполнение не дало результата и освободило ключ: запрос исполняется заново
+            }
+        }
+    }
+
+    private Outcome lead(String key, String fingerprint, Supplier<ResponseEntity<StatusResponse>> operation,
+                         CompletableFuture<Outcome> execution) {
+        try {
+            Outcome outcome = claim(key, fingerprint);
+            if (outcome == null) {
+                outcome = run(key, fingerprint, operation);
+            }
+            execution.complete(outcome);
+            return outcome;
+        } catch (RuntimeException | Error e) {
+            // Ожидающие дубликаты не должны зависнуть ни при каком исходе
+            executions.asMap().remove(key, execution);
+            execution.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // null - ключ захвачен этим вызовом; иначе сохранённый ответ запроса, исполненного раньше
+    private Outcome claim(String key, String fingerprint) {
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        repository.saveAndFlush(new IdempotencyRecord(key, fingerprint, LocalDateTime.now())));
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                IdempotencyRecord record = transactionTemplate.execute(status -> repository.findById(key).orElse(null));
+                if (record == null) {
+                    // Другое исполнение освободило ключ между нашей вставкой и чтением
+                    continue;
+                }
+                if (!record.isCompleted()) {
+                    requireSameRequest(record.getRequestFingerprint(), fingerprint);
+                    conflicts.increment();
+                    throw new IdempotencyConflictException("A request with this Idempotency-Key is in progress, retry later");
+                }
+                return Outcome.of(record);
+            }
+        }
+    }
+
+    private Outcome run(String key, String fingerprint, Supplier<ResponseEntity<StatusResponse>> operation) {
+        ResponseEntity<StatusResponse> response;
+        try {
+            response = operation.get();
+        } catch (RuntimeException | Error e) {
+            if (notApplied(e)) {
+                transactionTemplate.executeWithoutResult(status -> repository.release(key));
+            } else {
+                log.warn("Outcome of the request with Idempotency-Key {} is unknown, the key stays claimed", key, e);
+            }
+            throw e;
+        }
+        StatusResponse body = response.getBody();
+        int httpStatus = response.getStatusCode().value();
+        transactionTemplate.executeWithoutResult(status ->
+                repository.complete(key, httpStatus, body.status(), body.message(), LocalDateTime.now()));
+        executed.increment();
+        return new Outcome(fingerprint, httpStatus, body, true);
+    }
+
+    // Исключения, после которых операция точно не применена; после остальных она могла закоммититься
+    private static boolean notApplied(Throwable e) {
+        return e instanceof OperationNotAppliedException || e instanceof ConcurrencyFailureException;
+    }
+
+    private ResponseEntity<StatusResponse> replay(Outcome outcome, String fingerprint) {
+        requireSameRequest(outcome.fingerprint(), fingerprint);
+        replayed.increment();
+        return outcome.toResponse(true);
+    }
+
+    private static void requireSameRequest(String stored, String fingerprint) {
+        if (!stored.equals(fingerprint)) {
+            throw new IdempotencyKeyReuseException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    // Сброс локального кэша: следующий повтор отвечает по таблице
+    public void invalidateAll() {
+        executions.invalidateAll();
+    }
+
+    private void purgeExpired() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+            int deleted = transactionTemplate.execute(status -> repository.deleteCreatedBefore(cutoff));
+            if (deleted > 0) {
+                log.info("Purged {} idempotency key(s) created before {}", deleted, cutoff);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Idempotency key purge failed", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (properties.isEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "idempotency-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.getCleanupInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::purgeExpired, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("Idempotency keys enabled: {}", properties);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // fresh - ответ получен исполнением в этом вызове, а не повтором
+    record Outcome(String fingerprint, int httpStatus, StatusResponse body, boolean fresh) {
+
+        static Outcome of(IdempotencyRecord record) {
+            return new Outcome(record.getRequestFingerprint(), record.getHttpStatus(),
+                    new StatusResponse(record.getStatus(), record.getMessage()), false);
+        }
+
+        ResponseEntity<StatusResponse> toResponse(boolean replay) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(httpStatus);
+            if (replay) {
+                builder.header(REPLAYED_HEADER, "true");
+            }
+            return builder.body(body);
+        }
+    }
+}
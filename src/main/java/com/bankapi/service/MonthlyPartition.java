@@ -0,0 +1,61 @@
+package com.bankapi.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One monthly range partition of {@code bank_transaction}: rows with
+ * {@code from <= timestamp < to}, stored in table {@code bank_transaction_pYYYY_MM}.
+ */
+record MonthlyPartition(YearMonth month) implements Comparable<MonthlyPartition> {
+
+    static final String PARENT = "bank_transaction";
+
+    private static final Pattern NAME = Pattern.compile("^" + PARENT + "_p(\\d{4})_(\\d{2})$");
+
+    static MonthlyPartition of(LocalDate day) {
+        return new MonthlyPartition(YearMonth.from(day));
+    }
+
+    // null - таблица не является помесячной секцией (например, чужая таблица с похожим именем)
+    static MonthlyPartition parse(String tableName) {
+        Matcher matcher = NAME.matcher(tableName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        int month = Integer.parseInt(matcher.group(2));
+        if (month < 1 || month > 12) {
+            return null;
+        }
+        return new MonthlyPartition(YearMonth.of(Integer.parseInt(matcher.group(1)), month));
+    }
+
+    String tableName() {
+        return String.format("%s_p%04d_%02d", PARENT, month.getYear(), month.getMonthValue());
+    }
+
+    LocalDate from() {
+        return month.atDay(1);
+    }
+
+    LocalDate to() {
+        return month.plusMonths(1).atDay(1);
+    }
+
+    MonthlyPartition next() {
+        return new MonthlyPartition(month.plusMonths(1));
+    }
+
+    // Имя и границы подставляются в DDL как литералы: параметры в CREATE TABLE ... PARTITION OF недопустимы
+    String createSql() {
+        return "CREATE TABLE IF NOT EXISTS public." + tableName() + " PARTITION OF public." + PARENT
+                + " FOR VALUES FROM ('" + from() + "') TO ('" + to() + "')";
+    }
+
+    @Override
+    public int compareTo(MonthlyPartition other) {
+        return month.compareTo(other.month);
+    }
+}
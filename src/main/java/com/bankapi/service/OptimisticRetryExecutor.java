@@ -0,0 +1,72 @@
+package com.bankapi.service;
+
+import com.bankapi.config.ConcurrencyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs an optimistic balance mutation when its {@code @Version} check fails.
+ * <p>
+ * Every attempt must run in its own transaction, so the supplier is expected to
+ * open and commit one. Between attempts the executor sleeps for a "full jitter"
+ * exponential backoff: a random delay in {@code [0, min(maxBackoff, initialBackoff * 2^n))}.
+ * <p>
+ * Published counters (tag {@code operation}):
+ * {@code bank.optimistic.conflicts} - version conflicts seen,
+ * {@code bank.optimistic.retries} - attempts re-run after a conflict,
+ * {@code bank.optimistic.exhausted} - operations that gave up after {@code maxAttempts}.
+ */
+@Component
+public class OptimisticRetryExecutor {
+
+    private final ConcurrencyProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticRetryExecutor(ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T execute(String operation, Supplier<T> attempt) {
+        ConcurrencyProperties.Retry retry = properties.getRetry();
+        int maxAttempts = Math.max(1, retry.getMaxAttempts());
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException e) {
+                counter("bank.optimistic.conflicts", operation).increment();
+                if (attemptNumber >= maxAttempts) {
+                    counter("bank.optimistic.exhausted", operation).increment();
+                    throw e;
+                }
+                counter("bank.optimistic.retries", operation).increment();
+                backOff(attemptNumber, retry);
+            }
+        }
+    }
+
+    private void backOff(int attemptNumber, ConcurrencyProperties.Retry retry) {
+        long initial = retry.getInitialBackoff().toNanos();
+        long cap = retry.getMaxBackoff().toNanos();
+        long ceiling = Math.min(cap, initial << Math.min(attemptNumber - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        long delay = ThreadLocalRandom.current().nextLong(ceiling);
+        try {
+            Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off before an optimistic retry", e);
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return meterRegistry.counter(name, "operation", operation);
+    }
+}
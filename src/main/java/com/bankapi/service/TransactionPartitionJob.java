@@ -0,0 +1,226 @@
+package com.bankapi.service;
+
+import com.bankapi.config.PartitionProperties;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains the monthly range partitions of {@code bank_transaction} (PostgreSQL, migration V8).
+ * <p>
+ * Each run creates the partitions for the current month and {@code bank.partitions.premake-months}
+ * months ahead, so inserts never hit a missing range. With {@code retention-months > 0} it also archives
+ * partitions older than that: the partition is detached without blocking writes to the parent, copied
+ * to {@code archive-directory/bank_transaction_pYYYY_MM.csv.gz} with {@code COPY ... TO STDOUT} and dropped.
+ * Dropping a whole partition leaves no dead tuples behind, unlike {@code DELETE}, so vacuum work stays
+ * proportional to the live months.
+ * <p>
+ * A month is archived only after the balance snapshot job has covered its last day, so point-in-time
+ * balances and period summaries keep working without the raw rows. A partition that was detached but
+ * not yet dropped (for example, after a crash) is picked up again on the next run.
+ * <p>
+ * On other databases, or before V8 is applied, the job does nothing.
+ */
+@Component
+public class TransactionPartitionJob implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionPartitionJob.class);
+
+    private static final String ATTACHED_SQL = "SELECT c.relname FROM pg_inherits i"
+            + " JOIN pg_class c ON c.oid = i.inhrelid"
+            + " JOIN pg_class p ON p.oid = i.inhparent"
+            + " JOIN pg_namespace n ON n.oid = p.relnamespace"
+            + " WHERE n.nspname = 'public' AND p.relname = '" + MonthlyPartition.PARENT + "'";
+    // Секции, отсоединённые прошлым запуском, но ещё не выгруженные и не удалённые
+    private static final String DETACHED_SQL = "SELECT c.relname FROM pg_class c"
+            + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+            + " WHERE n.nspname = 'public' AND c.relkind = 'r' AND NOT c.relispartition"
+            + " AND c.relname LIKE '" + MonthlyPartition.PARENT + "\\_p%'";
+    private static final String PARTITIONED_SQL = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table t"
+            + " JOIN pg_class c ON c.oid = t.partrelid"
+            + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+            + " WHERE n.nspname = 'public' AND c.relname = '" + MonthlyPartition.PARENT + "')";
+
+    private final PartitionProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final BalanceSnapshotJob snapshotJob;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public TransactionPartitionJob(PartitionProperties properties, JdbcTemplate jdbcTemplate,
+                                   BalanceSnapshotJob snapshotJob, EntityManagerFactory entityManagerFactory) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotJob = snapshotJob;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Creates missing partitions from the month of {@code today} through {@code premake-months} ahead.
+     *
+     * @return partitions created
+     */
+    public synchronized int createAhead(LocalDate today) {
+        Set<MonthlyPartition> attached = partitions(ATTACHED_SQL);
+        MonthlyPartition partition = MonthlyPartition.of(today);
+        int created = 0;
+        for (int i = 0; i <= properties.getPremakeMonths(); i++, partition = partition.next()) {
+            // CREATE ... PARTITION OF берёт блокировку родителя, поэтому существующие секции не трогаем
+            if (!attached.contains(partition)) {
+                jdbcTemplate.execute(partition.createSql());
+                log.info("Created partition {} [{}, {})", partition.tableName(), partition.from(), partition.to());
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Archives and drops partitions older than {@code retention-months} full months before {@code today},
+     * oldest first, stopping at the first month not yet covered by balance snapshots.
+     *
+     * @return partitions archived
+     */
+    public synchronized int archiveExpired(LocalDate today) {
+        if (properties.getRetentionMonths() <= 0) {
+            return 0;
+        }
+        MonthlyPartition oldestKept = new MonthlyPartition(MonthlyPartition.of(today).month()
+                .minusMonths(properties.getRetentionMonths()));
+        Set<MonthlyPartition> attached = partitions(ATTACHED_SQL);
+        TreeSet<MonthlyPartition> candidates = new TreeSet<>(attached);
+        candidates.addAll(partitions(DETACHED_SQL));
+
+        int archived = 0;
+        for (MonthlyPartition partition : candidates.headSet(oldestKept)) {
+            LocalDate covered = snapshotJob.coveredUntil();
+            if (covered == null || covered.isBefore(partition.to().minusDays(1))) {
+                log.info("Partition {} is past retention but not yet covered by balance snapshots (covered until {})",
+                        partition.tableName(), covered);
+                break;
+            }
+            archive(partition, attached.contains(partition));
+            archived++;
+        }
+        return archived;
+    }
+
+    private void archive(MonthlyPartition partition, boolean attached) {
+        String table = "public." + partition.tableName();
+        if (attached) {
+            // CONCURRENTLY (PostgreSQL 14+) не блокирует чтение и запись родителя; выполняется вне транзакции
+            jdbcTemplate.execute("ALTER TABLE public." + MonthlyPartition.PARENT + " DETACH PARTITION " + table + " CONCURRENTLY");
+        }
+        Path file = export(partition);
+        jdbcTemplate.execute("DROP TABLE " + table);
+        log.info("Partition {} archived to {} and dropped", partition.tableName(), file);
+    }
+
+    private Path export(MonthlyPartition partition) {
+        try {
+            Path directory = Path.of(properties.getArchiveDirectory());
+            Files.createDirectories(directory);
+            Path target = directory.resolve(partition.tableName() + ".csv.gz");
+            Path temporary = directory.resolve(partition.tableName() + ".csv.gz.tmp");
+            String copy = "COPY (SELECT id, user_id, amount, type, \"timestamp\", balance_after, related_user_id, journal_seq"
+                    + " FROM public." + partition.tableName() + " ORDER BY \"timestamp\", id) TO STDOUT WITH (FORMAT csv, HEADER)";
+            long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+                    return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(copy, output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // Файл появляется под итоговым именем только целиком
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Exported {} rows of {} to {}", rows, partition.tableName(), target);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Set<MonthlyPartition> partitions(String sql) {
+        Set<MonthlyPartition> partitions = new TreeSet<>();
+        for (String name : jdbcTemplate.queryForList(sql, String.class)) {
+            MonthlyPartition partition = MonthlyPartition.parse(name);
+            if (partition != null) {
+                partitions.add(partition);
+            }
+        }
+        return partitions;
+    }
+
+    private void runScheduled() {
+        try {
+            LocalDate today = LocalDate.now();
+            createAhead(today);
+            archiveExpired(today);
+        } catch (RuntimeException e) {
+            log.warn("Partition maintenance failed", e);
+        }
+    }
+
+    private boolean isPartitioned() {
+        boolean postgres = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQLDialect;
+        return postgres && Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITIONED_SQL, Boolean.class));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!isPartitioned()) {
+            log.info("bank_transaction is not partitioned, partition maintenance is off");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runScheduled, 0, properties.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Partition maintenance started: {}", properties);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,47 @@
+package com.bankapi.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of Hibernate's pooled optimizer for {@code @SequenceGenerator(allocationSize = 50)}:
+ * every value {@code hi} read from the sequence reserves ids {@code (hi - 50, hi]}, so rows inserted by
+ * both applications never collide and only one id in 50 costs a round-trip.
+ */
+class PooledSequence {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+    private final String nextValueSql;
+
+    // Текущий диапазон: next - следующий свободный id, hi - последний id диапазона
+    private long next = 1;
+    private long hi;
+
+    PooledSequence(DatabaseClient databaseClient, String nextValueSql) {
+        this.databaseClient = databaseClient;
+        this.nextValueSql = nextValueSql;
+    }
+
+    Mono<Long> next() {
+        synchronized (this) {
+            if (next <= hi) {
+                return Mono.just(next++);
+            }
+        }
+        return databaseClient.sql(nextValueSql)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(this::allocate);
+    }
+
+    // Одновременно выбранные диапазоны не пересекаются: вызывающий берёт первый id, остаток становится текущим
+    private synchronized long allocate(long sequenceValue) {
+        // Первое значение последовательности (1) Hibernate тоже берёт одно, без диапазона ниже
+        long first = Math.max(1, sequenceValue - ALLOCATION_SIZE + 1);
+        next = first + 1;
+        hi = sequenceValue;
+        return first;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bankapi.reactive;
+
+import com.bankapi.config.BatchProperties;
+import com.bankapi.config.HistoryProperties;
+import com.bankapi.json.BankJsonModule;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Reactive variant of the banking API: WebFlux on Netty over R2DBC, the same endpoints and JSON as
+ * {@code BankController}. Runs as a separate application next to the servlet one, against the same schema.
+ * <p>
+ * Scans only {@code com.bankapi.reactive}; every bean here is conditional on a reactive web application,
+ * so the servlet {@code BankApplication}, which scans the whole {@code com.bankapi} tree, skips them.
+ */
+@SpringBootApplication(excludeName = {
+        "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+        "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+        "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration"
+})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Import({HistoryProperties.class, BatchProperties.class, BankJsonModule.class})
+public class ReactiveBankApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveBankApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("reactive")
+                .run(args);
+    }
+
+    // Tomcat тоже на classpath (его берёт сервлетное приложение) и выбирался бы первым: нужен цикл событий Netty
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
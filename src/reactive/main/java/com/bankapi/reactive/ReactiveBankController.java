@@ -0,0 +1,191 @@
+package com.bankapi.reactive;
+
+import com.bankapi.dto.BalanceResponse;
+import com.bankapi.dto.BatchTransferResponse;
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.exception.BatchTooLargeException;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.exception.InvalidAmountException;
+import com.bankapi.exception.InvalidCursorException;
+import com.bankapi.exception.UnsupportedFormatException;
+import com.bankapi.exception.UserNotFoundException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The endpoints of {@code BankController} on WebFlux. Paths, parameters, status codes and bodies are
+ * the same; {@code Idempotency-Key}, {@code /balance/{userId}/at} and {@code /transactions/{userId}/summary}
+ * are served by the servlet application only.
+ */
+@RestController
+@RequestMapping("/api/bank")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBankController {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final StatusResponse USER_NOT_FOUND = StatusResponse.failure("Not found user");
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    private static final String CSV_HEADER = "id,userId,amount,type,timestamp,balanceAfter,relatedUserId\n";
+
+    private final ReactiveBankService bankService;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveBankController(ReactiveBankService bankService, ObjectMapper objectMapper) {
+        this.bankService = bankService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/balance/{userId}")
+    public Mono<ResponseEntity<?>> getBalance(@PathVariable Long userId) {
+        return bankService.getBalance(userId)
+                .<ResponseEntity<?>>map(balance -> ResponseEntity.ok(new BalanceResponse(userId, balance)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(USER_NOT_FOUND));
+    }
+
+    @PostMapping("/deposit")
+    public Mono<ResponseEntity<StatusResponse>> putMoney(@RequestParam Long userId, @RequestParam BigDecimal amount) {
+        return bankService.putMoney(userId, amount).map(ReactiveBankController::toResponse);
+    }
+
+    @PostMapping("/withdraw")
+    public Mono<ResponseEntity<StatusResponse>> takeMoney(@RequestParam Long userId, @RequestParam BigDecimal amount) {
+        return bankService.takeMoney(userId, amount).map(ReactiveBankController::toResponse);
+    }
+
+    private static ResponseEntity<StatusResponse> toResponse(int result) {
+        if (result == 1) {
+            return ResponseEntity.ok(StatusResponse.SUCCESSFUL);
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.FAIL);
+    }
+
+    @GetMapping("/transactions/{userId}")
+    public Mono<ResponseEntity<List<TransactionView>>> getTransactions(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        return bankService.getOperationPage(userId, startDate, endDate, cursor, limit).map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(page.items());
+        });
+    }
+
+    /**
+     * Streams the history of the period as NDJSON or CSV, one line per row. The body is a {@link Flux}:
+     * Netty requests lines as it writes them, so the query advances at the client's pace and nothing is buffered.
+     */
+    @GetMapping("/transactions/{userId}/export")
+    public ResponseEntity<Flux<String>> exportTransactions(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        Flux<TransactionView> rows = bankService.streamOperations(userId, startDate, endDate);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions-" + userId + "." + format.toLowerCase() + "\"");
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return response.contentType(NDJSON).body(rows.map(this::jsonRow));
+        }
+        if ("csv".equalsIgnoreCase(format)) {
+            return response.contentType(CSV).body(Flux.concat(Mono.just(CSV_HEADER), rows.map(ReactiveBankController::csvRow)));
+        }
+        throw new UnsupportedFormatException("Unsupported export format: " + format);
+    }
+
+    private String jsonRow(TransactionView transaction) {
+        try {
+            return objectMapper.writeValueAsString(transaction) + '\n';
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Тот же формат строки, что у TransactionExportWriter
+    private static String csvRow(TransactionView transaction) {
+        StringBuilder row = new StringBuilder(96)
+                .append(transaction.id()).append(',')
+                .append(transaction.userId()).append(',')
+                .append(transaction.amount().toPlainString()).append(',')
+                .append(csvField(transaction.type())).append(',')
+                .append(transaction.timestamp()).append(',')
+                .append(transaction.balanceAfter().toPlainString()).append(',');
+        if (transaction.relatedUserId() != null) {
+            row.append(transaction.relatedUserId());
+        }
+        return row.append('\n').toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @PostMapping("/transfer")
+    public Mono<ResponseEntity<StatusResponse>> transfer(@RequestBody TransferRequest request) {
+        return bankService.transferMoney(request.getSenderId(), request.getReceiverId(), request.getAmount())
+                .thenReturn(ResponseEntity.ok(StatusResponse.SUCCESSFUL));
+    }
+
+    @PostMapping("/transfer/batch")
+    public Mono<ResponseEntity<BatchTransferResponse>> transferBatch(@RequestBody List<TransferRequest> requests) {
+        return bankService.transferBatch(requests).map(results -> ResponseEntity.ok(BatchTransferResponse.of(results)));
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<StatusResponse> handleUserNotFoundException(UserNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InsufficientFundsException.class)
+    public ResponseEntity<StatusResponse> handleInsufficientFundsException(InsufficientFundsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidAmountException.class)
+    public ResponseEntity<StatusResponse> handleInvalidAmountException(InvalidAmountException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StatusResponse> handleInvalidCursorException(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(UnsupportedFormatException.class)
+    public ResponseEntity<StatusResponse> handleUnsupportedFormatException(UnsupportedFormatException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure(ex.getMessage()));
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<StatusResponse> handleBatchTooLargeException(BatchTooLargeException ex) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(StatusResponse.failure(ex.getMessage()));
+    }
+}
@@ -0,0 +1,157 @@
+package com.bankapi.reactive;
+
+import com.bankapi.dto.OperationCursor;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.repository.BalanceUpdateRepository.BalanceChange;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking SQL over {@code bank_account}, {@code bank_account_slot} and {@code bank_transaction}.
+ * <p>
+ * Balance changes are the same conditional UPDATEs as {@code BalanceUpdateRepositoryImpl}, with the new
+ * balance and version read back in the same statement: {@code UPDATE ... RETURNING} on PostgreSQL,
+ * a {@code FINAL TABLE} delta query on H2. Ids of history rows come from {@link PooledSequence}.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBankRepository {
+
+    private static final String CREDIT = "UPDATE bank_account SET balance = balance + :amount, version = version + 1"
+            + " WHERE user_id = :userId";
+    private static final String DEBIT = "UPDATE bank_account SET balance = balance - :amount, version = version + 1"
+            + " WHERE user_id = :userId AND balance >= :amount";
+
+    // Баланс горячего счёта - строка плюс слоты (bank.hot-accounts сервлетного приложения)
+    private static final String BALANCE = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM bank_account_slot s"
+            + " WHERE s.user_id = a.user_id), 0) AS balance FROM bank_account a WHERE a.user_id = :userId";
+
+    private static final String HISTORY_COLUMNS = "SELECT id, user_id, amount, type, timestamp, balance_after, related_user_id"
+            + " FROM bank_transaction WHERE user_id = :userId AND timestamp >= :startDate AND timestamp <= :endDate";
+
+    private static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+    private final boolean postgres;
+    private final PooledSequence transactionIds;
+
+    public ReactiveBankRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.postgres = connectionFactory.getMetadata().getName().startsWith("PostgreSQL");
+        this.transactionIds = new PooledSequence(databaseClient, postgres
+                ? "SELECT nextval('bank_transaction_id_seq')"
+                : "SELECT NEXT VALUE FOR bank_transaction_id_seq");
+    }
+
+    public Mono<BigDecimal> findBalance(Long userId) {
+        return databaseClient.sql(BALANCE)
+                .bind("userId", userId)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one();
+    }
+
+    public Mono<Boolean> exists(Long userId) {
+        return databaseClient.sql("SELECT 1 FROM bank_account WHERE user_id = :userId")
+                .bind("userId", userId)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    // Пусто - счёта нет
+    public Mono<BalanceChange> addToBalance(Long userId, BigDecimal amount) {
+        return change(CREDIT, userId, amount);
+    }
+
+    // Пусто - счёта нет или средств недостаточно
+    public Mono<BalanceChange> subtractFromBalance(Long userId, BigDecimal amount) {
+        return change(DEBIT, userId, amount);
+    }
+
+    private Mono<BalanceChange> change(String update, Long userId, BigDecimal amount) {
+        String sql = postgres
+                ? update + " RETURNING balance, version"
+                : "SELECT balance, version FROM FINAL TABLE (" + update + ")";
+        return databaseClient.sql(sql)
+                .bind("userId", userId)
+                .bind("amount", amount)
+                .map(row -> new BalanceChange(row.get("balance", BigDecimal.class), row.get("version", Long.class)))
+                .one();
+    }
+
+    public Mono<Void> insertHistory(Long userId, BigDecimal amount, String type, LocalDateTime timestamp,
+                                    BigDecimal balanceAfter, Long relatedUserId) {
+        return transactionIds.next().flatMap(id -> {
+            DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO bank_transaction"
+                            + " (id, user_id, amount, type, timestamp, balance_after, related_user_id)"
+                            + " VALUES (:id, :userId, :amount, :type, :timestamp, :balanceAfter, :relatedUserId)")
+                    .bind("id", id)
+                    .bind("userId", userId)
+                    .bind("amount", amount)
+                    .bind("type", type)
+                    .bind("timestamp", timestamp)
+                    .bind("balanceAfter", balanceAfter);
+            insert = relatedUserId != null ? insert.bind("relatedUserId", relatedUserId) : insert.bindNull("relatedUserId", Long.class);
+            return insert.then();
+        });
+    }
+
+    // Первая страница периода, как TransactionRepository.findFirstPage
+    public Flux<TransactionView> findFirstPage(Long userId, LocalDateTime startDate, LocalDateTime endDate, int limit) {
+        return databaseClient.sql(HISTORY_COLUMNS + " ORDER BY timestamp ASC, id ASC LIMIT :limit")
+                .bind("userId", userId)
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .bind("limit", limit)
+                .map(ReactiveBankRepository::toView)
+                .all();
+    }
+
+    // Страница после курсора по ключу (timestamp, id), как TransactionRepository.findPageAfter;
+    // нижняя граница timestamp отсекает секции bank_transaction раньше курсора
+    public Flux<TransactionView> findPageAfter(Long userId, OperationCursor after, LocalDateTime endDate, int limit) {
+        return databaseClient.sql(HISTORY_COLUMNS + " AND (timestamp, id) > (:startDate, :afterId)"
+                        + " ORDER BY timestamp ASC, id ASC LIMIT :limit")
+                .bind("userId", userId)
+                .bind("startDate", after.timestamp())
+                .bind("afterId", after.id())
+                .bind("endDate", endDate)
+                .bind("limit", limit)
+                .map(ReactiveBankRepository::toView)
+                .all();
+    }
+
+    /**
+     * Streams the whole period in history order. Rows are fetched {@value #FETCH_SIZE} at a time as the
+     * subscriber requests them, so a slow client holds back the query instead of buffering the history.
+     */
+    public Flux<TransactionView> streamHistory(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        return databaseClient.sql(HISTORY_COLUMNS + " ORDER BY timestamp ASC, id ASC")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .bind("userId", userId)
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .map(ReactiveBankRepository::toView)
+                .all();
+    }
+
+    private static TransactionView toView(Readable row) {
+        return new TransactionView(
+                row.get("id", Long.class),
+                row.get("user_id", Long.class),
+                row.get("amount", BigDecimal.class),
+                row.get("type", String.class),
+                row.get("timestamp", LocalDateTime.class),
+                row.get("balance_after", BigDecimal.class),
+                row.get("related_user_id", Long.class));
+    }
+}
@@ -0,0 +1,175 @@
+package com.bankapi.reactive;
+
+import com.bankapi.config.BatchProperties;
+import com.bankapi.config.HistoryProperties;
+import com.bankapi.dto.OperationCursor;
+import com.bankapi.dto.OperationPage;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.exception.BatchTooLargeException;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.exception.InvalidAmountException;
+import com.bankapi.exception.UserNotFoundException;
+import com.bankapi.repository.BalanceUpdateRepository.BalanceChange;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@code BankService} operations as non-blocking pipelines: a request holds no thread while it waits
+ * for the database, so the number of requests in flight is bounded by the R2DBC pool and memory,
+ * not by a thread pool.
+ * <p>
+ * Every balance change is a single conditional UPDATE; a transfer updates both rows in ascending id
+ * order inside one transaction, so opposite transfers cannot deadlock, and a failed check rolls the
+ * whole transfer back. Not covered here: hot-account slots are read but never swept (debits see the
+ * account row only), the write-behind ledger, balance cache and group commit of the servlet application.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBankService {
+
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final ReactiveBankRepository repository;
+    private final TransactionalOperator transactionalOperator;
+    private final HistoryProperties historyProperties;
+    private final BatchProperties batchProperties;
+
+    public ReactiveBankService(ReactiveBankRepository repository, TransactionalOperator transactionalOperator,
+                               HistoryProperties historyProperties, BatchProperties batchProperties) {
+        this.repository = repository;
+        this.transactionalOperator = transactionalOperator;
+        this.historyProperties = historyProperties;
+        this.batchProperties = batchProperties;
+    }
+
+    // Пусто - счёта нет
+    public Mono<BigDecimal> getBalance(Long userId) {
+        return repository.findBalance(userId);
+    }
+
+    public Mono<Integer> putMoney(Long userId, BigDecimal amount) {
+        if (!isPositive(amount)) {
+            return Mono.just(0);
+        }
+        return repository.addToBalance(userId, amount)
+                .flatMap(change -> repository.insertHistory(userId, amount, "DEPOSIT", LocalDateTime.now(), change.balance(), null)
+                        .thenReturn(1))
+                .defaultIfEmpty(0)
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Integer> takeMoney(Long userId, BigDecimal amount) {
+        if (!isPositive(amount)) {
+            return Mono.just(0);
+        }
+        // Ноль затронутых строк: счёта нет или средств недостаточно
+        return repository.subtractFromBalance(userId, amount)
+                .flatMap(change -> repository.insertHistory(userId, amount, "WITHDRAW", LocalDateTime.now(), change.balance(), null)
+                        .thenReturn(1))
+                .defaultIfEmpty(0)
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Void> transferMoney(Long senderId, Long receiverId, BigDecimal amount) {
+        if (!isPositive(amount)) {
+            return Mono.error(new InvalidAmountException("Transfer amount must be positive."));
+        }
+        if (senderId.equals(receiverId)) {
+            return Mono.error(new InvalidAmountException("Cannot transfer money to yourself."));
+        }
+        Mono<BalanceChange> debit = Mono.defer(() -> debitSender(senderId, amount));
+        Mono<BalanceChange> credit = Mono.defer(() -> repository.addToBalance(receiverId, amount)
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException("Receiver user not found with ID: " + receiverId))));
+        // Строки блокируются по возрастанию id
+        Mono<BalanceChange[]> changes = senderId < receiverId
+                ? debit.flatMap(sender -> credit.map(receiver -> new BalanceChange[]{sender, receiver}))
+                : credit.flatMap(receiver -> debit.map(sender -> new BalanceChange[]{sender, receiver}));
+        return changes
+                .flatMap(applied -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    return repository.insertHistory(senderId, amount, "TRANSFER_OUT", now, applied[0].balance(), receiverId)
+                            .then(repository.insertHistory(receiverId, amount, "TRANSFER_IN", now, applied[1].balance(), senderId));
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<BalanceChange> debitSender(Long senderId, BigDecimal amount) {
+        return repository.subtractFromBalance(senderId, amount)
+                .switchIfEmpty(repository.exists(senderId).flatMap(exists -> Mono.error(exists
+                        ? new InsufficientFundsException("Insufficient funds for user ID: " + senderId)
+                        : new UserNotFoundException("Sender user not found with ID: " + senderId))));
+    }
+
+    /**
+     * Applies the transfers one after another, each in its own transaction, and reports every outcome
+     * in request order. Unlike the servlet batch there is no grouping into shared transactions.
+     */
+    public Mono<List<TransferResult>> transferBatch(List<TransferRequest> requests) {
+        if (requests.size() > batchProperties.getMaxSize()) {
+            return Mono.error(new BatchTooLargeException(
+                    "Batch size " + requests.size() + " exceeds limit of " + batchProperties.getMaxSize()));
+        }
+        return Flux.range(0, requests.size())
+                .concatMap(index -> {
+                    TransferRequest request = requests.get(index);
+                    if (request == null || request.getSenderId() == null || request.getReceiverId() == null) {
+                        return Mono.just(TransferResult.failure(index, request, "Sender and receiver are required."));
+                    }
+                    return transferMoney(request.getSenderId(), request.getReceiverId(), request.getAmount())
+                            .thenReturn(TransferResult.success(index, request))
+                            .onErrorResume(e -> Mono.just(TransferResult.failure(index, request, e.getMessage())));
+                })
+                .collectList();
+    }
+
+    public Mono<OperationPage> getOperationPage(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                                String cursor, Integer limit) {
+        int pageSize = limit == null || limit <= 0
+                ? historyProperties.getDefaultPageSize()
+                : Math.min(limit, historyProperties.getMaxPageSize());
+        LocalDateTime to = endDate != null ? endDate : HISTORY_END;
+        // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+        Flux<TransactionView> rows;
+        if (cursor != null && !cursor.isBlank()) {
+            OperationCursor after;
+            try {
+                after = OperationCursor.decode(cursor);
+            } catch (RuntimeException e) {
+                return Mono.error(e);
+            }
+            rows = repository.findPageAfter(userId, after, to, pageSize + 1);
+        } else {
+            rows = repository.findFirstPage(userId, startDate != null ? startDate : HISTORY_START, to, pageSize + 1);
+        }
+        return rows.collectList().map(items -> {
+            if (items.size() <= pageSize) {
+                return new OperationPage(items, null);
+            }
+            List<TransactionView> page = items.subList(0, pageSize);
+            TransactionView last = page.get(pageSize - 1);
+            return new OperationPage(page, new OperationCursor(last.timestamp(), last.id()).encode());
+        });
+    }
+
+    // История за период целиком; строки читаются из БД по мере запроса подписчика
+    public Flux<TransactionView> streamOperations(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        return repository.streamHistory(userId,
+                startDate != null ? startDate : HISTORY_START,
+                endDate != null ? endDate : HISTORY_END);
+    }
+
+    private static boolean isPositive(BigDecimal amount) {
+        return amount != null && amount.compareTo(BigDecimal.ZERO) > 0;
+    }
+}
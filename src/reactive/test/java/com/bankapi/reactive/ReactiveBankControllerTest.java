@@ -0,0 +1,266 @@
+package com.bankapi.reactive;
+
+import com.bankapi.dto.TransferRequest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = ReactiveBankApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive-test")
+public class ReactiveBankControllerTest {
+
+    private static final long USER_1 = 1001L;
+    private static final long USER_2 = 1002L;
+    private static final long USER_3 = 1003L;
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = webTestClient.mutate().responseTimeout(Duration.ofSeconds(10)).build();
+        databaseClient.sql("DELETE FROM bank_transaction").then()
+                .then(databaseClient.sql("DELETE FROM bank_account").then())
+                .then(insertAccount(USER_1, "1000.00"))
+                .then(insertAccount(USER_2, "500.00"))
+                .then(insertAccount(USER_3, "0.00"))
+                .block();
+    }
+
+    private Mono<Void> insertAccount(long userId, String balance) {
+        return databaseClient.sql("INSERT INTO bank_account (user_id, balance, version) VALUES (:userId, :balance, 0)")
+                .bind("userId", userId)
+                .bind("balance", new BigDecimal(balance))
+                .then();
+    }
+
+    private BigDecimal balance(long userId) {
+        return databaseClient.sql("SELECT balance FROM bank_account WHERE user_id = :userId")
+                .bind("userId", userId)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one()
+                .block();
+    }
+
+    private long historyRows(long userId) {
+        return databaseClient.sql("SELECT COUNT(*) FROM bank_transaction WHERE user_id = :userId")
+                .bind("userId", userId)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+    }
+
+    private static TransferRequest transferRequest(Long senderId, Long receiverId, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setSenderId(senderId);
+        request.setReceiverId(receiverId);
+        request.setAmount(amount == null ? null : new BigDecimal(amount));
+        return request;
+    }
+
+    @Test
+    void testGetBalance() {
+        webTestClient.get().uri("/api/bank/balance/{userId}", USER_1)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.userId").isEqualTo(USER_1)
+                .jsonPath("$.balance").isEqualTo(1000.0);
+
+        webTestClient.get().uri("/api/bank/balance/{userId}", 999L)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(0)
+                .jsonPath("$.message").isEqualTo("Not found user");
+    }
+
+    @Test
+    void testDepositAndWithdraw() {
+        webTestClient.post().uri("/api/bank/deposit?userId={userId}&amount=250.50", USER_3)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.status").isEqualTo(1);
+        webTestClient.post().uri("/api/bank/withdraw?userId={userId}&amount=50.50", USER_3)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(0, new BigDecimal("200.00").compareTo(balance(USER_3)));
+        assertEquals(2, historyRows(USER_3));
+    }
+
+    @Test
+    void testWithdrawRefusals() {
+        webTestClient.post().uri("/api/bank/withdraw?userId={userId}&amount=500.01", USER_2)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("fail");
+        webTestClient.post().uri("/api/bank/deposit?userId={userId}&amount=10", 999L)
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.post().uri("/api/bank/deposit?userId={userId}&amount=-10", USER_2)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertEquals(0, new BigDecimal("500.00").compareTo(balance(USER_2)));
+        assertEquals(0, historyRows(USER_2));
+    }
+
+    @Test
+    void testTransfer() {
+        webTestClient.post().uri("/api/bank/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferRequest(USER_1, USER_2, "300.00"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.status").isEqualTo(1);
+
+        assertEquals(0, new BigDecimal("700.00").compareTo(balance(USER_1)));
+        assertEquals(0, new BigDecimal("800.00").compareTo(balance(USER_2)));
+        assertEquals(1, historyRows(USER_1));
+        assertEquals(1, historyRows(USER_2));
+    }
+
+    @Test
+    void testTransferRefusalsRollBack() {
+        webTestClient.post().uri("/api/bank/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferRequest(USER_2, USER_1, "500.01"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Insufficient funds for user ID: " + USER_2);
+
+        // Отправитель списывается первым (меньший id), получателя нет - списание откатывается
+        webTestClient.post().uri("/api/bank/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferRequest(USER_1, 999L, "100.00"))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Receiver user not found with ID: 999");
+
+        webTestClient.post().uri("/api/bank/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(transferRequest(USER_1, USER_1, "1.00"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Cannot transfer money to yourself.");
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(balance(USER_1)));
+        assertEquals(0, new BigDecimal("500.00").compareTo(balance(USER_2)));
+        assertEquals(0, historyRows(USER_1) + historyRows(USER_2));
+    }
+
+    @Test
+    void testTransferBatch() {
+        List<TransferRequest> batch = List.of(
+                transferRequest(USER_1, USER_3, "100.00"),
+                transferRequest(USER_2, USER_3, "600.00"),
+                transferRequest(USER_3, USER_2, "50.00"));
+
+        webTestClient.post().uri("/api/bank/transfer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.succeeded").isEqualTo(2)
+                .jsonPath("$.failed").isEqualTo(1)
+                .jsonPath("$.results[1].status").isEqualTo(0)
+                .jsonPath("$.results[1].message").isEqualTo("Insufficient funds for user ID: " + USER_2);
+
+        assertEquals(0, new BigDecimal("900.00").compareTo(balance(USER_1)));
+        assertEquals(0, new BigDecimal("550.00").compareTo(balance(USER_2)));
+        assertEquals(0, new BigDecimal("50.00").compareTo(balance(USER_3)));
+    }
+
+    @Test
+    void testTransactionsPagesWithCursor() {
+        for (int i = 0; i < 5; i++) {
+            webTestClient.post().uri("/api/bank/deposit?userId={userId}&amount=1", USER_3).exchange().expectStatus().isOk();
+        }
+
+        String cursor = webTestClient.get().uri("/api/bank/transactions/{userId}?limit=3", USER_3)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(3)
+                .returnResult().getResponseHeaders().getFirst(ReactiveBankController.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+
+        webTestClient.get().uri(builder -> builder.path("/api/bank/transactions/{userId}")
+                        .queryParam("limit", 3).queryParam("cursor", cursor).build(USER_3))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(ReactiveBankController.NEXT_CURSOR_HEADER)
+                .expectBody().jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].balanceAfter").isEqualTo(5.0);
+
+        webTestClient.get().uri("/api/bank/transactions/{userId}?cursor=%%%", USER_3)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testExportStreamsRows() {
+        for (int i = 0; i < 3; i++) {
+            webTestClient.post().uri("/api/bank/deposit?userId={userId}&amount=2", USER_3).exchange().expectStatus().isOk();
+        }
+
+        List<String> lines = webTestClient.get().uri("/api/bank/transactions/{userId}/export?format=csv", USER_3)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .returnResult(String.class).getResponseBody()
+                .flatMapIterable(chunk -> List.of(chunk.split("\n")))
+                .collectList().block();
+        assertEquals(4, lines.size());
+        assertEquals("id,userId,amount,type,timestamp,balanceAfter,relatedUserId", lines.get(0));
+        assertTrue(lines.get(3).contains(",DEPOSIT,"));
+
+        String ndjson = String.join("\n", webTestClient.get().uri("/api/bank/transactions/{userId}/export", USER_3)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("application/x-ndjson")
+                .returnResult(String.class).getResponseBody()
+                .collectList().block());
+        assertEquals(3, ndjson.lines().filter(line -> line.startsWith("{\"id\"")).count());
+
+        webTestClient.get().uri("/api/bank/transactions/{userId}/export?format=xml", USER_3)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void testOppositeTransfersKeepTotal() {
+        // Встречные переводы блокируют строки в одном порядке: без взаимоблокировок и потерь
+        Flux.range(0, 200)
+                .flatMap(i -> webTestClient.post().uri("/api/bank/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(i % 2 == 0 ? transferRequest(USER_1, USER_2, "1.00") : transferRequest(USER_2, USER_1, "1.00"))
+                        .exchange()
+                        .returnResult(String.class)
+                        .getResponseBody()
+                        .then(), 32)
+                .blockLast(Duration.ofSeconds(30));
+
+        assertEquals(0, new BigDecimal("1500.00").compareTo(balance(USER_1).add(balance(USER_2))));
+        assertEquals(200, historyRows(USER_1));
+    }
+}
@@ -0,0 +1,173 @@
+package com.bankapi.reactive;
+
+import com.bankapi.BankApplication;
+import com.bankapi.model.BankAccount;
+import com.bankapi.repository.BankAccountRepository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The same load against the servlet application (Tomcat + JPA) and the reactive one (Netty + R2DBC),
+ * one after the other in this JVM, over one in-memory H2 database: {@link #IN_FLIGHT} requests are
+ * kept in flight for {@link #DURATION} (80% balance reads, 20% deposits).
+ * <p>
+ * Run with {@code mvn test -Preactive -Pbenchmark -Dtest=ServletVsReactiveLoadTest} and compare the two
+ * output lines: throughput, latency percentiles and the number of server threads that carried the load.
+ * H2 is embedded and r2dbc-h2 calls it synchronously on the event loop, so the database costs are the same
+ * for both sides; the difference shown is the request handling, not the driver.
+ */
+@Tag("benchmark")
+public class ServletVsReactiveLoadTest {
+
+    private static final int IN_FLIGHT = 2000;
+    private static final int ACCOUNTS = 100;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    // Аргументы командной строки: перекрывают application.properties, в отличие от properties() билдера
+    private static final String[] ARGS = {
+            "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+            "--spring.r2dbc.url=r2dbc:h2:mem:///loadtest;DB_CLOSE_DELAY=-1",
+            "--spring.sql.init.mode=never",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+            "--server.port=0"
+    };
+
+    private final AtomicInteger errors = new AtomicInteger();
+
+    @Test
+    void compareServletAndReactive() {
+        // Схему и счета создаёт сервлетное приложение (Hibernate ddl-auto), реактивное работает с ними же
+        try (ConfigurableApplicationContext servlet = new SpringApplicationBuilder(BankApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .profiles("test")
+                .run(ARGS)) {
+            List<Long> accountIds = createAccounts(servlet.getBean(BankAccountRepository.class));
+            measure("servlet + JPA", port(servlet), accountIds, "http-nio-");
+
+            try (ConfigurableApplicationContext reactive = new SpringApplicationBuilder(ReactiveBankApplication.class)
+                    .web(WebApplicationType.REACTIVE)
+                    .profiles("reactive-test")
+                    .run(ARGS)) {
+                measure("reactive + R2DBC", port(reactive), accountIds, "reactor-http-");
+            }
+        }
+    }
+
+    private static List<Long> createAccounts(BankAccountRepository repository) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids.add(repository.save(new BankAccount(new BigDecimal("1000.00"))).getUserId());
+        }
+        return ids;
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private void measure(String label, int port, List<Long> accountIds, String serverThreadPrefix) {
+        ConnectionProvider connections = ConnectionProvider.builder("load-" + port)
+                .maxConnections(IN_FLIGHT)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try {
+            WebClient client = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build();
+            run(client, accountIds, WARMUP);
+            errors.set(0);
+            long[] latencies = run(client, accountIds, DURATION);
+            report(label, latencies, serverThreads(serverThreadPrefix));
+        } finally {
+            connections.disposeLater().block();
+        }
+    }
+
+    private long[] run(WebClient client, List<Long> accountIds, Duration duration) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        LatencyRecorder recorder = new LatencyRecorder();
+        Flux.range(0, Integer.MAX_VALUE)
+                .takeWhile(i -> System.nanoTime() < deadline)
+                .flatMap(i -> request(client, accountIds, recorder), IN_FLIGHT)
+                .blockLast();
+        return recorder.sorted();
+    }
+
+    private Mono<Void> request(WebClient client, List<Long> accountIds, LatencyRecorder recorder) {
+        return Mono.defer(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Long userId = accountIds.get(random.nextInt(accountIds.size()));
+            WebClient.RequestHeadersSpec<?> request = random.nextInt(10) < 8
+                    ? client.get().uri("/api/bank/balance/{userId}", userId)
+                    : client.post().uri("/api/bank/deposit?userId={userId}&amount=1.00", userId);
+            long start = System.nanoTime();
+            return request.exchangeToMono(response -> {
+                        if (!response.statusCode().is2xxSuccessful()) {
+                            errors.incrementAndGet();
+                        }
+                        return response.releaseBody();
+                    })
+                    .onErrorResume(e -> {
+                        errors.incrementAndGet();
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> recorder.record(System.nanoTime() - start));
+        });
+    }
+
+    private static long serverThreads(String prefix) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(prefix))
+                .count();
+    }
+
+    private void report(String label, long[] latencies, long serverThreads) {
+        System.out.printf("--- Load %-16s in-flight=%d requests=%d errors=%d %.0f req/s p50=%.1fms p99=%.1fms server threads=%d ---%n",
+                label, IN_FLIGHT, latencies.length, errors.get(),
+                latencies.length / (double) DURATION.toSeconds(),
+                latencies[latencies.length / 2] / 1_000_000.0,
+                latencies[(int) (latencies.length * 0.99)] / 1_000_000.0,
+                serverThreads);
+    }
+
+    private static final class LatencyRecorder {
+
+        private long[] latencies = new long[1 << 16];
+        private int count;
+
+        synchronized void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] result = Arrays.copyOf(latencies, count);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+-- Схема для H2: в PostgreSQL таблицы создаёт сервлетное приложение и миграции db/migration
+CREATE SEQUENCE IF NOT EXISTS bank_account_user_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bank_transaction_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS bank_account (
+    user_id BIGINT PRIMARY KEY,
+    balance NUMERIC(38, 2) NOT NULL,
+    version BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS bank_account_slot (
+    user_id BIGINT NOT NULL,
+    slot INTEGER NOT NULL,
+    balance NUMERIC(38, 2) NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (user_id, slot)
+);
+
+CREATE TABLE IF NOT EXISTS bank_transaction (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    amount NUMERIC(38, 2) NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    balance_after NUMERIC(38, 2) NOT NULL,
+    related_user_id BIGINT,
+    journal_seq BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_bank_transaction_user_ts_id ON bank_transaction (user_id, timestamp, id);
@@ -0,0 +1,120 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.model.BankAccount;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fixture shared by the in-process benchmarks that drive {@code BankService} against embedded H2:
+ * a fresh set of accounts, a fixed pool of callers, and one output line per measured variant.
+ * Subclasses carry their own {@code @Tag("benchmark")} and {@code @SpringBootTest} properties.
+ */
+abstract class AbstractDatabaseBenchmark {
+
+    @Autowired
+    protected BankAccountRepository bankAccountRepository;
+    @Autowired
+    protected TransactionRepository transactionRepository;
+
+    // Одна операция вызывающего потока; i - её номер в потоке
+    @FunctionalInterface
+    protected interface Operation {
+        void run(int i) throws Exception;
+    }
+
+    // Пустая история и count новых счетов с одинаковым балансом
+    protected List<Long> resetAccounts(int count, String balance) {
+        clearAccounts();
+        return createAccounts(count, balance);
+    }
+
+    protected void clearAccounts() {
+        transactionRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+    }
+
+    protected List<Long> createAccounts(int count, String balance) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(bankAccountRepository.save(new BankAccount(new BigDecimal(balance))).getUserId());
+        }
+        return ids;
+    }
+
+    protected BigDecimal totalBalance(List<Long> ids) {
+        return bankAccountRepository.findAllById(ids).stream()
+                .map(BankAccount::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // threads потоков выполняют по perThread операций; возвращает время всего прогона
+    protected long runConcurrently(int threads, int perThread, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    operation.run(i);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        return System.nanoTime() - start;
+    }
+
+    // Задержка каждой операции: iterations подряд в каждом из threads потоков
+    protected long[] latencies(int threads, int iterations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long[] nanos = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    operation.run(i);
+                    nanos[i] = System.nanoTime() - start;
+                }
+                return nanos;
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] part = future.get();
+            long[] merged = Arrays.copyOf(all, all.length + part.length);
+            System.arraycopy(part, 0, merged, all.length, part.length);
+            all = merged;
+        }
+        executor.shutdown();
+        Arrays.sort(all);
+        return all;
+    }
+
+    protected static void reportThroughput(String label, int operations, long elapsedNanos) {
+        System.out.printf("--- Benchmark %-45s ops=%d %.0f ops/s ---%n",
+                label, operations, operations / (elapsedNanos / 1_000_000_000.0));
+    }
+
+    // sorted - отсортированные задержки в наносекундах
+    protected static void reportLatency(String label, long[] sorted) {
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1_000.0;
+        System.out.printf("--- Benchmark %-45s ops=%d mean=%.1fus p50=%.1fus p99=%.1fus ---%n",
+                label, sorted.length, mean,
+                sorted[sorted.length / 2] / 1_000.0,
+                sorted[(int) (sorted.length * 0.99)] / 1_000.0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.model.BankAccount;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop HTTP load against a running server: {@link #CLIENTS} clients, each sending the next request
+ * as soon as the previous one returns (80% balance reads, 20% deposits) for {@link #DURATION}.
+ * Subclasses pick the Tomcat thread model; compare their output lines.
+ */
+abstract class AbstractRestLoadTest {
+
+    private static final int CLIENTS = 400;
+    private static final int ACCOUNTS = 100;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @LocalServerPort
+    private int port;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private final List<Long> accountIds = new ArrayList<>();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        accountIds.clear();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(bankAccountRepository.save(new BankAccount(new BigDecimal("1000.00"))).getUserId());
+        }
+    }
+
+    @Test
+    void measureThroughputAndLatency() throws Exception {
+        run(WARMUP);
+        errors.set(0);
+        long[] latencies = run(DURATION);
+        report(latencies);
+    }
+
+    private long[] run(Duration duration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            futures.add(executor.submit(() -> clientLoop(deadline)));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] part = future.get();
+            long[] merged = Arrays.copyOf(all, all.length + part.length);
+            System.arraycopy(part, 0, merged, all.length, part.length);
+            all = merged;
+        }
+        executor.shutdown();
+        return all;
+    }
+
+    private long[] clientLoop(long deadline) throws Exception {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            Long userId = accountIds.get(random.nextInt(ACCOUNTS));
+            HttpRequest request = random.nextInt(10) < 8
+                    ? HttpRequest.newBuilder(uri("/api/bank/balance/" + userId)).GET().build()
+                    : HttpRequest.newBuilder(uri("/api/bank/deposit?userId=" + userId + "&amount=1.00"))
+                            .POST(HttpRequest.BodyPublishers.noBody()).build();
+            long start = System.nanoTime();
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                errors.incrementAndGet();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void report(long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("--- Load %-16s clients=%d requests=%d errors=%d %.0f req/s p50=%.1fms p95=%.1fms p99=%.1fms ---%n",
+                virtualThreads ? "virtual threads" : "platform threads", CLIENTS, latencies.length, errors.get(),
+                latencies.length / (double) DURATION.toSeconds(),
+                latencies[latencies.length / 2] / 1_000_000.0,
+                latencies[(int) (latencies.length * 0.95)] / 1_000_000.0,
+                latencies[(int) (latencies.length * 0.99)] / 1_000_000.0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.config.EngineProperties;
+import com.bankapi.engine.AccountEngine;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * transferMoney throughput through JPA row locks vs the in-memory account engine, with and without fsync
+ * of its journal. The engine is stopped for the JPA run, so BankService falls back to the database path.
+ * Run with {@code mvn test -Pbenchmark -Dtest=AccountEngineBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "bank.engine.enabled=true",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class AccountEngineBenchmarkTest extends AbstractDatabaseBenchmark {
+
+    private static final int ACCOUNTS = 100;
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 20_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        try {
+            registry.add("bank.engine.directory", Files.createTempDirectory("engine-benchmark")::toString);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private AccountEngine engine;
+    @Autowired
+    private EngineProperties engineProperties;
+
+    private List<Long> accountIds;
+
+    @BeforeEach
+    void setUp() {
+        engine.stop();
+        accountIds = resetAccounts(ACCOUNTS, "1000000.00");
+    }
+
+    @Test
+    void compareDatabaseAndEngineTransfers() throws Exception {
+        run(OPERATIONS / 4);
+        reportThroughput("JPA, row locks", OPERATIONS, run(OPERATIONS));
+
+        for (boolean fsync : new boolean[]{false, true}) {
+            engineProperties.setFsync(fsync);
+            engine.start();
+            run(OPERATIONS / 4);
+            reportThroughput("engine, fsync=" + fsync, OPERATIONS, run(OPERATIONS));
+            // Остановка дожидается проекции: дальше баланс сверяется по БД
+            engine.stop();
+        }
+
+        // Переводы не меняют общий баланс
+        assertEquals(0, new BigDecimal("1000000.00").multiply(BigDecimal.valueOf(ACCOUNTS)).compareTo(totalBalance(accountIds)));
+    }
+
+    private long run(int operations) throws Exception {
+        return runConcurrently(THREADS, operations / THREADS, i -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int sender = random.nextInt(ACCOUNTS);
+            int receiver = (sender + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            try {
+                bankService.transferMoney(accountIds.get(sender), accountIds.get(receiver), AMOUNT);
+            } catch (InsufficientFundsException ignored) {
+                // при таком начальном балансе не возникает
+            }
+        });
+    }
+}
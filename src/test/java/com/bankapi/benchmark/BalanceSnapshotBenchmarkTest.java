@@ -0,0 +1,100 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BalanceSnapshotRepository;
+import com.bankapi.service.BalanceSnapshotJob;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Period summary and point-in-time balance over the whole history of one account, from raw rows only
+ * and from daily snapshots plus today's rows, for growing history lengths.
+ * Run with {@code mvn test -Pbenchmark -Dtest=BalanceSnapshotBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+public class BalanceSnapshotBenchmarkTest extends AbstractDatabaseBenchmark {
+
+    private static final int ROWS_PER_DAY = 50;
+    private static final int QUERIES = 200;
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private BalanceSnapshotJob snapshotJob;
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        snapshotRepository.deleteAllInBatch();
+        userId = resetAccounts(1, "0.00").get(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotRepository.deleteAllInBatch();
+        snapshotJob.stop();
+        snapshotJob.start();
+    }
+
+    @Test
+    void compareRawAndSnapshotQueries() throws Exception {
+        int loadedDays = 0;
+        for (int days : new int[]{30, 300, 1200}) {
+            insertDays(loadedDays, days);
+            loadedDays = days;
+            LocalDate first = TODAY.minusDays(days);
+
+            snapshotRepository.deleteAllInBatch();
+            snapshotJob.stop();
+            snapshotJob.start();
+            reportLatency("raw rows, days=" + days, measure(first));
+
+            snapshotJob.snapshotUntil(TODAY.minusDays(1));
+            reportLatency("snapshots + today, days=" + days, measure(first));
+        }
+    }
+
+    // Строки дней [TODAY - to, TODAY - from), плюс сегодняшний день на первом шаге
+    private void insertDays(int from, int to) {
+        List<Transaction> rows = new ArrayList<>();
+        for (int d = to; d > from - (from == 0 ? 1 : 0); d--) {
+            LocalDate day = TODAY.minusDays(d);
+            for (int i = 0; i < ROWS_PER_DAY; i++) {
+                // Пополнение и снятие чередуются: balance_after колеблется между 0 и 1
+                boolean credit = i % 2 == 0;
+                rows.add(new Transaction(userId, BigDecimal.ONE, credit ? "DEPOSIT" : "WITHDRAW",
+                        day.atTime(0, 0).plusSeconds(i * 60L), credit ? BigDecimal.ONE : BigDecimal.ZERO));
+            }
+            if (rows.size() >= 10_000) {
+                transactionRepository.saveAll(rows);
+                rows.clear();
+            }
+        }
+        transactionRepository.saveAll(rows);
+    }
+
+    private long[] measure(LocalDate first) throws Exception {
+        return latencies(1, QUERIES, i -> {
+            bankService.getPeriodSummary(userId, first, TODAY);
+            bankService.getBalanceAt(userId, TODAY.minusDays(1).atTime(12, 0));
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.config.ConcurrencyProperties;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-modify-write vs single-statement putMoney/takeMoney latency on embedded H2.
+ * Run with {@code mvn test -Pbenchmark -Dtest=BalanceUpdateBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+public class BalanceUpdateBenchmarkTest extends AbstractDatabaseBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+    private static final int THREADS = 4;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private ConcurrencyProperties concurrencyProperties;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = resetAccounts(1, "1000000.00").get(0);
+    }
+
+    @AfterEach
+    void restore() {
+        concurrencyProperties.setAtomicUpdates(true);
+    }
+
+    @Test
+    void compareReadModifyWriteWithAtomicUpdate() throws Exception {
+        for (boolean atomic : new boolean[]{false, true}) {
+            concurrencyProperties.setAtomicUpdates(atomic);
+            String label = atomic ? "atomic UPDATE" : "read-modify-write";
+            latencies(1, WARMUP, this::putOrTake);
+            reportLatency(label + " (1 thread)", latencies(1, ITERATIONS, this::putOrTake));
+            reportLatency(label + " (" + THREADS + " threads, same account)", latencies(THREADS, ITERATIONS / THREADS, this::putOrTake));
+        }
+    }
+
+    private void putOrTake(int i) {
+        if ((i & 1) == 0) {
+            bankService.putMoney(userId, AMOUNT);
+        } else {
+            bankService.takeMoney(userId, AMOUNT);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.config.GroupCommitProperties;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * putMoney/takeMoney throughput with one transaction per operation vs group commit of growing size.
+ * Run with {@code mvn test -Pbenchmark -Dtest=GroupCommitBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+public class GroupCommitBenchmarkTest extends AbstractDatabaseBenchmark {
+
+    private static final int ACCOUNTS = 100;
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 20_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private GroupCommitProperties groupCommitProperties;
+
+    private List<Long> accountIds;
+
+    @BeforeEach
+    void setUp() {
+        accountIds = resetAccounts(ACCOUNTS, "1000000.00");
+    }
+
+    @AfterEach
+    void restore() {
+        groupCommitProperties.setEnabled(false);
+        groupCommitProperties.setMaxBatchSize(64);
+    }
+
+    @Test
+    void compareGroupCommitBatchSizes() throws Exception {
+        groupCommitProperties.setEnabled(false);
+        run(OPERATIONS / 4);
+        reportThroughput("one transaction per operation", OPERATIONS, run(OPERATIONS));
+
+        groupCommitProperties.setEnabled(true);
+        for (int batchSize : new int[]{1, 8, 32, 128}) {
+            groupCommitProperties.setMaxBatchSize(batchSize);
+            reportThroughput("group commit, max-batch-size=" + batchSize, OPERATIONS, run(OPERATIONS));
+        }
+
+        // Пополнения и снятия чередуются по одной сумме: общий баланс не меняется
+        assertEquals(0, new BigDecimal("1000000.00").multiply(BigDecimal.valueOf(ACCOUNTS)).compareTo(totalBalance(accountIds)));
+    }
+
+    private long run(int operations) throws Exception {
+        return runConcurrently(THREADS, operations / THREADS / 2, i -> {
+            Long userId = accountIds.get(ThreadLocalRandom.current().nextInt(ACCOUNTS));
+            bankService.putMoney(userId, AMOUNT);
+            bankService.takeMoney(userId, AMOUNT);
+        });
+    }
+}
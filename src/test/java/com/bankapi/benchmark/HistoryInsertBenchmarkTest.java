@@ -0,0 +1,104 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.model.Transaction;
+import com.bankapi.service.BankService;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Insert throughput of bank_transaction rows: one-by-one, grouped saveAll and batch transfers.
+ * The prepared statement count shows whether Hibernate managed to batch the inserts.
+ * Run with {@code mvn test -Pbenchmark -Dtest=HistoryInsertBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+public class HistoryInsertBenchmarkTest extends AbstractDatabaseBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int GROUP = 100;
+    private static final int TRANSFERS = 10_000;
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        clearAccounts();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void measureHistoryInsertThroughput() {
+        // Прогрев
+        insertGrouped(2_000);
+
+        measure("single-row save", () -> {
+            for (int i = 0; i < ROWS / 10; i++) {
+                transactionRepository.save(deposit(i));
+            }
+        }, ROWS / 10);
+        measure("saveAll x" + GROUP + " per transaction", () -> insertGrouped(ROWS), ROWS);
+
+        List<Long> ids = createAccounts(100, "1000000.00");
+        List<TransferRequest> transfers = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            TransferRequest request = new TransferRequest();
+            request.setSenderId(ids.get(i % ids.size()));
+            request.setReceiverId(ids.get((i * 7 + 1) % ids.size()));
+            request.setAmount(BigDecimal.ONE);
+            transfers.add(request);
+        }
+        measure("transferBatch (2 history rows per transfer)", () -> bankService.transferBatch(transfers), 2 * TRANSFERS);
+    }
+
+    private void insertGrouped(int rows) {
+        for (int from = 0; from < rows; from += GROUP) {
+            int start = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Transaction> group = new ArrayList<>(GROUP);
+                for (int i = start; i < start + GROUP; i++) {
+                    group.add(deposit(i));
+                }
+                transactionRepository.saveAll(group);
+            });
+        }
+    }
+
+    private static Transaction deposit(int i) {
+        return new Transaction((long) (i % 100), BigDecimal.TEN, "DEPOSIT", LocalDateTime.now(), BigDecimal.TEN, null);
+    }
+
+    private void measure(String label, Runnable body, int rows) {
+        statistics.clear();
+        long start = System.nanoTime();
+        body.run();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("--- Benchmark %-45s rows=%d %.0f rows/s, prepared statements=%d ---%n",
+                label, rows, rows / seconds, statistics.getPrepareStatementCount());
+    }
+}
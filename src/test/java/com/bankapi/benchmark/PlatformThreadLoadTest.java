@@ -0,0 +1,18 @@
+package com.bankapi.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Default Tomcat pool of platform threads (server.tomcat.threads.max=200).
+ * Run with {@code mvn test -Pbenchmark -Dtest=*ThreadLoadTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "spring.threads.virtual.enabled=false"
+})
+@ActiveProfiles("test")
+public class PlatformThreadLoadTest extends AbstractRestLoadTest {
+}
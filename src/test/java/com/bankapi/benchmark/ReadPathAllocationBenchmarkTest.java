@@ -0,0 +1,111 @@
+package com.bankapi.benchmark;
+
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.Transaction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Heap allocated per read: balance as a managed entity vs a scalar projection, and a 100-row history page
+ * as managed entities in a read-write transaction vs record projections in a read-only one, both serialized
+ * with Jackson. Allocation is taken from the thread's allocated-bytes counter.
+ * Run with {@code mvn test -Pbenchmark -Dtest=ReadPathAllocationBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+public class ReadPathAllocationBenchmarkTest extends AbstractDatabaseBenchmark {
+
+    private static final int PAGE = 100;
+    private static final int ITERATIONS = 2_000;
+    private static final LocalDateTime FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = resetAccounts(1, "1000.00").get(0);
+        List<Transaction> rows = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < PAGE * 2; i++) {
+            rows.add(new Transaction(userId, BigDecimal.ONE, "DEPOSIT", start.plusSeconds(i), new BigDecimal("1000.00"), null));
+        }
+        transactionRepository.saveAll(rows);
+    }
+
+    @Test
+    void compareEntityAndProjectionReads() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        report("balance, managed BankAccount", measure(() ->
+                readWrite.execute(status -> bankAccountRepository.findById(userId).map(BankAccount::getBalance).orElse(null))));
+        report("balance, scalar projection", measure(() ->
+                bankAccountRepository.findBalance(userId).orElse(null)));
+
+        report("page of " + PAGE + ", managed Transaction", measure(() -> readWrite.execute(status -> serialize(
+                entityManager.createQuery("select t from Transaction t where t.userId = :userId"
+                                + " and t.timestamp >= :startDate and t.timestamp <= :endDate"
+                                + " order by t.timestamp asc, t.id asc", Transaction.class)
+                        .setParameter("userId", userId)
+                        .setParameter("startDate", FROM)
+                        .setParameter("endDate", TO)
+                        .setMaxResults(PAGE + 1)
+                        .getResultList()))));
+        report("page of " + PAGE + ", TransactionView, read-only", measure(() -> readOnly.execute(status -> serialize(
+                transactionRepository.findFirstPage(userId, FROM, TO, Limit.of(PAGE + 1))))));
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long[] measure(Supplier<?> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // Прогрев: JIT и кэш планов запросов Hibernate
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            read.get();
+        }
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new long[]{(threads.getCurrentThreadAllocatedBytes() - bytesBefore) / ITERATIONS, elapsed / ITERATIONS};
+    }
+
+    private void report(String label, long[] result) {
+        System.out.printf("--- Benchmark %-42s %,8d bytes/read %6.1f us/read ---%n", label, result[0], result[1] / 1_000.0);
+    }
+}
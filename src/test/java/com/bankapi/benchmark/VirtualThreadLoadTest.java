@@ -0,0 +1,18 @@
+package com.bankapi.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Same load with the virtual-threads profile. Needs Java 21:
+ * {@code mvn test -Pjava21,benchmark -Dtest=*ThreadLoadTest}.
+ */
+@Tag("benchmark")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+@ActiveProfiles({"test", "virtual-threads"})
+public class VirtualThreadLoadTest extends AbstractRestLoadTest {
+}
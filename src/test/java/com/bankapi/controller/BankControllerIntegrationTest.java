@@ -5,6 +5,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.context.ActiveProfiles;
@@ -17,6 +18,7 @@ import com.bankapi.repository.TransactionRepository;
 import com.bankapi.model.BankAccount;
 import com.bankapi.model.Transaction;
 import com.bankapi.dto.TransferRequest;
+import com.bankapi.service.IdempotencyService;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -24,11 +26,15 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.UUID;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 
 @SpringBootTest
@@ -97,6 +103,24 @@ public class BankControllerIntegrationTest {
                 .andExpect(jsonPath("$.message").exists());
     }
 
+    @Test
+    void testGetBalance_ReflectsCommittedDeposit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/balance/{userId}", userId1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value("1000.0"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/deposit")
+                        .param("userId", userId1.toString())
+                        .param("amount", "25.00")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(status().isOk());
+
+        // Закэшированный баланс должен быть вытеснен после коммита пополнения
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/balance/{userId}", userId1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value("1025.0"));
+    }
+
 
     @Test
     void testDeposit_Success() throws Exception {
@@ -410,6 +434,155 @@ public class BankControllerIntegrationTest {
         assertTrue(transactionRepository.findByUserId(userId2).isEmpty(), "Не должно быть новых транзакций для userId2 при ошибке.");
     }
 
+    @Test
+    void testTransferBatch_MixedOutcomes() throws Exception {
+        List<TransferRequest> batch = Arrays.asList(
+                transferRequest(userId1, userId2, new BigDecimal("300.00")),
+                transferRequest(userId2, userId1, new BigDecimal("5000.00")),
+                transferRequest(999L, userId2, new BigDecimal("10.00")),
+                transferRequest(userId1, userId1, new BigDecimal("10.00")),
+                transferRequest(userId2, userId1, new BigDecimal("800.00"))
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value(1))
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.results", hasSize(5)))
+                .andExpect(jsonPath("$.results[0].status").value(1))
+                .andExpect(jsonPath("$.results[1].status").value(0))
+                .andExpect(jsonPath("$.results[2].status").value(0))
+                .andExpect(jsonPath("$.results[3].status").value(0))
+                .andExpect(jsonPath("$.results[4].status").value(1));
+
+        // Второй успешный перевод опирается на баланс, изменённый первым переводом того же пакета
+        assertEquals(0, new BigDecimal("1500.00").compareTo(bankAccountRepository.findById(userId1).get().getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(bankAccountRepository.findById(userId2).get().getBalance()));
+        assertEquals(2, transactionRepository.findByUserId(userId1).size(), "По два успешных перевода - две записи у каждого участника.");
+        assertEquals(2, transactionRepository.findByUserId(userId2).size());
+    }
+
+    @Test
+    void testTransferBatch_NullElementIsRejected() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[null]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(0))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].status").value(0))
+                .andExpect(jsonPath("$.results[0].message").value("Sender and receiver are required."))
+                .andExpect(jsonPath("$.results[0].senderId").doesNotExist());
+
+        assertTrue(transactionRepository.findByUserId(userId1).isEmpty());
+    }
+
+    @Test
+    void testTransferBatch_TooLarge() throws Exception {
+        List<TransferRequest> batch = Collections.nCopies(10_001, transferRequest(userId1, userId2, BigDecimal.ONE));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(batch)))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.status").value(0))
+                .andExpect(jsonPath("$.message").exists());
+
+        assertTrue(transactionRepository.findByUserId(userId1).isEmpty());
+    }
+
+    @Test
+    void testTracingEndpoint_TogglesAtRuntime() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/actuator/tracing")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"enabled\": true, \"sampleRate\": 1.0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(true))
+                .andExpect(jsonPath("$.sampleRate").value(1.0));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/deposit")
+                        .param("userId", userId1.toString())
+                        .param("amount", "10.00")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/actuator/tracing")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"enabled\": false}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/tracing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(false));
+    }
+
+    @Test
+    void testMetrics_EndpointLatencyOutcomesPoolAndHibernate() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/withdraw")
+                        .param("userId", userId3.toString())
+                        .param("amount", "10.00")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/bank.operations")
+                        .param("tag", "operation:takeMoney")
+                        .param("tag", "outcome:insufficient_funds"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(1.0)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/http.server.requests")
+                        .param("tag", "uri:/api/bank/withdraw"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/hikaricp.connections.pending"))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/hibernate.flushes"))
+                .andExpect(status().isOk());
+    }
+
+    private static TransferRequest transferRequest(Long senderId, Long receiverId, BigDecimal amount) {
+        TransferRequest request = new TransferRequest();
+        request.setSenderId(senderId);
+        request.setReceiverId(receiverId);
+        request.setAmount(amount);
+        return request;
+    }
+
+    @Test
+    void testBalanceAtAndPeriodSummary() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        transactionRepository.saveAll(Arrays.asList(
+                new Transaction(userId1, new BigDecimal("100.00"), "DEPOSIT", now.minusDays(3), new BigDecimal("1100.00"), null),
+                new Transaction(userId1, new BigDecimal("40.00"), "TRANSFER_OUT", now.minusDays(2), new BigDecimal("1060.00"), userId2),
+                new Transaction(userId1, new BigDecimal("60.00"), "WITHDRAW", now.minusDays(1), new BigDecimal("1000.00"), null)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/balance/{userId}/at", userId1)
+                        .queryParam("timestamp", now.minusDays(2).plusMinutes(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(userId1))
+                .andExpect(jsonPath("$.balance").value(1060.0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}/summary", userId1)
+                        .queryParam("from", now.minusDays(3).toLocalDate().toString())
+                        .queryParam("to", now.toLocalDate().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.openingBalance").value(1000.0))
+                .andExpect(jsonPath("$.closingBalance").value(1000.0))
+                .andExpect(jsonPath("$.creditTotal").value(100.0))
+                .andExpect(jsonPath("$.debitTotal").value(100.0))
+                .andExpect(jsonPath("$.operationCount").value(3));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}/summary", userId1)
+                        .queryParam("from", now.toLocalDate().toString())
+                        .queryParam("to", now.minusDays(1).toLocalDate().toString()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/balance/{userId}/at", 999L)
+                        .queryParam("timestamp", now.toString()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testGetTransactions_All() throws Exception {
         Long userId = userId1;
@@ -472,4 +645,146 @@ public class BankControllerIntegrationTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$", hasSize(0)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetTransactions_KeysetPages() throws Exception {
+        Long userId = userId1;
+        LocalDateTime base = LocalDateTime.now().minusDays(10);
+        for (int i = 0; i < 5; i++) {
+            transactionRepository.save(new Transaction(userId, new BigDecimal("10.00"), "DEPOSIT",
+                    base.plusDays(i), new BigDecimal("1000.00").add(new BigDecimal(10 * (i + 1))), null));
+        }
+
+        String cursor = mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}", userId)
+                        .queryParam("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].balanceAfter").value(1010.0))
+                .andExpect(MockMvcResultMatchers.header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        cursor = mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}", userId)
+                        .queryParam("limit", "2")
+                        .queryParam("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].balanceAfter").value(1030.0))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+        assertNotNull(cursor, "После второй страницы должна остаться ещё одна.");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}", userId)
+                        .queryParam("limit", "2")
+                        .queryParam("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].balanceAfter").value(1050.0))
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("X-Next-Cursor"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}", userId)
+                        .queryParam("cursor", "%%%"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(0));
+    }
+
+    @Test
+    void testExportTransactions_NdjsonAndCsv() throws Exception {
+        Long userId = userId1;
+        LocalDateTime base = LocalDateTime.of(2024, 4, 1, 12, 0);
+        transactionRepository.saveAll(Arrays.asList(
+                new Transaction(userId, new BigDecimal("100.00"), "DEPOSIT", base, new BigDecimal("1100.00"), null),
+                new Transaction(userId, new BigDecimal("40.00"), "TRANSFER_OUT", base.plusHours(1), new BigDecimal("1060.00"), userId2),
+                new Transaction(userId2, new BigDecimal("40.00"), "TRANSFER_IN", base.plusHours(1), new BigDecimal("540.00"), userId)));
+
+        MvcResult ndjson = mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}/export", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ndjsonBody = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = ndjsonBody.trim().split("\n");
+        assertEquals(2, lines.length, "В выгрузку должны попасть только строки пользователя.");
+        assertTrue(lines[0].contains("\"type\":\"DEPOSIT\""), "Строки должны идти в порядке времени.");
+        assertTrue(lines[1].contains("\"relatedUserId\":" + userId2));
+
+        MvcResult csv = mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}/export", userId)
+                        .queryParam("format", "csv")
+                        .queryParam("startDate", base.plusMinutes(30).toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csvBody = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        String[] rows = csvBody.trim().split("\n");
+        assertEquals(2, rows.length, "Заголовок и одна строка после startDate.");
+        assertEquals("id,userId,amount,type,timestamp,balanceAfter,relatedUserId", rows[0]);
+        assertTrue(rows[1].endsWith(",40.00,TRANSFER_OUT," + base.plusHours(1) + ",1060.00," + userId2));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/bank/transactions/{userId}/export", userId)
+                        .queryParam("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(0));
+    }
+
+    @Test
+    void testDeposit_IdempotencyKeyReplaysResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/deposit")
+                            .header(BankController.IDEMPOTENCY_KEY_HEADER, key)
+                            .param("userId", userId1.toString())
+                            .param("amount", attempt == 2 ? "100" : "100.00"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value(1))
+                    .andExpect(jsonPath("$.message").value("successful"))
+                    .andReturn();
+            assertEquals(attempt == 0 ? null : "true", result.getResponse().getHeader(IdempotencyService.REPLAYED_HEADER));
+        }
+        assertEquals(0, new BigDecimal("1100.00").compareTo(bankAccountRepository.findById(userId1).get().getBalance()),
+                "Повторы с тем же ключом не пополняют счёт снова.");
+        assertEquals(1, transactionRepository.count());
+
+        // Тот же ключ для другого запроса
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/withdraw")
+                        .header(BankController.IDEMPOTENCY_KEY_HEADER, key)
+                        .param("userId", userId1.toString())
+                        .param("amount", "100.00"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value(0));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/deposit")
+                        .header(BankController.IDEMPOTENCY_KEY_HEADER, " ")
+                        .param("userId", userId1.toString())
+                        .param("amount", "100.00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testTransfer_IdempotencyKeyReplaysRefusal() throws Exception {
+        String key = UUID.randomUUID().toString();
+        TransferRequest request = new TransferRequest();
+        request.setSenderId(userId3);
+        request.setReceiverId(userId2);
+        request.setAmount(new BigDecimal("50.00"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/transfer")
+                        .header(BankController.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(0));
+
+        // Отказ - результат запроса: повтор получает его, даже когда денег уже хватает
+        BankAccount sender = bankAccountRepository.findById(userId3).get();
+        sender.setBalance(new BigDecimal("100.00"));
+        bankAccountRepository.save(sender);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/bank/transfer")
+                        .header(BankController.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.header().string(IdempotencyService.REPLAYED_HEADER, "true"));
+        assertEquals(0, transactionRepository.count());
+    }
+}
@@ -0,0 +1,73 @@
+package com.bankapi.datasource;
+
+import com.bankapi.config.DataSourceTuningProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "bank.datasource.pool.maximum-pool-size=7",
+        "bank.datasource.pool.minimum-idle=7",
+        "bank.datasource.hibernate.batch-size=25",
+        // Переопределение Hikari напрямую главнее типизированного значения
+        "spring.datasource.hikari.connection-timeout=3000",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class DataSourceConfigurationTest {
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSourceReport report;
+
+    @Test
+    void testTypedSettingsReachPoolAndHibernate() {
+        assertEquals("primary", primaryDataSource.getPoolName());
+        assertEquals(7, primaryDataSource.getMaximumPoolSize());
+        assertEquals(7, primaryDataSource.getMinimumIdle());
+        assertEquals(3000, primaryDataSource.getConnectionTimeout());
+        assertEquals(1_800_000, primaryDataSource.getMaxLifetime());
+        // H2 не принимает свойства драйвера PostgreSQL
+        assertTrue(primaryDataSource.getDataSourceProperties().isEmpty());
+
+        Map<String, Object> hibernate = entityManagerFactory.getProperties();
+        assertEquals("25", String.valueOf(hibernate.get("hibernate.jdbc.batch_size")));
+        assertEquals("true", String.valueOf(hibernate.get("hibernate.order_inserts")));
+        assertEquals("100", String.valueOf(hibernate.get("hibernate.jdbc.fetch_size")));
+
+        String effective = report.describe();
+        assertTrue(effective.contains("maximumPoolSize=7"), effective);
+        assertTrue(effective.contains("connectionTimeout=PT3S"), effective);
+        assertTrue(effective.contains("hibernate.jdbc.batch_size=25"), effective);
+        assertTrue(effective.contains("hibernate.show_sql=false"), effective);
+    }
+
+    @Test
+    void testStatementSettingsArePassedToPostgresDriver() {
+        DataSourceTuningProperties.Statements statements = new DataSourceTuningProperties().getStatements();
+        statements.setPrepareThreshold(0);
+        try (HikariDataSource pool = new HikariDataSource()) {
+            pool.setJdbcUrl("jdbc:postgresql://localhost:5432/postgres");
+            DataSourceConfiguration.applyStatementSettings(pool, statements);
+
+            Properties driver = pool.getDataSourceProperties();
+            assertEquals(0, driver.get("prepareThreshold"));
+            assertEquals(256, driver.get("preparedStatementCacheQueries"));
+            assertEquals(5L, driver.get("preparedStatementCacheSizeMiB"));
+            assertEquals(true, driver.get("reWriteBatchedInserts"));
+            assertEquals(100, driver.get("defaultRowFetchSize"));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.bankapi.engine;
+
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.exception.InvalidAmountException;
+import com.bankapi.exception.UserNotFoundException;
+import com.bankapi.journal.MappedJournal;
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "bank.engine.enabled=true",
+        "bank.engine.fsync=false",
+        "bank.engine.segment-size=1MB",
+        "bank.engine.projection-flush-interval=5ms",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class AccountEngineTest {
+
+    private static final Path JOURNAL_DIR;
+
+    static {
+        try {
+            JOURNAL_DIR = Files.createTempDirectory("engine-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("bank.engine.directory", JOURNAL_DIR::toString);
+    }
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private AccountEngine engine;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Long userId1;
+    private Long userId2;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        userId1 = bankAccountRepository.save(new BankAccount(new BigDecimal("1000.00"))).getUserId();
+        userId2 = bankAccountRepository.save(new BankAccount(new BigDecimal("500.00"))).getUserId();
+    }
+
+    @Test
+    void testOperationsAreAnsweredFromMemoryAndProjectedToDatabase() throws Exception {
+        assertTrue(engine.isActive());
+
+        assertEquals(1, bankService.putMoney(userId1, new BigDecimal("100.00")));
+        assertEquals(1, bankService.takeMoney(userId2, new BigDecimal("50.00")));
+        bankService.transferMoney(userId1, userId2, new BigDecimal("200.00"));
+        // Отказ не порождает событий
+        assertEquals(0, bankService.takeMoney(userId2, new BigDecimal("10000.00")));
+        assertEquals(0, new BigDecimal("900.00").compareTo(bankService.getBalance(userId1)));
+        assertEquals(0, new BigDecimal("650.00").compareTo(bankService.getBalance(userId2)));
+
+        awaitHistoryRows(4);
+        List<Transaction> rows = transactionRepository.findAll();
+        assertEquals(4, rows.stream().map(Transaction::getJournalSeq).distinct().count(), "Строки помечены номерами событий.");
+        awaitDatabaseBalance(userId1, "900.00");
+        awaitDatabaseBalance(userId2, "650.00");
+    }
+
+    @Test
+    void testRejectionsMatchBankService() {
+        Long missing = userId2 + 1000;
+        assertNull(bankService.getBalance(missing));
+        assertEquals(0, bankService.putMoney(missing, new BigDecimal("10.00")));
+        assertEquals(0, bankService.takeMoney(missing, new BigDecimal("10.00")));
+        // Доли копейки не представимы в счёте
+        assertEquals(0, bankService.putMoney(userId1, new BigDecimal("0.001")));
+
+        UserNotFoundException sender = assertThrows(UserNotFoundException.class,
+                () -> bankService.transferMoney(missing, userId1, new BigDecimal("10.00")));
+        assertEquals("Sender user not found with ID: " + missing, sender.getMessage());
+        UserNotFoundException receiver = assertThrows(UserNotFoundException.class,
+                () -> bankService.transferMoney(userId1, missing, new BigDecimal("10.00")));
+        assertEquals("Receiver user not found with ID: " + missing, receiver.getMessage());
+        InsufficientFundsException funds = assertThrows(InsufficientFundsException.class,
+                () -> bankService.transferMoney(userId2, userId1, new BigDecimal("500.01")));
+        assertEquals("Insufficient funds for user ID: " + userId2, funds.getMessage());
+        assertThrows(InvalidAmountException.class, () -> bankService.transferMoney(userId1, userId1, new BigDecimal("1.00")));
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(bankService.getBalance(userId1)));
+        assertEquals(0, new BigDecimal("500.00").compareTo(bankService.getBalance(userId2)));
+    }
+
+    @Test
+    void testBatchReportsEveryTransfer() throws Exception {
+        List<TransferRequest> requests = List.of(
+                request(userId1, userId2, "300.00"),
+                request(userId2, userId1, "900.00"),
+                request(userId1, userId1, "1.00"),
+                request(userId2, userId2 + 1000, "1.00"),
+                request(userId2, userId1, "800.00"));
+
+        List<TransferResult> results = bankService.transferBatch(requests);
+
+        assertEquals(List.of(1, 0, 0, 0, 1), results.stream().map(TransferResult::status).toList());
+        assertEquals("Insufficient funds for user ID: " + userId2, results.get(1).message());
+        assertEquals("Cannot transfer money to yourself.", results.get(2).message());
+        assertEquals("Receiver user not found with ID: " + (userId2 + 1000), results.get(3).message());
+        assertEquals(0, new BigDecimal("1500.00").compareTo(bankService.getBalance(userId1)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(bankService.getBalance(userId2)));
+        awaitHistoryRows(4);
+    }
+
+    @Test
+    void testConcurrentTransfersKeepTotal() throws Exception {
+        AtomicInteger applied = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            boolean forward = i % 2 == 0;
+            futures.add(pool.submit(() -> {
+                for (int n = 0; n < 200; n++) {
+                    try {
+                        if (forward) {
+                            bankService.transferMoney(userId1, userId2, new BigDecimal("3.00"));
+                        } else {
+                            bankService.transferMoney(userId2, userId1, new BigDecimal("2.00"));
+                        }
+                        applied.incrementAndGet();
+                    } catch (InsufficientFundsException ignored) {
+                        // допустимый исход при встречных переводах
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        BigDecimal first = bankService.getBalance(userId1);
+        BigDecimal second = bankService.getBalance(userId2);
+        assertEquals(0, new BigDecimal("1500.00").compareTo(first.add(second)), "Сумма балансов сохраняется.");
+        assertTrue(first.signum() >= 0 && second.signum() >= 0);
+        awaitHistoryRows(2L * applied.get());
+        assertEquals(0, first.compareTo(bankAccountRepository.findBalance(userId1).orElseThrow()));
+        assertEquals(0, second.compareTo(bankAccountRepository.findBalance(userId2).orElseThrow()));
+    }
+
+    @Test
+    void testCommandsRacingStopFailInsteadOfHanging() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(pool.submit(() -> {
+                while (true) {
+                    try {
+                        engine.deposit(userId1, new BigDecimal("1.00"));
+                    } catch (IllegalStateException stopped) {
+                        return;
+                    }
+                }
+            }));
+        }
+        Thread.sleep(50);
+        engine.stop();
+        // Каждый вызывающий получает ответ или ошибку: ни одна команда не остаётся без ответа
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        engine.start();
+        assertTrue(engine.isActive());
+    }
+
+    @Test
+    void testRecoveryReplaysJournalOfPreviousRun() throws Exception {
+        engine.stop();
+        // Остановка дописала всё в БД: сегменты этого запуска больше не нужны
+        try (Stream<Path> segments = Files.list(JOURNAL_DIR)) {
+            for (Path segment : segments.toList()) {
+                Files.delete(segment);
+            }
+        }
+        long base = 1_000_000;
+        LocalDateTime now = LocalDateTime.now();
+
+        // Журнал "предыдущего запуска": события, которые не успели попасть в БД до аварийной остановки
+        EngineEvent deposit = EngineEvent.deposit(base + 1, userId1, 1000, 101000, now);
+        EngineEvent transfer = EngineEvent.transfer(base + 2, userId1, userId2, 1000, 100000, 51000, now);
+        try (MappedJournal previous = MappedJournal.open(JOURNAL_DIR, "engine", 1 << 20, false)) {
+            previous.append(List.of(deposit.encode(), transfer.encode()));
+        }
+        transactionRepository.saveAll(deposit.toTransactions());
+
+        engine.start();
+
+        List<Long> replayed = transactionRepository.findAll().stream().map(Transaction::getJournalSeq).sorted().toList();
+        assertEquals(List.of(base + 1, base + 2, base + 3), replayed, "Вставлены только отсутствующие строки.");
+        assertEquals(0, new BigDecimal("1000.00").compareTo(bankAccountRepository.findBalance(userId1).orElseThrow()));
+        assertEquals(0, new BigDecimal("510.00").compareTo(bankAccountRepository.findBalance(userId2).orElseThrow()));
+        assertEquals(0, new BigDecimal("510.00").compareTo(bankService.getBalance(userId2)));
+        try (Stream<Path> segments = Files.list(JOURNAL_DIR)) {
+            assertEquals(1, segments.count(), "Сегменты прошлого запуска удаляются после восстановления.");
+        }
+
+        // Нумерация продолжается после событий прошлого запуска
+        bankService.putMoney(userId1, new BigDecimal("1.00"));
+        awaitHistoryRows(4);
+        assertEquals(base + 4, transactionRepository.findMaxJournalSeq());
+    }
+
+    private TransferRequest request(Long senderId, Long receiverId, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setSenderId(senderId);
+        request.setReceiverId(receiverId);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
+    private void awaitHistoryRows(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (transactionRepository.count() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, transactionRepository.count());
+    }
+
+    private void awaitDatabaseBalance(Long userId, String expected) throws InterruptedException {
+        BigDecimal balance = new BigDecimal(expected);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (balance.compareTo(bankAccountRepository.findBalance(userId).orElseThrow()) != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, balance.compareTo(bankAccountRepository.findBalance(userId).orElseThrow()));
+    }
+}
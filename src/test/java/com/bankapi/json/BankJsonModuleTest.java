@@ -0,0 +1,73 @@
+package com.bankapi.json;
+
+import com.bankapi.dto.BalanceResponse;
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.dto.TransactionView;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankJsonModuleTest {
+
+    // Настройки как у ObjectMapper Spring Boot: даты строками ISO 8601
+    private final JsonMapper reflective = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final JsonMapper typed = reflective.rebuild()
+            .addModule(new BankJsonModule())
+            .build();
+
+    @Test
+    void testResponsesMatchDefaultSerialization() throws Exception {
+        assertSameJson(new BalanceResponse(7L, new BigDecimal("1000.50")));
+        assertSameJson(new BalanceResponse(7L, new BigDecimal("1E+3")));
+        assertSameJson(new BalanceResponse(null, null));
+        assertSameJson(StatusResponse.SUCCESSFUL);
+        assertSameJson(StatusResponse.failure("Недостаточно средств: \"счёт\" 1\n"));
+    }
+
+    @Test
+    void testTransactionTimestampsMatchIsoLocalDateTime() throws Exception {
+        List<LocalDateTime> timestamps = List.of(
+                LocalDateTime.of(2024, 4, 1, 12, 30),
+                LocalDateTime.of(2024, 4, 1, 0, 0, 5),
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59, 500_000_000),
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59, 123_456_000),
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59, 1),
+                LocalDateTime.of(999, 1, 2, 3, 4, 5, 120_000),
+                LocalDateTime.of(0, 1, 1, 0, 0),
+                LocalDateTime.of(10_000, 1, 1, 0, 0),
+                LocalDateTime.of(-1, 1, 1, 0, 0));
+        for (LocalDateTime timestamp : timestamps) {
+            assertSameJson(new TransactionView(1L, 2L, new BigDecimal("10.00"), "DEPOSIT", timestamp, new BigDecimal("110.00"), null));
+        }
+        assertSameJson(List.of(
+                new TransactionView(3L, 2L, new BigDecimal("5.5"), "TRANSFER_OUT", LocalDateTime.of(2024, 4, 2, 9, 0), BigDecimal.ZERO, 4L),
+                new TransactionView(null, null, null, null, null, null, null)));
+    }
+
+    @Test
+    void testSerializerHonoursPlainBigDecimalFeature() throws Exception {
+        BalanceResponse response = new BalanceResponse(1L, new BigDecimal("1E+3"));
+
+        String json = typed.writer().with(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+                .writeValueAsString(response);
+
+        assertEquals("{\"userId\":1,\"balance\":1000}", json);
+    }
+
+    private void assertSameJson(Object value) throws Exception {
+        assertEquals(reflective.writeValueAsString(value), typed.writeValueAsString(value));
+        assertArrayEquals(reflective.writeValueAsBytes(value), typed.writeValueAsBytes(value));
+    }
+}
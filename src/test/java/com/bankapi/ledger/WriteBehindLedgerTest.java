@@ -0,0 +1,179 @@
+package com.bankapi.ledger;
+
+import com.bankapi.journal.MappedJournal;
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.LedgerCommit;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.LedgerCommitRepository;
+import com.bankapi.repository.TransactionRepository;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "bank.ledger.enabled=true",
+        "bank.ledger.flush-interval=5ms",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class WriteBehindLedgerTest {
+
+    private static final Path JOURNAL_DIR;
+
+    static {
+        try {
+            JOURNAL_DIR = Files.createTempDirectory("ledger-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("bank.ledger.directory", JOURNAL_DIR::toString);
+    }
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private WriteBehindLedger ledger;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private LedgerCommitRepository commitRepository;
+
+    private Long userId1;
+    private Long userId2;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        commitRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        userId1 = bankAccountRepository.save(new BankAccount(new BigDecimal("1000.00"))).getUserId();
+        userId2 = bankAccountRepository.save(new BankAccount(new BigDecimal("500.00"))).getUserId();
+    }
+
+    @Test
+    void testHistoryIsInsertedByAppenderAfterCommit() throws Exception {
+        assertTrue(ledger.isActive());
+
+        assertEquals(1, bankService.putMoney(userId1, new BigDecimal("100.00")));
+        assertEquals(1, bankService.takeMoney(userId2, new BigDecimal("50.00")));
+        bankService.transferMoney(userId1, userId2, new BigDecimal("200.00"));
+        // Отказ не оставляет строк ни в журнале, ни в таблице
+        assertEquals(0, bankService.takeMoney(userId2, new BigDecimal("10000.00")));
+
+        awaitHistoryRows(4);
+        List<Transaction> rows = transactionRepository.findAll();
+        assertTrue(rows.stream().allMatch(row -> row.getJournalSeq() != null), "Строки журнала помечены его номером.");
+        assertEquals(4, rows.stream().map(Transaction::getJournalSeq).distinct().count());
+        assertEquals(0, new BigDecimal("900.00").compareTo(bankService.getBalance(userId1)));
+        assertEquals(0, new BigDecimal("650.00").compareTo(bankService.getBalance(userId2)));
+    }
+
+    @Test
+    void testRecoveryReplaysCommittedEntriesOnly() throws Exception {
+        ledger.stop();
+        BankAccount account = bankAccountRepository.findById(userId1).orElseThrow();
+        long version = account.getVersion();
+        long base = 1_000_000;
+
+        // Журнал "предыдущего запуска": сегменты, оставшиеся после аварийной остановки
+        try (MappedJournal previous = MappedJournal.open(JOURNAL_DIR, "ledger", 1 << 20, false)) {
+            previous.append(List.of(
+                    entry(base + 1, "DEPOSIT", version).encode(),
+                    new LedgerRecord.Outcome(true, base + 1, base + 1).encode(),
+                    entry(base + 2, "DEPOSIT", version).encode(),
+                    new LedgerRecord.Outcome(false, base + 2, base + 2).encode(),
+                    // Исход не записан, но отметка коммита есть - транзакция закоммичена
+                    entry(base + 3, "WITHDRAW", version).encode(),
+                    // Исход не записан и отметки нет - коммита не было, хотя счёт уже достиг версии записи
+                    entry(base + 4, "WITHDRAW", version).encode()));
+        }
+        transactionRepository.save(entry(base + 1, "DEPOSIT", version).toTransaction());
+        commitRepository.save(new LedgerCommit(base + 3, base + 3));
+
+        ledger.start();
+
+        List<Long> replayed = transactionRepository.findAll().stream().map(Transaction::getJournalSeq).sorted().toList();
+        assertEquals(List.of(base + 1, base + 3), replayed, "Вставлены только закоммиченные и ещё отсутствующие записи.");
+        assertEquals(0, commitRepository.count(), "Отметки коммита прошлого запуска удаляются после восстановления.");
+        try (Stream<Path> segments = Files.list(JOURNAL_DIR)) {
+            assertEquals(1, segments.count(), "Сегменты прошлого запуска удаляются после восстановления.");
+        }
+
+        // Нумерация продолжается после записей прошлого запуска
+        bankService.putMoney(userId1, new BigDecimal("1.00"));
+        awaitHistoryRows(3);
+        assertTrue(transactionRepository.findMaxJournalSeq() > base + 4);
+    }
+
+    @Test
+    void testUnknownOutcomeIsResolvedByCommitMarker() throws Exception {
+        completeWithUnknownOutcome("WITHDRAW", false);
+        completeWithUnknownOutcome("DEPOSIT", true);
+
+        // Транзакции разбираются по порядку: когда видна строка второй, первая уже отброшена
+        awaitHistoryRows(1);
+        Thread.sleep(50);
+        List<Transaction> rows = transactionRepository.findAll();
+        assertEquals(1, rows.size(), "Строки транзакции без отметки коммита не вставляются.");
+        assertEquals("DEPOSIT", rows.get(0).getType());
+        assertEquals(0, commitRepository.count(), "Отметка удаляется вместе со вставкой строк истории.");
+    }
+
+    // Транзакция проходит beforeCommit (журнал и отметка коммита), но менеджер транзакций не сообщает её исход;
+    // committed=false - коммит не состоялся и отметки нет
+    private void completeWithUnknownOutcome(String type, boolean committed) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ledger.append(new Transaction(userId1, new BigDecimal("10.00"), type, LocalDateTime.now(),
+                    new BigDecimal("1000.00"), null), 1L);
+            TransactionSynchronization pending = TransactionSynchronizationManager.getSynchronizations().get(0);
+            // Вне транзакции отметка вставляется собственной транзакцией репозитория
+            pending.beforeCommit(false);
+            if (!committed) {
+                commitRepository.deleteAllInBatch();
+            }
+            pending.afterCompletion(TransactionSynchronization.STATUS_UNKNOWN);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private LedgerRecord.Entry entry(long seq, String type, long accountVersion) {
+        return new LedgerRecord.Entry(seq, userId1, new BigDecimal("10.00"), type, LocalDateTime.now(),
+                new BigDecimal("1000.00"), null, -1, accountVersion);
+    }
+
+    private void awaitHistoryRows(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (transactionRepository.count() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, transactionRepository.count());
+    }
+}
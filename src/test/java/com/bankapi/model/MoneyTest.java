@@ -0,0 +1,49 @@
+package com.bankapi.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    void testConversionIsExact() {
+        assertEquals(123_456, Money.of(new BigDecimal("1234.56")).minorUnits());
+        assertEquals(100, Money.of(new BigDecimal("1")).minorUnits(), "Масштаб меньше двух знаков дополняется.");
+        assertEquals(150, Money.of(new BigDecimal("1.500")).minorUnits(), "Нули сверх двух знаков не мешают.");
+        assertEquals(new BigDecimal("1234.56"), Money.ofMinor(123_456).toBigDecimal());
+        assertEquals(new BigDecimal("-0.05"), Money.ofMinor(-5).toBigDecimal());
+        assertEquals("0.00", Money.ZERO.toString());
+    }
+
+    @Test
+    void testRejectsFractionsOfCentAndOutOfRange() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("100000000000000000.00")));
+    }
+
+    @Test
+    void testArithmeticAndComparison() {
+        Money balance = Money.of(new BigDecimal("100.00"));
+        Money amount = Money.of(new BigDecimal("30.25"));
+
+        assertEquals(Money.of(new BigDecimal("69.75")), balance.minus(amount));
+        assertEquals(Money.of(new BigDecimal("130.25")), balance.plus(amount));
+        assertTrue(amount.isLessThan(balance));
+        assertFalse(balance.isLessThan(balance));
+        assertEquals(-1, amount.minus(balance).signum());
+        assertEquals(0, balance.compareTo(Money.ofMinor(10_000)));
+        assertSame(Money.ZERO, balance.minus(balance));
+    }
+
+    @Test
+    void testOverflowIsDetected() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+        Money min = Money.ofMinor(Long.MIN_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> min.minus(Money.ofMinor(1)));
+    }
+}
@@ -0,0 +1,142 @@
+package com.bankapi.replica;
+
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+import com.bankapi.service.BankService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica. Replication is a copy of both tables
+ * ({@link #replicate}); the log position is the largest history row id. Balances are then changed on the
+ * replica only, so the value a read returns shows which database served it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-primary;DB_CLOSE_DELAY=-1",
+        "bank.replicas.enabled=true",
+        "bank.replicas.instances[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "bank.replicas.instances[0].username=sa",
+        "bank.replicas.instances[0].password=",
+        "bank.replicas.max-lag=3s",
+        "bank.replicas.check-interval=20ms",
+        "bank.replicas.primary-position-query=SELECT COALESCE(MAX(id), 0) FROM bank_transaction",
+        "bank.replicas.replica-position-query=SELECT COALESCE(MAX(id), 0) FROM bank_transaction",
+        "bank.cache.balance.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-1;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private JdbcTemplate primary;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    private Long userId1;
+    private Long userId2;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        userId1 = bankAccountRepository.save(new BankAccount(new BigDecimal("100.00"))).getUserId();
+        userId2 = bankAccountRepository.save(new BankAccount(new BigDecimal("200.00"))).getUserId();
+        replicate();
+    }
+
+    @Test
+    void testReadsGoToReplicaUntilItLagsTooFar() throws Exception {
+        setReplicaBalance(userId1, "111.00");
+        setReplicaBalance(userId2, "222.00");
+        await(() -> bankService.getBalance(userId1), "111.00");
+        assertBalance("222.00", userId2);
+
+        // Запись на основной БД: реплика отстаёт, но пока не дольше max-lag
+        assertEquals(1, bankService.putMoney(userId1, new BigDecimal("10.00")));
+        assertBalance("110.00", userId1);
+        assertBalance("222.00", userId2);
+
+        // Отставание превысило max-lag: читает основная БД
+        await(() -> bankService.getBalance(userId2), "200.00");
+    }
+
+    @Test
+    void testReadYourWritesWaitsForReplicaToCatchUp() throws Exception {
+        setReplicaBalance(userId1, "111.00");
+        await(() -> bankService.getBalance(userId1), "111.00");
+
+        bankService.transferMoney(userId2, userId1, new BigDecimal("50.00"));
+        assertBalance("150.00", userId1);
+        assertBalance("150.00", userId2);
+        assertEquals(1, bankService.getOperationList(userId1, null, null).size());
+
+        // Реплика догнала запись: чтения счёта возвращаются на неё
+        replicate();
+        setReplicaBalance(userId1, "151.00");
+        replica.update("UPDATE bank_transaction SET amount = 49.00 WHERE user_id = ?", userId1);
+        await(() -> bankService.getBalance(userId1), "151.00");
+        List<Transaction> history = bankService.getOperationList(userId1, null, null);
+        assertEquals(0, new BigDecimal("49.00").compareTo(history.get(0).getAmount()));
+    }
+
+    @Test
+    void testUnavailableReplicaFallsBackToPrimary() throws Exception {
+        setReplicaBalance(userId1, "111.00");
+        await(() -> bankService.getBalance(userId1), "111.00");
+
+        replica.execute("DROP TABLE bank_transaction");
+        await(() -> bankService.getBalance(userId1), "100.00");
+
+        replicate();
+        setReplicaBalance(userId1, "111.00");
+        await(() -> bankService.getBalance(userId1), "111.00");
+    }
+
+    // Копия обеих таблиц основной БД на реплику: позиция реплики догоняет позицию основной БД
+    private void replicate() {
+        List<String> script = primary.queryForList("SCRIPT TABLE bank_account, bank_transaction", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        for (String statement : script) {
+            replica.execute(statement);
+        }
+    }
+
+    private void setReplicaBalance(Long userId, String balance) {
+        replica.update("UPDATE bank_account SET balance = ? WHERE user_id = ?", new BigDecimal(balance), userId);
+    }
+
+    private void assertBalance(String expected, Long userId) {
+        assertEquals(0, new BigDecimal(expected).compareTo(bankService.getBalance(userId)));
+    }
+
+    private void await(Supplier<BigDecimal> read, String expected) throws InterruptedException {
+        BigDecimal value = new BigDecimal(expected);
+        long deadline = System.nanoTime() + 15_000_000_000L;
+        while (value.compareTo(read.get()) != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, value.compareTo(read.get()));
+    }
+}
@@ -0,0 +1,185 @@
+package com.bankapi.service;
+
+import com.bankapi.dto.BalanceSummary;
+import com.bankapi.exception.InvalidPeriodException;
+import com.bankapi.model.BalanceSnapshot;
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BalanceSnapshotRepository;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class BalanceSnapshotIntegrationTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate FIRST_DAY = TODAY.minusDays(5);
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private BalanceSnapshotJob snapshotJob;
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Long userId;
+    private Long otherUserId;
+    private final List<Transaction> history = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        snapshotRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        // Перечитать водяной знак после очистки таблицы снимков
+        snapshotJob.stop();
+        snapshotJob.start();
+        history.clear();
+
+        userId = bankAccountRepository.save(new BankAccount(new BigDecimal("0.00"))).getUserId();
+        otherUserId = bankAccountRepository.save(new BankAccount(new BigDecimal("0.00"))).getUserId();
+
+        // Начальный баланс 100, затем по три операции в день (кроме пустого дня FIRST_DAY + 2)
+        BigDecimal balance = new BigDecimal("100.00");
+        for (int d = 0; d <= 5; d++) {
+            if (d == 2) {
+                continue;
+            }
+            LocalDateTime day = FIRST_DAY.plusDays(d).atTime(9, 0);
+            balance = record(userId, "DEPOSIT", "50.00", balance, day);
+            balance = record(userId, "WITHDRAW", "20.00", balance, day.plusHours(3));
+            balance = record(userId, "TRANSFER_IN", "5.00", balance, day.plusHours(6));
+            record(otherUserId, "DEPOSIT", "1.00", BigDecimal.valueOf(d), day.plusHours(1));
+        }
+        transactionRepository.saveAll(history);
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testSnapshotsMatchRawRows() {
+        BalanceSummary beforeSnapshots = bankService.getPeriodSummary(userId, FIRST_DAY, TODAY);
+        assertEquals(5, snapshotJob.snapshotUntil(TODAY.minusDays(1)));
+        assertEquals(TODAY.minusDays(1), snapshotJob.coveredUntil());
+        assertEquals(0, snapshotJob.snapshotUntil(TODAY.minusDays(1)), "Построенные дни не пересчитываются.");
+
+        BalanceSnapshot first = snapshotRepository.findById(new BalanceSnapshot.Key(userId, FIRST_DAY)).orElseThrow();
+        assertEquals(0, new BigDecimal("100.00").compareTo(first.getOpeningBalance()));
+        assertEquals(0, new BigDecimal("135.00").compareTo(first.getClosingBalance()));
+        assertEquals(0, new BigDecimal("55.00").compareTo(first.getCreditTotal()));
+        assertEquals(0, new BigDecimal("20.00").compareTo(first.getDebitTotal()));
+        assertEquals(3, first.getOperationCount());
+        assertTrue(snapshotRepository.findById(new BalanceSnapshot.Key(userId, FIRST_DAY.plusDays(2))).isEmpty(),
+                "Дни без операций не дают строк.");
+
+        // Снимки до вчерашнего дня + строки сегодняшнего дают тот же ответ, что одни строки
+        assertSameSummary(beforeSnapshots, bankService.getPeriodSummary(userId, FIRST_DAY, TODAY));
+        assertEquals(0, new BigDecimal("275.00").compareTo(beforeSnapshots.closingBalance()));
+        assertEquals(15, beforeSnapshots.operationCount());
+        for (int d = 0; d <= 5; d++) {
+            LocalDate day = FIRST_DAY.plusDays(d);
+            assertEquals(0, expectedBalanceBefore(day.atTime(12, 30)).compareTo(bankService.getBalanceAt(userId, day.atTime(12, 30))));
+            assertSameSummary(summaryFromRows(day, day), bankService.getPeriodSummary(userId, day, day));
+        }
+        assertSameSummary(summaryFromRows(FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(3)),
+                bankService.getPeriodSummary(userId, FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(3)));
+    }
+
+    @Test
+    void testSnapshotsAnswerAfterRawRowsAreGone() {
+        LocalDate day = FIRST_DAY.plusDays(3);
+        BigDecimal balanceAt = bankService.getBalanceAt(userId, day.plusDays(1).atStartOfDay());
+        BalanceSummary summary = bankService.getPeriodSummary(userId, FIRST_DAY, day);
+        snapshotJob.snapshotUntil(TODAY.minusDays(1));
+
+        // Старые строки удалены (например, по сроку хранения) - ответы на границах дней строятся по снимкам
+        transactionRepository.deleteAllInBatch();
+        transactionRepository.saveAll(history.stream()
+                .filter(row -> !row.getTimestamp().toLocalDate().isBefore(TODAY))
+                .map(this::copy)
+                .toList());
+
+        assertEquals(0, balanceAt.compareTo(bankService.getBalanceAt(userId, day.plusDays(1).atStartOfDay())));
+        assertSameSummary(summary, bankService.getPeriodSummary(userId, FIRST_DAY, day));
+    }
+
+    @Test
+    void testBalanceBeforeFirstOperationAndInvalidPeriod() {
+        assertEquals(0, new BigDecimal("100.00").compareTo(bankService.getBalanceAt(userId, FIRST_DAY.atStartOfDay())));
+        assertThrows(InvalidPeriodException.class, () -> bankService.getPeriodSummary(userId, TODAY, FIRST_DAY));
+    }
+
+    private void assertSameSummary(BalanceSummary expected, BalanceSummary actual) {
+        assertEquals(expected.userId(), actual.userId());
+        assertEquals(expected.from(), actual.from());
+        assertEquals(expected.to(), actual.to());
+        assertEquals(0, expected.openingBalance().compareTo(actual.openingBalance()), "opening " + actual);
+        assertEquals(0, expected.closingBalance().compareTo(actual.closingBalance()), "closing " + actual);
+        assertEquals(0, expected.creditTotal().compareTo(actual.creditTotal()), "credit " + actual);
+        assertEquals(0, expected.debitTotal().compareTo(actual.debitTotal()), "debit " + actual);
+        assertEquals(expected.operationCount(), actual.operationCount());
+    }
+
+    private BigDecimal record(Long owner, String type, String amount, BigDecimal balance, LocalDateTime timestamp) {
+        BigDecimal value = new BigDecimal(amount);
+        BigDecimal after = Transaction.isCredit(type) ? balance.add(value) : balance.subtract(value);
+        history.add(new Transaction(owner, value, type, timestamp, after));
+        return after;
+    }
+
+    private Transaction copy(Transaction row) {
+        return new Transaction(row.getUserId(), row.getAmount(), row.getType(), row.getTimestamp(), row.getBalanceAfter());
+    }
+
+    private BigDecimal expectedBalanceBefore(LocalDateTime before) {
+        BigDecimal balance = new BigDecimal("100.00");
+        for (Transaction row : history) {
+            if (row.getUserId().equals(userId) && row.getTimestamp().isBefore(before)) {
+                balance = row.getBalanceAfter();
+            }
+        }
+        return balance;
+    }
+
+    private BalanceSummary summaryFromRows(LocalDate from, LocalDate to) {
+        BigDecimal credit = BigDecimal.ZERO;
+        BigDecimal debit = BigDecimal.ZERO;
+        long count = 0;
+        for (Transaction row : history) {
+            LocalDate day = row.getTimestamp().toLocalDate();
+            if (row.getUserId().equals(userId) && !day.isBefore(from) && !day.isAfter(to)) {
+                if (Transaction.isCredit(row.getType())) {
+                    credit = credit.add(row.getAmount());
+                } else {
+                    debit = debit.add(row.getAmount());
+                }
+                count++;
+            }
+        }
+        BigDecimal opening = expectedBalanceBefore(from.atStartOfDay());
+        return new BalanceSummary(userId, from, to, opening, opening.add(credit).subtract(debit), credit, debit, count);
+    }
+}
@@ -0,0 +1,317 @@
+package com.bankapi.service;
+
+import com.bankapi.dto.OperationCursor;
+import com.bankapi.dto.OperationPage;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.engine.AccountEngine;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.exception.InvalidAmountException;
+import com.bankapi.exception.InvalidCursorException;
+import com.bankapi.exception.UserNotFoundException;
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.Transaction;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The scenarios of {@link BankServiceTest} with the account engine answering them. {@link BankServiceTest}
+ * mocks the engine inactive and checks repository calls; here only outcomes are checked: return values,
+ * exceptions and their messages, balances and the history rows the engine projects to the database.
+ * Cases about the database path itself (balance cache, optimistic retries, ledger, phase timers) have no
+ * counterpart here.
+ */
+@SpringBootTest(properties = {
+        "bank.engine.enabled=true",
+        "bank.engine.fsync=false",
+        "bank.engine.segment-size=1MB",
+        "bank.engine.projection-flush-interval=5ms",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+public class BankServiceEngineTest {
+
+    private static final Path JOURNAL_DIR;
+
+    static {
+        try {
+            JOURNAL_DIR = Files.createTempDirectory("engine-service-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("bank.engine.directory", JOURNAL_DIR::toString);
+    }
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private AccountEngine engine;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Long userId1;
+    private Long userId2;
+    private Long missing;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        userId1 = bankAccountRepository.save(new BankAccount(new BigDecimal("500.00"))).getUserId();
+        userId2 = bankAccountRepository.save(new BankAccount(new BigDecimal("200.00"))).getUserId();
+        missing = userId2 + 1000;
+        assertTrue(engine.isActive());
+    }
+
+    @Test
+    void testGetBalance_UserFound() {
+        assertEquals(0, new BigDecimal("500.00").compareTo(bankService.getBalance(userId1)), "Баланс должен совпадать");
+    }
+
+    @Test
+    void testGetBalance_UserNotFound() {
+        assertNull(bankService.getBalance(missing), "Для несуществующего пользователя должен вернуться null");
+    }
+
+    @Test
+    void testPutMoney_Success() throws Exception {
+        assertEquals(1, bankService.putMoney(userId1, new BigDecimal("200.00")), "putMoney должен вернуть 1 при успехе.");
+        assertBalance("700.00", userId1);
+
+        Transaction savedTx = awaitHistory(userId1, 1).get(0);
+        assertEquals(0, new BigDecimal("200.00").compareTo(savedTx.getAmount()), "Сумма в транзакции должна совпадать с суммой пополнения.");
+        assertEquals("DEPOSIT", savedTx.getType(), "Тип транзакции должен быть DEPOSIT.");
+        assertEquals(0, new BigDecimal("700.00").compareTo(savedTx.getBalanceAfter()), "BalanceAfter в транзакции должен быть равен новому балансу.");
+        assertNotNull(savedTx.getTimestamp(), "Timestamp в транзакции должен быть установлен.");
+        assertNull(savedTx.getRelatedUserId(), "RelatedUserId в транзакции DEPOSIT должен быть null.");
+    }
+
+    @Test
+    void testPutMoney_UserNotFound() {
+        assertEquals(0, bankService.putMoney(missing, new BigDecimal("200.00")), "putMoney должен вернуть 0, если пользователь не найден.");
+        assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    void testTakeMoney_Success() throws Exception {
+        assertEquals(1, bankService.takeMoney(userId1, new BigDecimal("150.00")), "takeMoney должен вернуть 1 при успехе.");
+        assertBalance("350.00", userId1);
+
+        Transaction savedTx = awaitHistory(userId1, 1).get(0);
+        assertEquals(0, new BigDecimal("150.00").compareTo(savedTx.getAmount()), "Сумма в транзакции должна совпадать с суммой снятия.");
+        assertEquals("WITHDRAW", savedTx.getType(), "Тип транзакции должен быть WITHDRAW.");
+        assertEquals(0, new BigDecimal("350.00").compareTo(savedTx.getBalanceAfter()), "BalanceAfter в транзакции должен быть равен новому балансу.");
+        assertNull(savedTx.getRelatedUserId(), "RelatedUserId в транзакции WITHDRAW должен быть null.");
+    }
+
+    @Test
+    void testTakeMoney_InsufficientFunds() {
+        assertEquals(0, bankService.takeMoney(userId2, new BigDecimal("200.01")), "takeMoney должен вернуть 0 при недостаточности средств.");
+        assertBalance("200.00", userId2);
+    }
+
+    @Test
+    void testTakeMoney_UserNotFound() {
+        assertEquals(0, bankService.takeMoney(missing, new BigDecimal("100.00")), "takeMoney должен вернуть 0, если пользователь не найден.");
+    }
+
+    @Test
+    void testTransferMoney_Success() throws Exception {
+        assertDoesNotThrow(() -> bankService.transferMoney(userId1, userId2, new BigDecimal("100.00")),
+                "Метод transferMoney не должен бросать исключение при успешном переводе.");
+        assertBalance("400.00", userId1);
+        assertBalance("300.00", userId2);
+
+        Transaction senderTx = awaitHistory(userId1, 1).get(0);
+        assertEquals("TRANSFER_OUT", senderTx.getType(), "Тип транзакции отправителя должен быть TRANSFER_OUT.");
+        assertEquals(0, new BigDecimal("100.00").compareTo(senderTx.getAmount()));
+        assertEquals(0, new BigDecimal("400.00").compareTo(senderTx.getBalanceAfter()));
+        assertEquals(userId2, senderTx.getRelatedUserId(), "RelatedUserId в транзакции отправителя должен быть ID получателя.");
+        Transaction receiverTx = awaitHistory(userId2, 1).get(0);
+        assertEquals("TRANSFER_IN", receiverTx.getType(), "Тип транзакции получателя должен быть TRANSFER_IN.");
+        assertEquals(0, new BigDecimal("300.00").compareTo(receiverTx.getBalanceAfter()));
+        assertEquals(userId1, receiverTx.getRelatedUserId(), "RelatedUserId в транзакции получателя должен быть ID отправителя.");
+    }
+
+    @Test
+    void testTransferMoney_SenderNotFound() {
+        UserNotFoundException thrown = assertThrows(UserNotFoundException.class,
+                () -> bankService.transferMoney(missing, userId2, new BigDecimal("100.00")));
+        assertTrue(thrown.getMessage().contains("Sender user not found"), "Сообщение исключения должно указывать на отправителя.");
+        assertBalance("200.00", userId2);
+    }
+
+    @Test
+    void testTransferMoney_ReceiverNotFound() {
+        UserNotFoundException thrown = assertThrows(UserNotFoundException.class,
+                () -> bankService.transferMoney(userId1, missing, new BigDecimal("100.00")));
+        assertTrue(thrown.getMessage().contains("Receiver user not found"), "Сообщение исключения должно указывать на получателя.");
+        assertBalance("500.00", userId1);
+    }
+
+    @Test
+    void testTransferMoney_InsufficientFunds() {
+        InsufficientFundsException thrown = assertThrows(InsufficientFundsException.class,
+                () -> bankService.transferMoney(userId1, userId2, new BigDecimal("1000.00")));
+        assertTrue(thrown.getMessage().contains("Insufficient funds"), "Сообщение исключения должно указывать на недостаточность средств.");
+        assertBalance("500.00", userId1);
+        assertBalance("200.00", userId2);
+    }
+
+    @Test
+    void testTransferMoney_InvalidAmount_ZeroOrNegative() {
+        InvalidAmountException thrownZero = assertThrows(InvalidAmountException.class,
+                () -> bankService.transferMoney(userId1, userId2, BigDecimal.ZERO));
+        assertTrue(thrownZero.getMessage().contains("Transfer amount must be positive"));
+        InvalidAmountException thrownNegative = assertThrows(InvalidAmountException.class,
+                () -> bankService.transferMoney(userId1, userId2, new BigDecimal("-100.00")));
+        assertTrue(thrownNegative.getMessage().contains("Transfer amount must be positive"));
+    }
+
+    @Test
+    void testTransferMoney_InvalidAmount_FractionOfCent() {
+        InvalidAmountException thrown = assertThrows(InvalidAmountException.class,
+                () -> bankService.transferMoney(userId1, userId2, new BigDecimal("10.005")));
+        assertEquals("Transfer amount must have at most 2 decimal places.", thrown.getMessage());
+        assertEquals(0, bankService.putMoney(userId1, new BigDecimal("0.001")));
+        assertEquals(0, bankService.takeMoney(userId1, new BigDecimal("0.001")));
+        assertBalance("500.00", userId1);
+    }
+
+    @Test
+    void testTransferMoney_InvalidAmount_ToSelf() {
+        InvalidAmountException thrown = assertThrows(InvalidAmountException.class,
+                () -> bankService.transferMoney(userId1, userId1, new BigDecimal("100.00")));
+        assertTrue(thrown.getMessage().contains("Cannot transfer money to yourself"));
+    }
+
+    @Test
+    void testTransferBatch_IsolatesFailures() throws Exception {
+        Long userId3 = bankAccountRepository.save(new BankAccount(new BigDecimal("0.00"))).getUserId();
+        bankService.takeMoney(userId1, new BigDecimal("400.00"));
+        bankService.takeMoney(userId2, new BigDecimal("150.00"));
+
+        List<TransferResult> results = bankService.transferBatch(List.of(
+                transferRequest(userId1, userId2, "80.00"),
+                transferRequest(userId1, userId2, "30.00"),
+                transferRequest(userId2, userId2, "1.00"),
+                transferRequest(userId2, userId3, "130.00"),
+                transferRequest(userId3, userId1, "200.00")));
+
+        assertEquals(List.of(1, 0, 0, 1, 0), results.stream().map(TransferResult::status).toList(),
+                "Отклонённые переводы не должны влиять на остальные переводы пакета.");
+        assertTrue(results.get(1).message().contains("Insufficient funds"));
+        assertTrue(results.get(2).message().contains("Cannot transfer money to yourself"));
+        assertBalance("20.00", userId1);
+        assertBalance("0.00", userId2);
+        assertBalance("130.00", userId3);
+        awaitHistory(userId3, 1);
+    }
+
+    @Test
+    void testGetOperationList_FiltersByDates() throws Exception {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        bankService.putMoney(userId1, new BigDecimal("10.00"));
+        bankService.takeMoney(userId1, new BigDecimal("20.00"));
+        List<Transaction> all = awaitHistory(userId1, 2);
+
+        assertEquals(all.size(), bankService.getOperationList(userId1, null, null).size());
+        assertEquals(2, bankService.getOperationList(userId1, before, null).size());
+        assertTrue(bankService.getOperationList(userId1, null, before).isEmpty());
+        assertEquals(2, bankService.getOperationList(userId1, before, LocalDateTime.now().plusDays(1)).size());
+    }
+
+    @Test
+    void testGetOperationList_NoTransactionsFound() {
+        assertTrue(bankService.getOperationList(userId2, null, null).isEmpty(), "Список транзакций должен быть пустым, если нет транзакций.");
+        assertTrue(bankService.getOperationList(userId2, LocalDateTime.now().minusDays(5), LocalDateTime.now().minusDays(3)).isEmpty());
+    }
+
+    @Test
+    void testGetOperationPage_CursorWalksEveryRow() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            bankService.putMoney(userId1, new BigDecimal(i + ".00"));
+        }
+        awaitHistory(userId1, 3);
+
+        OperationPage first = bankService.getOperationPage(userId1, null, null, null, 2);
+        assertEquals(2, first.items().size());
+        assertNotNull(first.nextCursor(), "У полной страницы должен быть курсор.");
+        OperationPage last = bankService.getOperationPage(userId1, null, null, first.nextCursor(), 2);
+        assertEquals(1, last.items().size());
+        assertNull(last.nextCursor(), "У последней страницы не должно быть курсора.");
+
+        assertThrows(InvalidCursorException.class,
+                () -> bankService.getOperationPage(userId1, null, null, "not-a-cursor", 10));
+        assertNotNull(OperationCursor.decode(first.nextCursor()));
+    }
+
+    @Test
+    void testExportOperations_StreamsEveryRow() throws Exception {
+        bankService.putMoney(userId1, new BigDecimal("10.00"));
+        bankService.transferMoney(userId1, userId2, new BigDecimal("5.00"));
+        awaitHistory(userId1, 2);
+
+        List<TransactionView> written = new ArrayList<>();
+        assertEquals(2, bankService.exportOperations(userId1, null, null, written::add));
+        assertEquals(2, written.size());
+    }
+
+    private TransferRequest transferRequest(Long senderId, Long receiverId, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setSenderId(senderId);
+        request.setReceiverId(receiverId);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
+    private void assertBalance(String expected, Long userId) {
+        assertEquals(0, new BigDecimal(expected).compareTo(bankService.getBalance(userId)));
+    }
+
+    // История пишется проекцией движка асинхронно
+    private List<Transaction> awaitHistory(Long userId, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        List<Transaction> rows = rows(userId);
+        while (rows.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            rows = rows(userId);
+        }
+        assertEquals(expected, rows.size());
+        return rows;
+    }
+
+    private List<Transaction> rows(Long userId) {
+        return transactionRepository.findAll().stream()
+                .filter(tx -> userId.equals(tx.getUserId()))
+                .sorted(Comparator.comparing(Transaction::getId))
+                .toList();
+    }
+}
@@ -1,7 +1,26 @@
 package com.bankapi.service;
 
+import com.bankapi.config.BalanceCacheProperties;
+import com.bankapi.config.BatchProperties;
+import com.bankapi.config.ConcurrencyMode;
+import com.bankapi.config.ConcurrencyProperties;
+import com.bankapi.config.GroupCommitProperties;
+import com.bankapi.config.HistoryProperties;
+import com.bankapi.config.ReplicaProperties;
+import com.bankapi.config.TracingProperties;
+import com.bankapi.dto.OperationCursor;
+import com.bankapi.dto.OperationPage;
+import com.bankapi.dto.TransactionView;
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.engine.AccountEngine;
 import com.bankapi.model.BankAccount;
 import com.bankapi.model.Transaction;
+import com.bankapi.observability.MoneyFlowMetrics;
+import com.bankapi.observability.OperationTracer;
+import com.bankapi.replica.ReplicaRouter;
+import com.bankapi.ledger.WriteBehindLedger;
+import com.bankapi.repository.BalanceUpdateRepository.BalanceChange;
 import com.bankapi.repository.BankAccountRepository;
 import com.bankapi.repository.TransactionRepository;
 import com.bankapi.exception.UserNotFoundException;
@@ -16,11 +35,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Spy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -35,6 +61,39 @@ public class BankServiceTest {
     private BankAccountRepository mockAccountRepository;
     @Mock
     private TransactionRepository mockTransactionRepository;
+    @Spy
+    private AccountLockStripes accountLocks = new AccountLockStripes(new ConcurrencyProperties());
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    @Spy
+    private ConcurrencyProperties concurrencyProperties = new ConcurrencyProperties();
+    @Spy
+    private HistoryProperties historyProperties = new HistoryProperties();
+    @Spy
+    private BatchProperties batchProperties = new BatchProperties();
+    private final BalanceCacheProperties balanceCacheProperties = new BalanceCacheProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TracingProperties tracingProperties = new TracingProperties();
+    @Spy
+    private OperationTracer operationTracer = new OperationTracer(tracingProperties, meterRegistry);
+    @Spy
+    private MoneyFlowMetrics moneyFlowMetrics = new MoneyFlowMetrics(meterRegistry);
+    @Spy
+    private BalanceCache balanceCache = new BalanceCache(balanceCacheProperties, new SimpleMeterRegistry());
+    @Mock
+    private WriteBehindLedger ledger;
+    @Spy
+    private GroupCommitProperties groupCommitProperties = new GroupCommitProperties();
+    @Mock
+    private GroupCommitExecutor groupCommit;
+    @Mock
+    private HotAccounts hotAccounts;
+    @Mock
+    private AccountEngine engine;
+    @Spy
+    private ReplicaRouter replicaRouter = new ReplicaRouter(new ReplicaProperties(), meterRegistry);
+    @Spy
+    private OptimisticRetryExecutor retryExecutor = new OptimisticRetryExecutor(concurrencyProperties, new SimpleMeterRegistry());
 
     @InjectMocks
     private BankService bankService;
@@ -42,6 +101,10 @@ public class BankServiceTest {
         Transaction tx = new Transaction(userId, amount, type, timestamp, balanceAfter, relatedUserId);
         return tx;
     }
+
+    private TransactionView createView(Long id, Long userId, BigDecimal amount, String type, LocalDateTime timestamp, BigDecimal balanceAfter) {
+        return new TransactionView(id, userId, amount, type, timestamp, balanceAfter, null);
+    }
     static class BankAccountMatcher implements ArgumentMatcher<BankAccount> {
         private Long expectedUserId;
         private BigDecimal expectedBalance;
@@ -81,13 +144,11 @@ public class BankServiceTest {
     void testGetBalance_UserFound() {
         Long userId = 1L;
         BigDecimal expectedBalance = new BigDecimal("1000.50");
-        BankAccount account = new BankAccount(expectedBalance);
-        account.setUserId(userId);
 
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.of(account));
+        when(mockAccountRepository.findBalance(userId)).thenReturn(Optional.of(expectedBalance));
         BigDecimal actualBalance = bankService.getBalance(userId);
         assertEquals(expectedBalance, actualBalance, "Баланс должен совпадать");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findBalance(userId);
         verifyNoMoreInteractions(mockAccountRepository);
         verifyNoInteractions(mockTransactionRepository);
     }
@@ -95,15 +156,45 @@ public class BankServiceTest {
     @Test
     void testGetBalance_UserNotFound() {
         Long userId = 99L;
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findBalance(userId)).thenReturn(Optional.empty());
         BigDecimal actualBalance = bankService.getBalance(userId);
         assertNull(actualBalance, "Для несуществующего пользователя должен вернуться null");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findBalance(userId);
         verifyNoMoreInteractions(mockAccountRepository);
         verifyNoInteractions(mockTransactionRepository);
     }
+    @Test
+    void testGetBalance_CachedUntilMutationCommits() {
+        Long userId = 1L;
+        when(mockAccountRepository.findBalance(userId)).thenReturn(Optional.of(new BigDecimal("100.00")));
+        when(mockAccountRepository.addToBalance(userId, new BigDecimal("50.00"))).thenReturn(new BalanceChange(new BigDecimal("150.00"), 1L));
+
+        assertEquals(new BigDecimal("100.00"), bankService.getBalance(userId));
+        assertEquals(new BigDecimal("100.00"), bankService.getBalance(userId));
+        verify(mockAccountRepository, times(1)).findBalance(userId);
+
+        assertEquals(1, bankService.putMoney(userId, new BigDecimal("50.00")));
+        when(mockAccountRepository.findBalance(userId)).thenReturn(Optional.of(new BigDecimal("150.00")));
+
+        assertEquals(new BigDecimal("150.00"), bankService.getBalance(userId), "После пополнения запись кэша должна быть вытеснена.");
+        verify(mockAccountRepository, times(2)).findBalance(userId);
+    }
+
+    @Test
+    void testGetBalance_CacheDisabled() {
+        balanceCacheProperties.setEnabled(false);
+        Long userId = 1L;
+        when(mockAccountRepository.findBalance(userId)).thenReturn(Optional.of(new BigDecimal("100.00")));
+
+        bankService.getBalance(userId);
+        bankService.getBalance(userId);
+
+        verify(mockAccountRepository, times(2)).findBalance(userId);
+    }
+
     @Test
     void testPutMoney_Success() {
+        concurrencyProperties.setAtomicUpdates(false);
         Long userId = 1L;
         BigDecimal initialBalance = new BigDecimal("500.00");
         BigDecimal amount = new BigDecimal("200.00");
@@ -113,13 +204,13 @@ public class BankServiceTest {
         accountBeforeOperation.setUserId(userId);
 
         ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.of(accountBeforeOperation));
+        when(mockAccountRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(accountBeforeOperation));
         when(mockAccountRepository.save(any(BankAccount.class))).thenReturn(null);
 
         when(mockTransactionRepository.save(transactionCaptor.capture())).thenReturn(null);
         int result = bankService.putMoney(userId, amount);
         assertEquals(1, result, "putMoney должен вернуть 1 при успехе.");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findByIdForUpdate(userId);
 
         verify(mockAccountRepository, times(1)).save(argThat(new BankAccountMatcher(userId, expectedNewBalance)));
         verify(mockTransactionRepository, times(1)).save(any(Transaction.class));
@@ -134,12 +225,13 @@ public class BankServiceTest {
     }
     @Test
     void testPutMoney_UserNotFound() {
+        concurrencyProperties.setAtomicUpdates(false);
         Long userId = 99L;
         BigDecimal amount = new BigDecimal("200.00");
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findByIdForUpdate(userId)).thenReturn(Optional.empty());
         int result = bankService.putMoney(userId, amount);
         assertEquals(0, result, "putMoney должен вернуть 0, если пользователь не найден.");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findByIdForUpdate(userId);
         verify(mockAccountRepository, never()).save(any(BankAccount.class));
         verify(mockTransactionRepository, never()).save(any(Transaction.class));
         verifyNoMoreInteractions(mockAccountRepository);
@@ -147,6 +239,7 @@ public class BankServiceTest {
     }
     @Test
     void testTakeMoney_Success() {
+        concurrencyProperties.setAtomicUpdates(false);
         Long userId = 2L;
         BigDecimal initialBalance = new BigDecimal("1000.00");
         BigDecimal amount = new BigDecimal("150.00");
@@ -157,13 +250,13 @@ public class BankServiceTest {
 
         ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
 
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.of(accountBeforeOperation));
+        when(mockAccountRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(accountBeforeOperation));
         when(mockAccountRepository.save(any(BankAccount.class))).thenReturn(null);
 
         when(mockTransactionRepository.save(transactionCaptor.capture())).thenReturn(null);
         int result = bankService.takeMoney(userId, amount);
         assertEquals(1, result, "takeMoney должен вернуть 1 при успехе.");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findByIdForUpdate(userId);
 
         verify(mockAccountRepository, times(1)).save(argThat(new BankAccountMatcher(userId, expectedNewBalance)));
         verify(mockTransactionRepository, times(1)).save(any(Transaction.class));
@@ -180,16 +273,17 @@ public class BankServiceTest {
 
     @Test
     void testTakeMoney_InsufficientFunds() {
+        concurrencyProperties.setAtomicUpdates(false);
         Long userId = 3L;
         BigDecimal initialBalance = new BigDecimal("50.00");
         BigDecimal amount = new BigDecimal("100.00");
         BankAccount account = new BankAccount(initialBalance);
         account.setUserId(userId);
 
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.of(account));
+        when(mockAccountRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(account));
         int result = bankService.takeMoney(userId, amount);
         assertEquals(0, result, "takeMoney должен вернуть 0 при недостаточности средств.");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findByIdForUpdate(userId);
         verify(mockAccountRepository, never()).save(any(BankAccount.class));
         verify(mockTransactionRepository, never()).save(any(Transaction.class));
         verifyNoMoreInteractions(mockAccountRepository);
@@ -198,18 +292,150 @@ public class BankServiceTest {
 
     @Test
     void testTakeMoney_UserNotFound() {
+        concurrencyProperties.setAtomicUpdates(false);
         Long userId = 99L;
         BigDecimal amount = new BigDecimal("100.00");
-        when(mockAccountRepository.findById(userId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findByIdForUpdate(userId)).thenReturn(Optional.empty());
         int result = bankService.takeMoney(userId, amount);
         assertEquals(0, result, "takeMoney должен вернуть 0, если пользователь не найден.");
-        verify(mockAccountRepository, times(1)).findById(userId);
+        verify(mockAccountRepository, times(1)).findByIdForUpdate(userId);
         verify(mockAccountRepository, never()).save(any(BankAccount.class));
         verify(mockTransactionRepository, never()).save(any(Transaction.class));
         verifyNoMoreInteractions(mockAccountRepository);
         verifyNoInteractions(mockTransactionRepository);
     }
 
+    @Test
+    void testPutMoney_Atomic_Success() {
+        Long userId = 1L;
+        BigDecimal amount = new BigDecimal("200.00");
+        BigDecimal expectedNewBalance = new BigDecimal("700.00");
+
+        ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
+        when(mockAccountRepository.addToBalance(userId, amount)).thenReturn(new BalanceChange(expectedNewBalance, 1L));
+        when(mockTransactionRepository.save(transactionCaptor.capture())).thenReturn(null);
+
+        int result = bankService.putMoney(userId, amount);
+        assertEquals(1, result, "putMoney должен вернуть 1 при успехе.");
+        verify(mockAccountRepository, times(1)).addToBalance(userId, amount);
+        Transaction savedTx = transactionCaptor.getValue();
+        assertEquals("DEPOSIT", savedTx.getType(), "Тип транзакции должен быть DEPOSIT.");
+        assertEquals(expectedNewBalance, savedTx.getBalanceAfter(), "BalanceAfter должен браться из результата UPDATE.");
+        verifyNoMoreInteractions(mockAccountRepository, mockTransactionRepository);
+    }
+
+    @Test
+    void testPutMoney_Atomic_UserNotFound() {
+        Long userId = 99L;
+        BigDecimal amount = new BigDecimal("200.00");
+        when(mockAccountRepository.addToBalance(userId, amount)).thenReturn(null);
+
+        int result = bankService.putMoney(userId, amount);
+        assertEquals(0, result, "putMoney должен вернуть 0, если UPDATE не затронул строк.");
+        verify(mockAccountRepository, times(1)).addToBalance(userId, amount);
+        verifyNoMoreInteractions(mockAccountRepository);
+        verifyNoInteractions(mockTransactionRepository);
+    }
+
+    @Test
+    void testTakeMoney_Atomic_Success() {
+        Long userId = 2L;
+        BigDecimal amount = new BigDecimal("150.00");
+        BigDecimal expectedNewBalance = new BigDecimal("850.00");
+
+        ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
+        when(mockAccountRepository.subtractFromBalance(userId, amount)).thenReturn(new BalanceChange(expectedNewBalance, 1L));
+        when(mockTransactionRepository.save(transactionCaptor.capture())).thenReturn(null);
+
+        int result = bankService.takeMoney(userId, amount);
+        assertEquals(1, result, "takeMoney должен вернуть 1 при успехе.");
+        verify(mockAccountRepository, times(1)).subtractFromBalance(userId, amount);
+        Transaction savedTx = transactionCaptor.getValue();
+        assertEquals("WITHDRAW", savedTx.getType(), "Тип транзакции должен быть WITHDRAW.");
+        assertEquals(expectedNewBalance, savedTx.getBalanceAfter(), "BalanceAfter должен браться из результата UPDATE.");
+        verifyNoMoreInteractions(mockAccountRepository, mockTransactionRepository);
+    }
+
+    @Test
+    void testPutMoney_Atomic_LedgerMode_JournalsHistoryWithVersion() {
+        Long userId = 4L;
+        BigDecimal amount = new BigDecimal("25.00");
+        when(ledger.isActive()).thenReturn(true);
+        when(mockAccountRepository.addToBalance(userId, amount)).thenReturn(new BalanceChange(new BigDecimal("125.00"), 7L));
+
+        ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
+        int result = bankService.putMoney(userId, amount);
+
+        assertEquals(1, result, "putMoney должен вернуть 1 при успехе.");
+        // Строка истории уходит в журнал с версией счёта из UPDATE, вставки в bank_transaction в транзакции нет
+        verify(ledger, times(1)).append(transactionCaptor.capture(), eq(-1), eq(7L));
+        assertEquals(new BigDecimal("125.00"), transactionCaptor.getValue().getBalanceAfter());
+        verifyNoInteractions(mockTransactionRepository);
+    }
+
+    @Test
+    void testTakeMoney_Atomic_InsufficientFunds() {
+        Long userId = 3L;
+        BigDecimal amount = new BigDecimal("100.00");
+        when(mockAccountRepository.subtractFromBalance(userId, amount)).thenReturn(null);
+        when(mockAccountRepository.existsById(userId)).thenReturn(true);
+
+        int result = bankService.takeMoney(userId, amount);
+        assertEquals(0, result, "takeMoney должен вернуть 0, если условный UPDATE не затронул строк.");
+        verify(mockAccountRepository, times(1)).subtractFromBalance(userId, amount);
+        // Проверка существования счёта нужна только для метрики причины отказа
+        verify(mockAccountRepository, times(1)).existsById(userId);
+        verifyNoMoreInteractions(mockAccountRepository);
+        verifyNoInteractions(mockTransactionRepository);
+        assertEquals(1, meterRegistry.get("bank.operations")
+                .tag("operation", "takeMoney").tag("outcome", "insufficient_funds").counter().count());
+    }
+
+    @Test
+    void testPutMoney_OptimisticConflictIsRetried() {
+        concurrencyProperties.setAtomicUpdates(false);
+        concurrencyProperties.setMode(ConcurrencyMode.OPTIMISTIC);
+        concurrencyProperties.getRetry().setInitialBackoff(java.time.Duration.ZERO);
+        Long userId = 1L;
+        BigDecimal amount = new BigDecimal("200.00");
+
+        when(mockAccountRepository.findById(userId))
+                .thenReturn(Optional.of(new BankAccount(userId, new BigDecimal("500.00"))))
+                .thenReturn(Optional.of(new BankAccount(userId, new BigDecimal("600.00"))));
+        when(mockAccountRepository.save(any(BankAccount.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(BankAccount.class, userId))
+                .thenReturn(null);
+
+        int result = bankService.putMoney(userId, amount);
+        assertEquals(1, result, "putMoney должен завершиться успешно после повтора.");
+        verify(mockAccountRepository, times(2)).findById(userId);
+        verify(mockAccountRepository, never()).findByIdForUpdate(anyLong());
+        verify(mockAccountRepository, times(1)).save(argThat(new BankAccountMatcher(userId, new BigDecimal("800.00"))));
+        verify(mockTransactionRepository, times(1)).save(any(Transaction.class));
+    }
+
+    @Test
+    void testTransferMoney_OptimisticRetriesExhausted() {
+        concurrencyProperties.setMode(ConcurrencyMode.OPTIMISTIC);
+        concurrencyProperties.getRetry().setMaxAttempts(3);
+        concurrencyProperties.getRetry().setInitialBackoff(java.time.Duration.ZERO);
+        Long senderId = 1L;
+        Long receiverId = 2L;
+
+        when(mockAccountRepository.findAllById(List.of(senderId, receiverId)))
+                .thenAnswer(invocation -> List.of(new BankAccount(senderId, new BigDecimal("500.00")),
+                        new BankAccount(receiverId, new BigDecimal("200.00"))));
+        when(mockAccountRepository.save(any(BankAccount.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(BankAccount.class, senderId));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> bankService.transferMoney(senderId, receiverId, new BigDecimal("100.00")),
+                "После исчерпания попыток конфликт должен пробрасываться вызывающему.");
+        verify(mockAccountRepository, times(3)).findAllById(List.of(senderId, receiverId));
+        verify(mockAccountRepository, never()).findAllByIdForUpdate(anyCollection());
+        verifyNoInteractions(mockTransactionRepository);
+    }
+
     @Test
     void testTransferMoney_Success() {
         Long senderId = 1L;
@@ -227,15 +453,14 @@ public class BankServiceTest {
         receiverAccountBeforeOperation.setUserId(receiverId);
 
         ArgumentCaptor<Transaction> transactionCaptor = ArgumentCaptor.forClass(Transaction.class);
-        when(mockAccountRepository.findById(senderId)).thenReturn(Optional.of(senderAccountBeforeOperation));
-        when(mockAccountRepository.findById(receiverId)).thenReturn(Optional.of(receiverAccountBeforeOperation));
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(senderId, receiverId)))
+                .thenReturn(Arrays.asList(senderAccountBeforeOperation, receiverAccountBeforeOperation));
         when(mockAccountRepository.save(any(BankAccount.class))).thenReturn(null);
 
         when(mockTransactionRepository.save(transactionCaptor.capture())).thenReturn(null);
         assertDoesNotThrow(() -> bankService.transferMoney(senderId, receiverId, amount),
                 "Метод transferMoney не должен бросать исключение при успешном переводе.");
-        verify(mockAccountRepository, times(1)).findById(senderId);
-        verify(mockAccountRepository, times(1)).findById(receiverId);
+        verify(mockAccountRepository, times(1)).findAllByIdForUpdate(List.of(senderId, receiverId));
         verify(mockAccountRepository, times(1)).save(argThat(new BankAccountMatcher(senderId, senderExpectedNewBalance)));
         verify(mockAccountRepository, times(1)).save(argThat(new BankAccountMatcher(receiverId, receiverExpectedNewBalance)));
         verify(mockAccountRepository, times(2)).save(any(BankAccount.class));
@@ -270,13 +495,13 @@ public class BankServiceTest {
         Long senderId = 99L;
         Long receiverId = 2L;
         BigDecimal amount = new BigDecimal("100.00");
-        when(mockAccountRepository.findById(senderId)).thenReturn(Optional.empty());
+        BankAccount receiverAccount = new BankAccount(receiverId, new BigDecimal("200.00"));
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(receiverId, senderId))).thenReturn(List.of(receiverAccount));
         UserNotFoundException thrown = assertThrows(UserNotFoundException.class, () -> {
             bankService.transferMoney(senderId, receiverId, amount);
         }, "Должно быть брошено UserNotFoundException, если отправитель не найден.");
         assertTrue(thrown.getMessage().contains("Sender user not found"), "Сообщение исключения должно указывать на отправителя.");
-        verify(mockAccountRepository, times(1)).findById(senderId);
-        verify(mockAccountRepository, never()).findById(receiverId);
+        verify(mockAccountRepository, times(1)).findAllByIdForUpdate(List.of(receiverId, senderId));
 
         verify(mockAccountRepository, never()).save(any(BankAccount.class));
         verify(mockTransactionRepository, never()).save(any(Transaction.class));
@@ -292,14 +517,12 @@ public class BankServiceTest {
         BigDecimal senderInitialBalance = new BigDecimal("500.00");
         BankAccount senderAccount = new BankAccount(senderId,senderInitialBalance);
 
-        when(mockAccountRepository.findById(senderId)).thenReturn(Optional.of(senderAccount));
-        when(mockAccountRepository.findById(receiverId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(senderId, receiverId))).thenReturn(List.of(senderAccount));
         UserNotFoundException thrown = assertThrows(UserNotFoundException.class, () -> {
             bankService.transferMoney(senderId, receiverId, amount);
         }, "Должно быть брошено UserNotFoundException, если получатель не найден.");
         assertTrue(thrown.getMessage().contains("Receiver user not found"), "Сообщение исключения должно указывать на получателя.");
-        verify(mockAccountRepository, times(1)).findById(senderId);
-        verify(mockAccountRepository, times(1)).findById(receiverId);
+        verify(mockAccountRepository, times(1)).findAllByIdForUpdate(List.of(senderId, receiverId));
 
         verify(mockAccountRepository, never()).save(any(BankAccount.class));
         verify(mockTransactionRepository, never()).save(any(Transaction.class));
@@ -318,14 +541,12 @@ public class BankServiceTest {
         BankAccount senderAccount = new BankAccount(senderId, senderInitialBalance);
         BankAccount receiverAccount = new BankAccount(receiverId, receiverInitialBalance);
 
-        when(mockAccountRepository.findById(senderId)).thenReturn(Optional.of(senderAccount));
-        when(mockAccountRepository.findById(receiverId)).thenReturn(Optional.of(receiverAccount));
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(senderId, receiverId))).thenReturn(List.of(senderAccount, receiverAccount));
         InsufficientFundsException thrown = assertThrows(InsufficientFundsException.class, () -> {
             bankService.transferMoney(senderId, receiverId, amount);
         }, "Должно быть брошено InsufficientFundsException, если недостаточно средств.");
         assertTrue(thrown.getMessage().contains("Insufficient funds"), "Сообщение исключения должно указывать на недостаточность средств.");
-        verify(mockAccountRepository, times(1)).findById(senderId);
-        verify(mockAccountRepository, times(1)).findById(receiverId);
+        verify(mockAccountRepository, times(1)).findAllByIdForUpdate(List.of(senderId, receiverId));
         verify(mockAccountRepository, never()).save(any(BankAccount.class));
         verify(mockTransactionRepository, never()).save(any(Transaction.class));
         verifyNoMoreInteractions(mockAccountRepository);
@@ -350,6 +571,20 @@ public class BankServiceTest {
         verifyNoInteractions(mockTransactionRepository);
     }
 
+    @Test
+    void testTransferMoney_InvalidAmount_FractionOfCent() {
+        InvalidAmountException thrown = assertThrows(InvalidAmountException.class, () -> {
+            bankService.transferMoney(1L, 2L, new BigDecimal("10.005"));
+        }, "Должно быть брошено InvalidAmountException для суммы с долями копейки.");
+        assertEquals("Transfer amount must have at most 2 decimal places.", thrown.getMessage());
+        // Доли копейки отклоняются и у пополнения и снятия - БД округлила бы их молча
+        assertEquals(0, bankService.putMoney(1L, new BigDecimal("0.001")));
+        assertEquals(0, bankService.takeMoney(1L, new BigDecimal("0.001")));
+
+        verifyNoInteractions(mockAccountRepository);
+        verifyNoInteractions(mockTransactionRepository);
+    }
+
     @Test
     void testTransferMoney_InvalidAmount_ToSelf() {
         Long userId = 1L;
@@ -365,6 +600,107 @@ public class BankServiceTest {
     }
 
 
+    @Test
+    void testTransferBatch_GroupsCommitsAndIsolatesFailures() {
+        batchProperties.setCommitSize(2);
+        BankAccount account1 = new BankAccount(new BigDecimal("100.00"));
+        account1.setUserId(1L);
+        BankAccount account2 = new BankAccount(new BigDecimal("50.00"));
+        account2.setUserId(2L);
+        BankAccount account3 = new BankAccount(new BigDecimal("0.00"));
+        account3.setUserId(3L);
+
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(account1, account2));
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(1L, 2L, 3L))).thenReturn(List.of(account1, account2, account3));
+
+        List<TransferRequest> requests = List.of(
+                transferRequest(1L, 2L, new BigDecimal("80.00")),
+                transferRequest(1L, 2L, new BigDecimal("30.00")),
+                transferRequest(2L, 2L, new BigDecimal("1.00")),
+                transferRequest(2L, 3L, new BigDecimal("130.00")),
+                transferRequest(3L, 1L, new BigDecimal("200.00"))
+        );
+
+        List<TransferResult> results = bankService.transferBatch(requests);
+
+        assertEquals(5, results.size());
+        assertEquals(List.of(1, 0, 0, 1, 0), results.stream().map(TransferResult::status).toList(),
+                "Отклонённые переводы не должны влиять на остальные переводы пакета.");
+        assertTrue(results.get(1).message().contains("Insufficient funds"));
+        assertTrue(results.get(2).message().contains("Cannot transfer money to yourself"));
+        assertEquals(new BigDecimal("20.00"), account1.getBalance());
+        assertEquals(new BigDecimal("0.00"), account2.getBalance());
+        assertEquals(new BigDecimal("130.00"), account3.getBalance());
+
+        // Две группы по commit-size=2 валидных перевода - две транзакции и две пакетные вставки истории
+        verify(transactionTemplate, times(2)).execute(any());
+        ArgumentCaptor<List<Transaction>> historyCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockTransactionRepository, times(2)).saveAll(historyCaptor.capture());
+        assertEquals(2, historyCaptor.getAllValues().get(0).size());
+        assertEquals(2, historyCaptor.getAllValues().get(1).size());
+    }
+
+    @Test
+    void testTransferMoney_RecordsPhaseTimers() {
+        BankAccount sender = new BankAccount(new BigDecimal("100.00"));
+        sender.setUserId(1L);
+        BankAccount receiver = new BankAccount(new BigDecimal("0.00"));
+        receiver.setUserId(2L);
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(sender, receiver));
+
+        bankService.transferMoney(1L, 2L, new BigDecimal("10.00"));
+
+        for (String phase : List.of("lookup", "update", "history", "commit")) {
+            assertEquals(1, meterRegistry.get("bank.operation.phase")
+                    .tag("operation", "transferMoney").tag("phase", phase).timer().count(),
+                    "Каждая фаза перевода должна быть измерена один раз: " + phase);
+        }
+    }
+
+    @Test
+    void testTransferMoney_PhaseTimersOffLeaveOnlyOutcomeCounter() {
+        tracingProperties.setPhaseTimers(false);
+        BankAccount sender = new BankAccount(new BigDecimal("100.00"));
+        sender.setUserId(1L);
+        BankAccount receiver = new BankAccount(new BigDecimal("0.00"));
+        receiver.setUserId(2L);
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(sender, receiver));
+
+        bankService.transferMoney(1L, 2L, new BigDecimal("10.00"));
+
+        assertNull(meterRegistry.find("bank.operation.phase").timer(), "Без таймеров фаз время фаз не записывается.");
+        assertEquals(1, meterRegistry.get("bank.operations")
+                .tag("operation", "transferMoney").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void testTransferMoney_CountsOutcomesAndMoneyFlow() {
+        BankAccount sender = new BankAccount(new BigDecimal("100.00"));
+        sender.setUserId(1L);
+        BankAccount receiver = new BankAccount(new BigDecimal("0.00"));
+        receiver.setUserId(2L);
+        when(mockAccountRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(sender, receiver));
+
+        bankService.transferMoney(1L, 2L, new BigDecimal("30.00"));
+        assertThrows(InsufficientFundsException.class, () -> bankService.transferMoney(1L, 2L, new BigDecimal("500.00")));
+        assertThrows(InvalidAmountException.class, () -> bankService.transferMoney(1L, 1L, new BigDecimal("5.00")));
+
+        assertEquals(1, meterRegistry.get("bank.operations").tag("operation", "transferMoney").tag("outcome", "success").counter().count());
+        assertEquals(1, meterRegistry.get("bank.operations").tag("operation", "transferMoney").tag("outcome", "insufficient_funds").counter().count());
+        assertEquals(1, meterRegistry.get("bank.operations").tag("operation", "transferMoney").tag("outcome", "invalid_amount").counter().count());
+        // Отклонённые переводы не попадают в денежный поток
+        assertEquals(30.0, meterRegistry.get("bank.money.flow").tag("type", "TRANSFER_OUT").summary().totalAmount());
+        assertEquals(30.0, meterRegistry.get("bank.money.flow").tag("type", "TRANSFER_IN").summary().totalAmount());
+    }
+
+    private static TransferRequest transferRequest(Long senderId, Long receiverId, BigDecimal amount) {
+        TransferRequest request = new TransferRequest();
+        request.setSenderId(senderId);
+        request.setReceiverId(receiverId);
+        request.setAmount(amount);
+        return request;
+    }
+
     @Test
     void testGetOperationList_All() {
         Long userId = 1L;
@@ -484,4 +820,92 @@ public class BankServiceTest {
         verifyNoInteractions(mockAccountRepository);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testGetOperationPage_LastPageHasNoCursor() {
+        Long userId = 1L;
+        LocalDateTime startDate = LocalDateTime.now().minusDays(3);
+        List<TransactionView> rows = Arrays.asList(
+                createView(1L, userId, new BigDecimal("100.00"), "DEPOSIT", LocalDateTime.now().minusDays(2), new BigDecimal("600.00")),
+                createView(2L, userId, new BigDecimal("50.00"), "WITHDRAW", LocalDateTime.now().minusDays(1), new BigDecimal("550.00"))
+        );
+        when(mockTransactionRepository.findFirstPage(eq(userId), eq(startDate), any(LocalDateTime.class), eq(Limit.of(11))))
+                .thenReturn(rows);
+
+        OperationPage page = bankService.getOperationPage(userId, startDate, null, null, 10);
+        assertEquals(rows, page.items(), "Все строки должны попасть на страницу.");
+        assertNull(page.nextCursor(), "У последней страницы не должно быть курсора.");
+        verifyNoInteractions(mockAccountRepository);
+    }
+
+    @Test
+    void testGetOperationPage_FullPageReturnsCursorOfLastRow() {
+        Long userId = 1L;
+        LocalDateTime t1 = LocalDateTime.of(2024, 4, 1, 12, 0);
+        LocalDateTime t2 = LocalDateTime.of(2024, 4, 2, 12, 0);
+        TransactionView first = createView(41L, userId, new BigDecimal("1.00"), "DEPOSIT", t1, new BigDecimal("1.00"));
+        TransactionView second = createView(42L, userId, new BigDecimal("1.00"), "DEPOSIT", t2, new BigDecimal("2.00"));
+        TransactionView third = createView(43L, userId, new BigDecimal("1.00"), "DEPOSIT", t2, new BigDecimal("3.00"));
+        when(mockTransactionRepository.findFirstPage(eq(userId), any(LocalDateTime.class), any(LocalDateTime.class), eq(Limit.of(3))))
+                .thenReturn(Arrays.asList(first, second, third));
+
+        OperationPage page = bankService.getOperationPage(userId, null, null, null, 2);
+        assertEquals(Arrays.asList(first, second), page.items(), "Лишняя строка не должна попадать на страницу.");
+        assertEquals(new OperationCursor(t2, 42L), OperationCursor.decode(page.nextCursor()),
+                "Курсор должен указывать на последнюю строку страницы.");
+    }
+
+    @Test
+    void testGetOperationPage_WithoutLimitAndCursorReturnsDefaultPage() {
+        Long userId = 1L;
+        int pageSize = historyProperties.getDefaultPageSize();
+        List<TransactionView> rows = new ArrayList<>();
+        for (long id = 1; id <= pageSize + 1; id++) {
+            rows.add(createView(id, userId, new BigDecimal("1.00"), "DEPOSIT", LocalDateTime.of(2024, 4, 1, 12, 0), new BigDecimal("1.00")));
+        }
+        when(mockTransactionRepository.findFirstPage(eq(userId), any(LocalDateTime.class), any(LocalDateTime.class), eq(Limit.of(pageSize + 1))))
+                .thenReturn(rows);
+
+        OperationPage page = bankService.getOperationPage(userId, null, null, null, null);
+        assertEquals(pageSize, page.items().size(), "Запрос без параметров ограничен страницей по умолчанию.");
+        assertEquals(new OperationCursor(LocalDateTime.of(2024, 4, 1, 12, 0), (long) pageSize), OperationCursor.decode(page.nextCursor()));
+    }
+
+    @Test
+    void testGetOperationPage_CursorAndPageSizeCap() {
+        Long userId = 1L;
+        OperationCursor cursor = new OperationCursor(LocalDateTime.of(2024, 4, 2, 12, 0), 42L);
+        LocalDateTime endDate = LocalDateTime.of(2024, 5, 1, 0, 0);
+        when(mockTransactionRepository.findPageAfter(userId, cursor.timestamp(), 42L, endDate,
+                Limit.of(historyProperties.getMaxPageSize() + 1))).thenReturn(Collections.emptyList());
+
+        OperationPage page = bankService.getOperationPage(userId, null, endDate, cursor.encode(), 1_000_000);
+        assertTrue(page.items().isEmpty(), "Страница после последней строки должна быть пустой.");
+        assertNull(page.nextCursor());
+        verify(mockTransactionRepository, never()).findFirstPage(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void testGetOperationPage_MalformedCursor() {
+        assertThrows(com.bankapi.exception.InvalidCursorException.class,
+                () -> bankService.getOperationPage(1L, null, null, "not-a-cursor", 10));
+        verifyNoInteractions(mockTransactionRepository);
+    }
+
+    @Test
+    void testExportOperations_StreamsEveryRow() {
+        Long userId = 1L;
+        TransactionView tx1 = createView(1L, userId, new BigDecimal("100.00"), "DEPOSIT", LocalDateTime.now().minusDays(2), new BigDecimal("600.00"));
+        TransactionView tx2 = createView(2L, userId, new BigDecimal("50.00"), "WITHDRAW", LocalDateTime.now().minusDays(1), new BigDecimal("550.00"));
+        java.util.concurrent.atomic.AtomicBoolean closed = new java.util.concurrent.atomic.AtomicBoolean();
+        when(mockTransactionRepository.streamHistory(eq(userId), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(java.util.stream.Stream.of(tx1, tx2).onClose(() -> closed.set(true)));
+
+        List<TransactionView> written = new java.util.ArrayList<>();
+        long exported = bankService.exportOperations(userId, null, null, written::add);
+
+        assertEquals(2, exported);
+        assertEquals(Arrays.asList(tx1, tx2), written, "Строки должны передаваться в порядке потока.");
+        assertTrue(closed.get(), "Курсор должен закрываться после выгрузки.");
+        verifyNoInteractions(mockAccountRepository);
+    }
+}
@@ -0,0 +1,167 @@
+package com.bankapi.service;
+
+import com.bankapi.config.GroupCommitProperties;
+import com.bankapi.exception.OperationNotAppliedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitExecutorTest {
+
+    private static final int CALLERS = 4;
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+    private GroupCommitExecutor groupCommit;
+
+    @BeforeEach
+    void setUp() {
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setMaxBatchSize(CALLERS);
+        // Большой потолок ожидания: группа закрывается по размеру, когда соберутся все вызывающие
+        properties.setMaxDelay(Duration.ofSeconds(5));
+        groupCommit = new GroupCommitExecutor(properties, new TransactionTemplate(transactionManager), meterRegistry);
+        groupCommit.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        groupCommit.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testUnitsShareOneTransactionAndGetOwnResults() throws Exception {
+        List<Long> applied = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Long>> results = new ArrayList<>();
+        for (long key = CALLERS; key >= 1; key--) {
+            long lockKey = key;
+            results.add(callers.submit(() -> groupCommit.submit(lockKey, () -> {
+                applied.add(lockKey);
+                return lockKey * 10;
+            })));
+        }
+
+        for (int i = 0; i < CALLERS; i++) {
+            assertEquals((CALLERS - i) * 10L, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(List.of(1L, 2L, 3L, 4L), applied, "Операции группы выполняются по возрастанию ключа блокировки.");
+        assertEquals(CALLERS, meterRegistry.get("bank.group.commit.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void testFailingUnitDoesNotPoisonGroup() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        for (long key = 1; key <= CALLERS; key++) {
+            long lockKey = key;
+            results.add(callers.submit(() -> groupCommit.submit(lockKey, () -> {
+                if (lockKey == 2) {
+                    throw new IllegalStateException("broken unit");
+                }
+                return "ok-" + lockKey;
+            })));
+        }
+
+        assertEquals("ok-1", results.get(0).get(5, TimeUnit.SECONDS));
+        Exception failure = assertThrows(Exception.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failure.getCause(), "Исключение получает только его вызывающий.");
+        assertEquals("ok-3", results.get(2).get(5, TimeUnit.SECONDS));
+        assertEquals("ok-4", results.get(3).get(5, TimeUnit.SECONDS));
+        // Общая транзакция откатывается, затем каждая операция выполняется отдельно: три коммита, два отката
+        verify(transactionManager, times(3)).commit(any());
+        verify(transactionManager, times(2)).rollback(any());
+        assertEquals(1.0, meterRegistry.get("bank.group.commit.fallbacks").counter().count());
+    }
+
+    @Test
+    void testWorkerDeathFailsWaitingCallers() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        for (long key = 1; key <= CALLERS; key++) {
+            long lockKey = key;
+            results.add(callers.submit(() -> groupCommit.submit(lockKey, () -> {
+                if (lockKey == 2) {
+                    throw new AssertionError("worker killer");
+                }
+                return "ok-" + lockKey;
+            })));
+        }
+
+        // Error не перехватывается откатом группы и завершает рабочий поток: вызывающие получают ошибку, а не зависают
+        for (Future<String> result : results) {
+            Exception failure = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OperationNotAppliedException.class, failure.getCause());
+        }
+        assertFalse(groupCommit.isRunning());
+        assertEquals("direct", groupCommit.submit(1L, () -> "direct"));
+    }
+
+    @Test
+    void testResultTimeoutWithdrawsQueuedUnitAndWaitsForTakenOne() throws Exception {
+        groupCommit.stop();
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setMaxBatchSize(1);
+        properties.setResultTimeout(Duration.ofMillis(200));
+        groupCommit = new GroupCommitExecutor(properties, new TransactionTemplate(transactionManager), meterRegistry);
+        groupCommit.start();
+
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedApplied = new AtomicBoolean();
+        Future<String> slow = callers.submit(() -> groupCommit.submit(1L, () -> {
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "slow";
+        }));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        Future<String> queued = callers.submit(() -> groupCommit.submit(2L, () -> {
+            queuedApplied.set(true);
+            return "queued";
+        }));
+
+        // Операция за медленной так и не попала в транзакцию: снимается с очереди и получает отказ
+        Exception failure = assertThrows(Exception.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OperationNotAppliedException.class, failure.getCause());
+        // Медленная уже в транзакции: её вызывающий ждёт исхода и после result-timeout
+        Thread.sleep(300);
+        assertFalse(slow.isDone(), "Забранная операция не должна получать ошибку, пока её транзакция не завершилась.");
+
+        release.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+        groupCommit.stop();
+        assertFalse(queuedApplied.get(), "Снятая с очереди операция не применяется.");
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testSubmitRunsInOwnTransactionWhenStopped() {
+        groupCommit.stop();
+
+        assertEquals("direct", groupCommit.submit(1L, () -> "direct"));
+        verify(transactionManager, times(1)).commit(any());
+    }
+}
@@ -0,0 +1,189 @@
+package com.bankapi.service;
+
+import com.bankapi.config.ConcurrencyProperties;
+import com.bankapi.config.GroupCommitProperties;
+import com.bankapi.config.HotAccountProperties;
+import com.bankapi.config.LedgerProperties;
+import com.bankapi.dto.TransferRequest;
+import com.bankapi.dto.TransferResult;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.model.BankAccount;
+import com.bankapi.model.BankAccountSlot;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.BankAccountSlotRepository;
+import com.bankapi.repository.TransactionRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "bank.hot-accounts.slots=4")
+@ActiveProfiles("test")
+public class HotAccountIntegrationTest {
+
+    private static final int PAYERS = 8;
+    private static final int PAYMENTS_PER_PAYER = 50;
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private HotAccounts hotAccounts;
+    @Autowired
+    private HotAccountProperties hotAccountProperties;
+    @Autowired
+    private ConcurrencyProperties concurrencyProperties;
+    @Autowired
+    private GroupCommitProperties groupCommitProperties;
+    @Autowired
+    private LedgerProperties ledgerProperties;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private BankAccountSlotRepository slotRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Long merchantId;
+    private final List<Long> payerIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        slotRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        payerIds.clear();
+        merchantId = bankAccountRepository.save(new BankAccount(new BigDecimal("100.00"))).getUserId();
+        for (int i = 0; i < PAYERS; i++) {
+            payerIds.add(bankAccountRepository.save(new BankAccount(new BigDecimal("1000.00"))).getUserId());
+        }
+        hotAccountProperties.getUserIds().add(merchantId);
+        hotAccounts.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotAccountProperties.getUserIds().clear();
+        concurrencyProperties.setAtomicUpdates(true);
+        groupCommitProperties.setEnabled(false);
+        ledgerProperties.setEnabled(false);
+    }
+
+    @Test
+    void testHotAccountsRefuseToStartWithLedger() {
+        ledgerProperties.setEnabled(true);
+
+        // Баланс на момент считается по оборотам bank_transaction, а строки журнала попадают туда с задержкой
+        assertThrows(IllegalStateException.class, () -> hotAccounts.start());
+    }
+
+    @Test
+    void testCreditsSpreadOverSlotsWithoutTouchingAccountRow() throws Exception {
+        long versionBefore = bankAccountRepository.findVersion(merchantId);
+        ExecutorService executor = Executors.newFixedThreadPool(PAYERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long payerId : payerIds) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < PAYMENTS_PER_PAYER; i++) {
+                    if (i % 2 == 0) {
+                        bankService.transferMoney(payerId, merchantId, new BigDecimal("1.00"));
+                    } else {
+                        bankService.putMoney(merchantId, new BigDecimal("1.00"));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        BigDecimal expected = new BigDecimal("100.00").add(BigDecimal.valueOf(PAYERS * PAYMENTS_PER_PAYER));
+        assertEquals(0, expected.compareTo(bankService.getBalance(merchantId)), "Баланс горячего счёта - сумма строки и слотов.");
+        assertEquals(versionBefore, bankAccountRepository.findVersion(merchantId), "Зачисления не меняют строку bank_account.");
+        List<BankAccountSlot> slots = slotRepository.findAll();
+        assertEquals(4, slots.size());
+        assertTrue(slots.stream().filter(slot -> slot.getBalance().signum() > 0).count() > 1, "Зачисления расходятся по слотам.");
+        // Половина операций - переводы (две строки истории), половина - пополнения (одна)
+        assertEquals(3L * PAYERS * PAYMENTS_PER_PAYER / 2, transactionRepository.count());
+    }
+
+    @Test
+    void testGroupCommitAndPointInTimeBalanceWithHotAccount() throws Exception {
+        groupCommitProperties.setEnabled(true);
+        LocalDateTime start = LocalDateTime.now().minusSeconds(1);
+        ExecutorService executor = Executors.newFixedThreadPool(PAYERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long payerId : payerIds) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < PAYMENTS_PER_PAYER; i++) {
+                    // Пополнения плательщиков идут группами, зачисления на горячий счёт - отдельными транзакциями
+                    assertEquals(1, bankService.putMoney(payerId, new BigDecimal("1.00")));
+                    bankService.transferMoney(payerId, merchantId, new BigDecimal("1.00"));
+                    assertEquals(1, bankService.putMoney(merchantId, new BigDecimal("1.00")));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        BigDecimal expected = new BigDecimal("100.00").add(BigDecimal.valueOf(2L * PAYERS * PAYMENTS_PER_PAYER));
+        assertEquals(0, expected.compareTo(bankService.getBalance(merchantId)));
+        // Баланс горячего счёта на момент времени считается по оборотам, а не по balance_after
+        assertEquals(0, new BigDecimal("100.00").compareTo(bankService.getBalanceAt(merchantId, start)));
+        assertEquals(0, expected.compareTo(bankService.getBalanceAt(merchantId, LocalDateTime.now().plusSeconds(1))));
+    }
+
+    @Test
+    void testDebitSweepsSlotsAndNeverOverdraws() {
+        for (int i = 0; i < 10; i++) {
+            bankService.putMoney(merchantId, new BigDecimal("10.00"));
+        }
+        // Строке счёта 100, слотам 100: списание 150 возможно только после сметания слотов
+        assertEquals(1, bankService.takeMoney(merchantId, new BigDecimal("150.00")));
+        assertEquals(0, new BigDecimal("50.00").compareTo(bankService.getBalance(merchantId)));
+        assertTrue(slotRepository.findAll().stream().allMatch(slot -> slot.getBalance().signum() == 0));
+
+        assertEquals(0, bankService.takeMoney(merchantId, new BigDecimal("50.01")));
+        bankService.putMoney(merchantId, new BigDecimal("25.00"));
+        assertThrows(InsufficientFundsException.class,
+                () -> bankService.transferMoney(merchantId, payerIds.get(0), new BigDecimal("75.01")));
+        bankService.transferMoney(merchantId, payerIds.get(0), new BigDecimal("75.00"));
+        assertEquals(0, BigDecimal.ZERO.compareTo(bankService.getBalance(merchantId)));
+        assertEquals(0, new BigDecimal("1075.00").compareTo(bankService.getBalance(payerIds.get(0))));
+    }
+
+    @Test
+    void testReadModifyWriteDebitAndBatchSeeWholeBalance() {
+        concurrencyProperties.setAtomicUpdates(false);
+        bankService.putMoney(merchantId, new BigDecimal("50.00"));
+        assertEquals(1, bankService.takeMoney(merchantId, new BigDecimal("120.00")));
+        assertEquals(0, new BigDecimal("30.00").compareTo(bankService.getBalance(merchantId)));
+
+        bankService.putMoney(merchantId, new BigDecimal("70.00"));
+        TransferRequest payout = new TransferRequest();
+        payout.setSenderId(merchantId);
+        payout.setReceiverId(payerIds.get(1));
+        payout.setAmount(new BigDecimal("100.00"));
+        List<TransferResult> results = bankService.transferBatch(List.of(payout));
+        assertEquals(1, results.get(0).status(), "Пакетный перевод видит деньги в слотах.");
+        assertEquals(0, BigDecimal.ZERO.compareTo(bankService.getBalance(merchantId)));
+    }
+}
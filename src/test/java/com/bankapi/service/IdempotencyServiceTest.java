@@ -0,0 +1,172 @@
+package com.bankapi.service;
+
+import com.bankapi.dto.StatusResponse;
+import com.bankapi.exception.IdempotencyConflictException;
+import com.bankapi.exception.IdempotencyKeyReuseException;
+import com.bankapi.exception.OperationNotAppliedException;
+import com.bankapi.model.IdempotencyRecord;
+import com.bankapi.repository.IdempotencyRecordRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class IdempotencyServiceTest {
+
+    private static final int DUPLICATES = 8;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+        idempotencyService.invalidateAll();
+        executions.set(0);
+    }
+
+    @Test
+    void testConcurrentDuplicatesCollapseIntoOneExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<StatusResponse>> slowDeposit = () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.ok(StatusResponse.SUCCESSFUL);
+        };
+
+        ExecutorService callers = Executors.newFixedThreadPool(DUPLICATES);
+        List<Future<ResponseEntity<StatusResponse>>> responses = new ArrayList<>();
+        for (int i = 0; i < DUPLICATES; i++) {
+            responses.add(callers.submit(() -> idempotencyService.execute("collapse", "deposit|1|10", slowDeposit)));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // Дубликаты успевают прийти, пока первое исполнение ещё идёт
+        Thread.sleep(100);
+        release.countDown();
+
+        int replays = 0;
+        for (Future<ResponseEntity<StatusResponse>> response : responses) {
+            ResponseEntity<StatusResponse> entity = response.get(5, TimeUnit.SECONDS);
+            assertEquals(StatusResponse.SUCCESSFUL, entity.getBody());
+            if (entity.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)) {
+                replays++;
+            }
+        }
+        callers.shutdown();
+        assertEquals(1, executions.get(), "Одновременные дубликаты ждут первое исполнение, а не исполняются сами.");
+        assertEquals(DUPLICATES - 1, replays);
+        assertTrue(repository.findById("collapse").orElseThrow().isCompleted());
+    }
+
+    @Test
+    void testStoredResponseIsReplayedAfterCacheEviction() {
+        ResponseEntity<StatusResponse> first = idempotencyService.execute("stored", "withdraw|1|10", () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(StatusResponse.failure("Insufficient funds"));
+        });
+        idempotencyService.invalidateAll();
+
+        ResponseEntity<StatusResponse> replay = idempotencyService.execute("stored", "withdraw|1|10", this::unexpected);
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.BAD_REQUEST, replay.getStatusCode());
+        assertEquals(first.getBody(), replay.getBody(), "Ответ восстанавливается из bank_idempotency_key.");
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute("stored", "withdraw|1|11", this::unexpected));
+    }
+
+    @Test
+    void testKeyClaimedByAnotherInstanceIsConflict() {
+        // Строка без ответа: запрос с этим ключом сейчас исполняет другой экземпляр
+        repository.saveAndFlush(new IdempotencyRecord("claimed", "transfer|1|2|5", LocalDateTime.now()));
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("claimed", "transfer|1|2|5", this::unexpected));
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("claimed", "transfer|1|2|5", this::unexpected),
+                "Конфликт не кэшируется: следующий повтор снова проверяет таблицу.");
+    }
+
+    @Test
+    void testFailedExecutionReleasesKey() {
+        assertThrows(OperationNotAppliedException.class, () -> idempotencyService.execute("retry", "deposit|1|10", () -> {
+            executions.incrementAndGet();
+            throw new OperationNotAppliedException("Account engine is not running");
+        }));
+        assertTrue(repository.findById("retry").isEmpty());
+
+        ResponseEntity<StatusResponse> retried = idempotencyService.execute("retry", "deposit|1|10", () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(StatusResponse.SUCCESSFUL);
+        });
+
+        assertEquals(2, executions.get(), "Исполнение без результата не занимает ключ.");
+        assertNull(retried.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void testTimedOutExecutionKeepsKeyClaimed() throws Exception {
+        CountDownLatch committed = new CountDownLatch(1);
+        Supplier<ResponseEntity<StatusResponse>> timedOut = () -> {
+            // Операция коммитится уже после того, как вызывающий получил таймаут
+            new Thread(() -> {
+                executions.incrementAndGet();
+                committed.countDown();
+            }).start();
+            throw new IllegalStateException("Account engine did not answer within 30000 ms");
+        };
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("unknown", "deposit|1|10", timedOut));
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("unknown", "deposit|1|10", this::unexpected),
+                "После ошибки с неизвестным исходом ключ остаётся занятым.");
+        assertEquals(1, executions.get(), "Повтор не исполняет операцию второй раз.");
+        assertFalse(repository.findById("unknown").orElseThrow().isCompleted());
+    }
+
+    @Test
+    void testFingerprintComparesAmountsByValue() {
+        assertEquals(IdempotencyService.fingerprint("deposit", 1L, new BigDecimal("10")),
+                IdempotencyService.fingerprint("deposit", 1L, new BigDecimal("10.00")));
+        assertNotEquals(IdempotencyService.fingerprint("deposit", 1L, new BigDecimal("10")),
+                IdempotencyService.fingerprint("withdraw", 1L, new BigDecimal("10")));
+    }
+
+    private ResponseEntity<StatusResponse> unexpected() {
+        executions.incrementAndGet();
+        throw new AssertionError("Повтор не должен исполнять операцию");
+    }
+}
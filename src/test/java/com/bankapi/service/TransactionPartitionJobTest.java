@@ -0,0 +1,125 @@
+package com.bankapi.service;
+
+import com.bankapi.config.PartitionProperties;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TransactionPartitionJobTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 15);
+
+    @TempDir
+    Path archive;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BalanceSnapshotJob snapshotJob = mock(BalanceSnapshotJob.class);
+    private final PartitionProperties properties = new PartitionProperties();
+    private TransactionPartitionJob job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.setPremakeMonths(2);
+        properties.setRetentionMonths(3);
+        properties.setArchiveDirectory(archive.toString());
+        job = new TransactionPartitionJob(properties, jdbcTemplate, snapshotJob, mock(EntityManagerFactory.class));
+
+        // COPY ... TO STDOUT пишет в поток, переданный выгрузке
+        CopyManager copyManager = mock(CopyManager.class);
+        when(copyManager.copyOut(anyString(), any(OutputStream.class))).thenAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("id,user_id\n1,7\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        Connection connection = mock(Connection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0, ConnectionCallback.class).doInConnection(connection));
+    }
+
+    @Test
+    void testPartitionNamesAndBounds() {
+        MonthlyPartition partition = MonthlyPartition.of(LocalDate.of(2024, 12, 31));
+        assertEquals("bank_transaction_p2024_12", partition.tableName());
+        assertEquals(LocalDate.of(2024, 12, 1), partition.from());
+        assertEquals(LocalDate.of(2025, 1, 1), partition.to());
+        assertEquals(partition, MonthlyPartition.parse("bank_transaction_p2024_12"));
+        assertEquals("CREATE TABLE IF NOT EXISTS public.bank_transaction_p2024_12 PARTITION OF public.bank_transaction"
+                + " FOR VALUES FROM ('2024-12-01') TO ('2025-01-01')", partition.createSql());
+        assertNull(MonthlyPartition.parse("bank_transaction_p2024_13"));
+        assertNull(MonthlyPartition.parse("bank_transaction_unpartitioned"));
+    }
+
+    @Test
+    void testCreatesOnlyMissingMonthsAhead() {
+        attached("bank_transaction_p2026_03");
+
+        assertEquals(2, job.createAhead(TODAY));
+        verify(jdbcTemplate).execute(partition(2026, 4).createSql());
+        verify(jdbcTemplate).execute(partition(2026, 5).createSql());
+        verify(jdbcTemplate, never()).execute(partition(2026, 3).createSql());
+    }
+
+    @Test
+    void testArchivesExpiredMonthsCoveredBySnapshots() throws Exception {
+        // Сентябрь 2025 отсоединён прошлым запуском, но не удалён; хранятся три полных месяца - с декабря 2025
+        attached("bank_transaction_p2025_10", "bank_transaction_p2025_11", "bank_transaction_p2025_12");
+        detached("bank_transaction_p2025_09");
+        when(snapshotJob.coveredUntil()).thenReturn(LocalDate.of(2025, 10, 31));
+
+        assertEquals(2, job.archiveExpired(TODAY));
+
+        ArgumentCaptor<String> ddl = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeastOnce()).execute(ddl.capture());
+        assertEquals(List.of(
+                "DROP TABLE public.bank_transaction_p2025_09",
+                "ALTER TABLE public.bank_transaction DETACH PARTITION public.bank_transaction_p2025_10 CONCURRENTLY",
+                "DROP TABLE public.bank_transaction_p2025_10"), ddl.getAllValues(),
+                "Ноябрь не покрыт снимками и остаётся; декабрь в пределах срока хранения.");
+        assertTrue(Files.exists(archive.resolve("bank_transaction_p2025_09.csv.gz")));
+        assertTrue(Files.exists(archive.resolve("bank_transaction_p2025_10.csv.gz")));
+        assertFalse(Files.exists(archive.resolve("bank_transaction_p2025_10.csv.gz.tmp")));
+    }
+
+    @Test
+    void testRetentionOffKeepsEverything() {
+        properties.setRetentionMonths(0);
+        attached("bank_transaction_p2020_01");
+
+        assertEquals(0, job.archiveExpired(TODAY));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    private void attached(String... names) {
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class))).thenReturn(List.of(names));
+    }
+
+    private void detached(String... names) {
+        when(jdbcTemplate.queryForList(contains("relispartition"), eq(String.class))).thenReturn(List.of(names));
+    }
+
+    private static MonthlyPartition partition(int year, int month) {
+        return new MonthlyPartition(YearMonth.of(year, month));
+    }
+}
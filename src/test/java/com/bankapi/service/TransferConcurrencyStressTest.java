@@ -0,0 +1,132 @@
+package com.bankapi.service;
+
+import com.bankapi.config.ConcurrencyMode;
+import com.bankapi.config.ConcurrencyProperties;
+import com.bankapi.exception.InsufficientFundsException;
+import com.bankapi.model.BankAccount;
+import com.bankapi.repository.BankAccountRepository;
+import com.bankapi.repository.TransactionRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class TransferConcurrencyStressTest {
+
+    private static final int ACCOUNTS = 20;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private BankService bankService;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ConcurrencyProperties concurrencyProperties;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAllInBatch();
+        bankAccountRepository.deleteAllInBatch();
+        accountIds.clear();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(bankAccountRepository.save(new BankAccount(INITIAL_BALANCE)).getUserId());
+        }
+    }
+
+    @AfterEach
+    void restoreMode() {
+        concurrencyProperties.setMode(ConcurrencyMode.PESSIMISTIC);
+    }
+
+    @Test
+    void testConcurrentTransfers_Pessimistic_ConserveTotalBalance() throws Exception {
+        runStress(ConcurrencyMode.PESSIMISTIC);
+    }
+
+    @Test
+    void testConcurrentTransfers_Optimistic_ConserveTotalBalance() throws Exception {
+        runStress(ConcurrencyMode.OPTIMISTIC);
+    }
+
+    private void runStress(ConcurrencyMode mode) throws Exception {
+        concurrencyProperties.setMode(mode);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger conflicted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    Long senderId = accountIds.get(random.nextInt(ACCOUNTS));
+                    Long receiverId = accountIds.get(random.nextInt(ACCOUNTS));
+                    if (senderId.equals(receiverId)) {
+                        continue;
+                    }
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 30000), 2);
+                    try {
+                        bankService.transferMoney(senderId, receiverId, amount);
+                        completed.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        conflicted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        double transfersPerSecond = completed.get() / (elapsedNanos / 1_000_000_000.0);
+        System.out.printf("--- Stress (%s): %d transfers committed, %d rejected, %d gave up on conflicts, %d threads, %.0f transfers/s ---%n",
+                mode, completed.get(), rejected.get(), conflicted.get(), THREADS, transfersPerSecond);
+
+        List<BankAccount> accounts = bankAccountRepository.findAllById(accountIds);
+        BigDecimal total = accounts.stream()
+                .map(BankAccount::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)).compareTo(total),
+                "Суммарный баланс должен сохраниться после параллельных переводов.");
+        assertTrue(accounts.stream().allMatch(a -> a.getBalance().signum() >= 0),
+                "Ни один баланс не должен стать отрицательным.");
+        assertEquals(2L * completed.get(), transactionRepository.count(),
+                "На каждый успешный перевод должно приходиться две записи истории.");
+    }
+}